@@ -3,5 +3,9 @@ package entity;
 public enum DrawMode 
 {
 	ARROW,
-	FILL;
+	FILL,
+	FILL_MAP,
+	PATH,
+	SPAWN,
+	HEATMAP;
 }
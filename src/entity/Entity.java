@@ -17,8 +17,9 @@ public abstract class Entity implements Serializable
 	protected int y;
 	
 	//x and y coordinate of Entity when on the screen
-	protected int screenX;
-	protected int screenY;
+	//(follow the Camera every frame; not saved, worked out again after loading)
+	protected transient int screenX;
+	protected transient int screenY;
 	
 	//width and height of Entity;
 	protected int width;
@@ -1,13 +1,18 @@
 package entity;
 
+import java.io.Serializable;
+
 /**
  * Point class keeps track of the x and y coordinate of a point
  * 
  * @author Vachia Thoj
  *
  */
-public class Point 
+public class Point implements Serializable
 {
+	//For serialization
+	private static final long serialVersionUID = 1L;
+	
 	//x and y position of Point
 	private int x;
 	private int y;
@@ -0,0 +1,666 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import map.Layer;
+import map.LayerType;
+
+/**
+ * ComponentAnalysis class finds every component ("region") of a Layer at
+ * once; groups of Tiles connected to each other (left, right, up or down)
+ * that have the same value, along with the size and bounding box of each
+ * 
+ * The Layer is split into blocks (BLOCK_SIZE x BLOCK_SIZE) that are labeled
+ * on their own with fork-join, so every processor can work on a block at the
+ * same time. The components of neighboring blocks are then joined along the
+ * edges between blocks with union-find, and finally every Tile is given the
+ * number of its component (again one block per task). Only the edges are
+ * looked at one after another, so the time taken goes down almost in
+ * proportion to the number of processors
+ * 
+ * A ComponentAnalysis keeps its arrays between analyses, so it should be reused
+ * @author Vachia Thoj
+ *
+ */
+public class ComponentAnalysis
+{
+	//The Layer being analyzed
+	private Layer layer;
+	
+	//Number of columns and rows in the Layer
+	private int numCols;
+	private int numRows;
+	
+	//Component of each Tile (index = row * numCols + col)
+	//While labeling, the label of each Tile (a Tile index)
+	private int[] labels;
+	
+	//Union-find parent of each label
+	private int[] parents;
+	
+	//Blocks of the Layer
+	private Block[] blocks;
+	
+	//Number of components found
+	private int numComponents;
+	
+	//Value, number of Tiles and bounding box of each component
+	private int[] values;
+	private int[] sizes;
+	private int[] minCols;
+	private int[] minRows;
+	private int[] maxCols;
+	private int[] maxRows;
+	
+	//Pool the blocks are labeled in
+	private ForkJoinPool pool;
+	private int parallelism;
+	
+	//Width and height of a block
+	public static final int BLOCK_SIZE = 256;
+	
+	//Number of ints for each component of a block
+	//(label, value, size, minCol, minRow, maxCol, maxRow and component)
+	private static final int RECORD_SIZE = 8;
+	
+	/**
+	 * Constructor
+	 * Uses every processor
+	 */
+	public ComponentAnalysis()
+	{
+		this.labels = new int[0];
+		this.parents = new int[0];
+		this.numComponents = 0;
+		this.values = new int[64];
+		this.sizes = new int[64];
+		this.minCols = new int[64];
+		this.minRows = new int[64];
+		this.maxCols = new int[64];
+		this.maxRows = new int[64];
+		this.parallelism = Runtime.getRuntime().availableProcessors();
+	}
+	
+	//Getter methods
+	public int getNumComponents() {return numComponents;}
+	public int getParallelism() {return parallelism;}
+	public int getValue(int component) {return values[component];}
+	public int getSize(int component) {return sizes[component];}
+	public int getMinCol(int component) {return minCols[component];}
+	public int getMinRow(int component) {return minRows[component];}
+	public int getMaxCol(int component) {return maxCols[component];}
+	public int getMaxRow(int component) {return maxRows[component];}
+	
+	/**
+	 * Method that sets the number of threads used to label the blocks
+	 * @param parallelism (int) The number of threads (at least 1)
+	 */
+	public void setParallelism(int parallelism)
+	{
+		if(parallelism != this.parallelism && pool != null)
+		{
+			pool.shutdown();
+			pool = null;
+		}
+		
+		this.parallelism = Math.max(parallelism, 1);
+	}
+	
+	/**
+	 * Method that obtains the component of a Tile
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @return the number of the component (0 to getNumComponents() - 1)
+	 */
+	public int getComponent(int col, int row)
+	{
+		return labels[row * numCols + col];
+	}
+	
+	/**
+	 * Method that counts the components with a value
+	 * (for example, 1 if every Tile with the value is connected)
+	 * @param value (int) The value
+	 * @return the number of components
+	 */
+	public int countComponents(int value)
+	{
+		int count = 0;
+		for(int i = 0; i < numComponents; i++)
+		{
+			if(values[i] == value)
+			{
+				++count;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Method that finds the largest component with a value
+	 * @param value (int) The value
+	 * @return the component, or -1 if no Tile has the value
+	 */
+	public int findLargestComponent(int value)
+	{
+		int largest = -1;
+		for(int i = 0; i < numComponents; i++)
+		{
+			if(values[i] == value && (largest == -1 || sizes[i] > sizes[largest]))
+			{
+				largest = i;
+			}
+		}
+		
+		return largest;
+	}
+	
+	/**
+	 * Method that finds every component of a Layer
+	 * @param layer (Layer) The Layer to analyze
+	 * @return the number of components
+	 */
+	public int analyze(Layer layer)
+	{
+		this.layer = layer;
+		this.numCols = layer.getNumCols();
+		this.numRows = layer.getNumRows();
+		
+		long numTiles = (long) numCols * numRows;
+		if(numTiles > Integer.MAX_VALUE - 8)
+		{
+			throw new IllegalArgumentException("Layer of " + numCols + " x " + numRows + " Tiles is too large to analyze");
+		}
+		
+		if(labels.length < numTiles)
+		{
+			labels = new int[(int) numTiles];
+			parents = new int[(int) numTiles];
+		}
+		
+		createBlocks();
+		
+		runBlocks(false);
+		joinBlocks();
+		numberComponents();
+		runBlocks(true);
+		
+		return numComponents;
+	}
+	
+	/**
+	 * Method that splits the Layer into blocks
+	 */
+	private void createBlocks()
+	{
+		int numBlockCols = (numCols + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int numBlockRows = (numRows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		
+		blocks = new Block[numBlockCols * numBlockRows];
+		
+		for(int i = 0; i < numBlockRows; i++)
+		{
+			for(int j = 0; j < numBlockCols; j++)
+			{
+				blocks[i * numBlockCols + j] = new Block(
+						j * BLOCK_SIZE,
+						i * BLOCK_SIZE,
+						Math.min((j + 1) * BLOCK_SIZE, numCols) - 1,
+						Math.min((i + 1) * BLOCK_SIZE, numRows) - 1
+				);
+			}
+		}
+	}
+	
+	/**
+	 * Method that labels every block, or gives every Tile its component
+	 * A StreamingLayer can not be read from several threads, so its
+	 * blocks are done one after another
+	 * @param number (boolean) true to give every Tile its component, false to label
+	 */
+	private void runBlocks(boolean number)
+	{
+		if(blocks.length == 0)
+		{
+			return;
+		}
+		
+		if(parallelism == 1 || blocks.length == 1 || layer.getLayerType() == LayerType.STREAMING)
+		{
+			for(int i = 0; i < blocks.length; i++)
+			{
+				runBlock(blocks[i], number);
+			}
+			
+			return;
+		}
+		
+		if(pool == null)
+		{
+			pool = new ForkJoinPool(parallelism);
+		}
+		
+		pool.invoke(new BlockTask(0, blocks.length, number));
+	}
+	
+	/**
+	 * Method that labels a block, or gives every Tile of a block its component
+	 * @param block (Block) The block
+	 * @param number (boolean) true to give every Tile its component, false to label
+	 */
+	private void runBlock(Block block, boolean number)
+	{
+		if(number)
+		{
+			numberBlock(block);
+		}
+		else
+		{
+			labelBlock(block);
+		}
+	}
+	
+	/**
+	 * Task that splits a range of blocks in half until only one block is left
+	 */
+	private class BlockTask extends RecursiveAction
+	{
+		//For serialization
+		private static final long serialVersionUID = 1L;
+		
+		//Range of blocks (the first block and the block after the last)
+		private int start;
+		private int end;
+		
+		//Whether to give every Tile its component instead of labeling
+		private boolean number;
+		
+		/**
+		 * Constructor
+		 * @param start (int) The first block
+		 * @param end (int) The block after the last block
+		 * @param number (boolean) true to give every Tile its component, false to label
+		 */
+		public BlockTask(int start, int end, boolean number)
+		{
+			this.start = start;
+			this.end = end;
+			this.number = number;
+		}
+		
+		protected void compute()
+		{
+			if(end - start == 1)
+			{
+				runBlock(blocks[start], number);
+				return;
+			}
+			
+			int middle = (start + end) >>> 1;
+			invokeAll(new BlockTask(start, middle, number), new BlockTask(middle, end, number));
+		}
+	}
+	
+	/**
+	 * Method that labels a block on its own and records the value, size and
+	 * bounding box of each of its components
+	 * Only labels of Tiles within the block are used, so blocks can be
+	 * labeled at the same time
+	 * @param block (Block) The block
+	 */
+	private void labelBlock(Block block)
+	{
+		int width = block.right - block.left + 1;
+		int[] above = new int[width];
+		int[] current = new int[width];
+		
+		for(int i = block.top; i <= block.bottom; i++)
+		{
+			layer.readRow(i, block.left, block.right, current);
+			
+			for(int j = 0; j < width; j++)
+			{
+				int index = i * numCols + block.left + j;
+				int value = current[j];
+				int label = index;
+				
+				//Join the Tile to the left
+				if(j > 0 && current[j - 1] == value)
+				{
+					label = labels[index - 1];
+				}
+				
+				//Join the Tile above
+				if(i > block.top && above[j] == value)
+				{
+					label = (label == index) ? labels[index - numCols] : union(label, labels[index - numCols]);
+				}
+				
+				if(label == index)
+				{
+					parents[index] = index;
+				}
+				
+				labels[index] = label;
+			}
+			
+			int[] temp = above;
+			above = current;
+			current = temp;
+		}
+		
+		//Give every Tile its root label
+		for(int i = block.top; i <= block.bottom; i++)
+		{
+			for(int index = i * numCols + block.left; index <= i * numCols + block.right; index++)
+			{
+				labels[index] = find(labels[index]);
+			}
+		}
+		
+		//Record each component of the block
+		//(while recording, the parent of a root label is -1 - its record)
+		block.numRecords = 0;
+		for(int i = block.top; i <= block.bottom; i++)
+		{
+			for(int j = block.left; j <= block.right; j++)
+			{
+				int index = i * numCols + j;
+				int root = labels[index];
+				int record;
+				
+				if(root == index)
+				{
+					record = block.addRecord(index, layer.getValue(j, i), j, i);
+					parents[index] = -1 - record;
+				}
+				else
+				{
+					record = -1 - parents[root];
+				}
+				
+				block.addTile(record, j, i);
+			}
+		}
+		
+		for(int n = 0; n < block.numRecords; n++)
+		{
+			int root = block.records[n * RECORD_SIZE];
+			parents[root] = root;
+		}
+	}
+	
+	/**
+	 * Method that joins the components of neighboring blocks along the edges
+	 * between them
+	 */
+	private void joinBlocks()
+	{
+		//Edges between rows of blocks
+		int[] above = new int[numCols];
+		int[] below = new int[numCols];
+		for(int row = BLOCK_SIZE; row < numRows; row += BLOCK_SIZE)
+		{
+			layer.readRow(row - 1, 0, numCols - 1, above);
+			layer.readRow(row, 0, numCols - 1, below);
+			
+			for(int j = 0; j < numCols; j++)
+			{
+				if(above[j] == below[j])
+				{
+					union(labels[(row - 1) * numCols + j], labels[row * numCols + j]);
+				}
+			}
+		}
+		
+		//Edges between columns of blocks
+		int[] pair = new int[2];
+		for(int col = BLOCK_SIZE; col < numCols; col += BLOCK_SIZE)
+		{
+			for(int i = 0; i < numRows; i++)
+			{
+				layer.readRow(i, col - 1, col, pair);
+				
+				if(pair[0] == pair[1])
+				{
+					union(labels[i * numCols + col - 1], labels[i * numCols + col]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Method that numbers the joined components and adds up the size and
+	 * bounding box of each from the components of the blocks
+	 * (while numbering, the parent of a root label is -1 - its component)
+	 */
+	private void numberComponents()
+	{
+		numComponents = 0;
+		
+		//Find the root label of every component of every block first
+		//(find can not be used once the parents start being numbered)
+		for(int b = 0; b < blocks.length; b++)
+		{
+			Block block = blocks[b];
+			for(int n = 0; n < block.numRecords; n++)
+			{
+				int[] record = block.records;
+				record[n * RECORD_SIZE + 7] = find(record[n * RECORD_SIZE]);
+			}
+		}
+		
+		for(int b = 0; b < blocks.length; b++)
+		{
+			Block block = blocks[b];
+			for(int n = 0; n < block.numRecords; n++)
+			{
+				int offset = n * RECORD_SIZE;
+				int[] record = block.records;
+				int root = record[offset + 7];
+				int component;
+				
+				if(parents[root] >= 0)
+				{
+					component = addComponent(record[offset + 1]);
+					parents[root] = -1 - component;
+				}
+				else
+				{
+					component = -1 - parents[root];
+				}
+				
+				record[offset + 7] = component;
+				sizes[component] += record[offset + 2];
+				minCols[component] = Math.min(minCols[component], record[offset + 3]);
+				minRows[component] = Math.min(minRows[component], record[offset + 4]);
+				maxCols[component] = Math.max(maxCols[component], record[offset + 5]);
+				maxRows[component] = Math.max(maxRows[component], record[offset + 6]);
+			}
+		}
+	}
+	
+	/**
+	 * Method that adds a component with no Tiles
+	 * @param value (int) The value of the component
+	 * @return the component
+	 */
+	private int addComponent(int value)
+	{
+		if(numComponents == values.length)
+		{
+			int length = values.length * 2;
+			values = Arrays.copyOf(values, length);
+			sizes = Arrays.copyOf(sizes, length);
+			minCols = Arrays.copyOf(minCols, length);
+			minRows = Arrays.copyOf(minRows, length);
+			maxCols = Arrays.copyOf(maxCols, length);
+			maxRows = Arrays.copyOf(maxRows, length);
+		}
+		
+		values[numComponents] = value;
+		sizes[numComponents] = 0;
+		minCols[numComponents] = Integer.MAX_VALUE;
+		minRows[numComponents] = Integer.MAX_VALUE;
+		maxCols[numComponents] = -1;
+		maxRows[numComponents] = -1;
+		
+		return numComponents++;
+	}
+	
+	/**
+	 * Method that gives every Tile of a block the component it is in
+	 * @param block (Block) The block
+	 */
+	private void numberBlock(Block block)
+	{
+		//Only the root labels of this block's components are changed,
+		//so blocks can be numbered at the same time
+		for(int n = 0; n < block.numRecords; n++)
+		{
+			parents[block.records[n * RECORD_SIZE]] = -1 - block.records[n * RECORD_SIZE + 7];
+		}
+		
+		for(int i = block.top; i <= block.bottom; i++)
+		{
+			for(int index = i * numCols + block.left; index <= i * numCols + block.right; index++)
+			{
+				labels[index] = -1 - parents[labels[index]];
+			}
+		}
+		
+		//The records are not needed any more
+		block.records = null;
+		block.numRecords = 0;
+	}
+	
+	/**
+	 * Method that finds the root label of a label
+	 * @param label (int) The label
+	 * @return the root label
+	 */
+	private int find(int label)
+	{
+		while(parents[label] != label)
+		{
+			//Path halving
+			parents[label] = parents[parents[label]];
+			label = parents[label];
+		}
+		
+		return label;
+	}
+	
+	/**
+	 * Method that joins the components of two labels;
+	 * the smaller root label becomes the root
+	 * @param a (int) A label
+	 * @param b (int) Another label
+	 * @return the root label
+	 */
+	private int union(int a, int b)
+	{
+		a = find(a);
+		b = find(b);
+		
+		if(a < b)
+		{
+			parents[b] = a;
+			return a;
+		}
+		
+		parents[a] = b;
+		return b;
+	}
+	
+	/**
+	 * Block class is a part of the Layer that is labeled on its own
+	 * along with the components found within it
+	 */
+	private static class Block
+	{
+		//Bounds of the block (inclusive)
+		private int left;
+		private int top;
+		private int right;
+		private int bottom;
+		
+		//Components of the block (RECORD_SIZE ints each)
+		private int[] records;
+		private int numRecords;
+		
+		/**
+		 * Constructor
+		 * @param left (int) The first column
+		 * @param top (int) The first row
+		 * @param right (int) The last column (inclusive)
+		 * @param bottom (int) The last row (inclusive)
+		 */
+		public Block(int left, int top, int right, int bottom)
+		{
+			this.left = left;
+			this.top = top;
+			this.right = right;
+			this.bottom = bottom;
+		}
+		
+		/**
+		 * Method that adds a component with no Tiles
+		 * @param root (int) The root label of the component
+		 * @param value (int) The value of the component
+		 * @param col (int) column of the first Tile
+		 * @param row (int) row of the first Tile
+		 * @return the record of the component
+		 */
+		public int addRecord(int root, int value, int col, int row)
+		{
+			if(records == null)
+			{
+				records = new int[RECORD_SIZE * 16];
+			}
+			else if((numRecords + 1) * RECORD_SIZE > records.length)
+			{
+				records = Arrays.copyOf(records, records.length * 2);
+			}
+			
+			int offset = numRecords * RECORD_SIZE;
+			records[offset] = root;
+			records[offset + 1] = value;
+			records[offset + 2] = 0;
+			records[offset + 3] = col;
+			records[offset + 4] = row;
+			records[offset + 5] = col;
+			records[offset + 6] = row;
+			
+			return numRecords++;
+		}
+		
+		/**
+		 * Method that adds a Tile to a component
+		 * @param record (int) The record of the component
+		 * @param col (int) column of the Tile
+		 * @param row (int) row of the Tile
+		 */
+		public void addTile(int record, int col, int row)
+		{
+			int offset = record * RECORD_SIZE;
+			++records[offset + 2];
+			
+			//Tiles are added row by row, so the first row is already the smallest
+			if(col < records[offset + 3])
+			{
+				records[offset + 3] = col;
+			}
+			
+			if(col > records[offset + 5])
+			{
+				records[offset + 5] = col;
+			}
+			
+			records[offset + 6] = row;
+		}
+	}
+}
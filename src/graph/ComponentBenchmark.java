@@ -0,0 +1,195 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import map.ChunkedLayer;
+import map.Layer;
+
+/**
+ * ComponentBenchmark class measures how the speed of ComponentAnalysis
+ * changes with the number of threads
+ * (run it on its own; it is not part of Tile Map Maker)
+ * 
+ * A Layer (4096 x 4096 by default, or the size given as the first argument)
+ * is filled with random blobs and analyzed with 1, 2, 4, ... threads up to
+ * the number of processors. A breadth first search on one thread is timed
+ * as well, for comparison
+ * @author Vachia Thoj
+ *
+ */
+public class ComponentBenchmark
+{
+	//Number of times each measurement is repeated; the fastest is kept
+	private static final int ROUNDS = 5;
+	
+	public static void main(String[] args)
+	{
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+		Layer layer = createLayer(size);
+		
+		long bfsTime = timeSearch(layer);
+		System.out.println(String.format("breadth first search: %.1f ms", bfsTime / 1e6));
+		
+		System.out.println("threads   time (ms)   speedup   components");
+		
+		ComponentAnalysis analysis = new ComponentAnalysis();
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		long oneThreadTime = 0;
+		
+		for(int threads = 1; threads <= maxThreads; threads = nextThreads(threads, maxThreads))
+		{
+			analysis.setParallelism(threads);
+			
+			long best = Long.MAX_VALUE;
+			for(int round = 0; round < ROUNDS; round++)
+			{
+				long start = System.nanoTime();
+				analysis.analyze(layer);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			
+			if(threads == 1)
+			{
+				oneThreadTime = best;
+			}
+			
+			System.out.println(String.format(
+					"%-9d %-11.1f %-9.2f %d",
+					threads,
+					best / 1e6,
+					(double) oneThreadTime / best,
+					analysis.getNumComponents()
+			));
+		}
+	}
+	
+	/**
+	 * Method that obtains the next number of threads to measure
+	 * (double the last, but always ending with the number of processors)
+	 * @param threads (int) The last number of threads
+	 * @param maxThreads (int) The number of processors
+	 * @return the next number of threads
+	 */
+	private static int nextThreads(int threads, int maxThreads)
+	{
+		if(threads < maxThreads && threads * 2 > maxThreads)
+		{
+			return maxThreads;
+		}
+		
+		return threads * 2;
+	}
+	
+	/**
+	 * Method that creates a Layer of random blobs of values 0 to 3
+	 * @param size (int) number of columns and rows
+	 * @return the Layer
+	 */
+	private static Layer createLayer(int size)
+	{
+		Layer layer = new ChunkedLayer(size, size);
+		Random random = new Random(1);
+		
+		int numBlobs = size * size / 64;
+		for(int n = 0; n < numBlobs; n++)
+		{
+			int col = random.nextInt(size);
+			int row = random.nextInt(size);
+			int radius = 1 + random.nextInt(4);
+			int value = random.nextInt(4);
+			
+			layer.fill(Math.max(col - radius, 0), Math.max(row - radius, 0),
+					Math.min(col + radius, size - 1), Math.min(row + radius, size - 1), value);
+		}
+		
+		return layer;
+	}
+	
+	/**
+	 * Method that times finding every component with a breadth first search
+	 * @param layer (Layer) The Layer
+	 * @return the fastest time (nanoseconds)
+	 */
+	private static long timeSearch(Layer layer)
+	{
+		int numCols = layer.getNumCols();
+		int numRows = layer.getNumRows();
+		int[] labels = new int[numCols * numRows];
+		IntQueue queue = new IntQueue();
+		
+		long best = Long.MAX_VALUE;
+		for(int round = 0; round < ROUNDS; round++)
+		{
+			long start = System.nanoTime();
+			
+			Arrays.fill(labels, -1);
+			int numComponents = 0;
+			
+			for(int i = 0; i < labels.length; i++)
+			{
+				if(labels[i] != -1)
+				{
+					continue;
+				}
+				
+				int value = layer.getValue(i % numCols, i / numCols);
+				labels[i] = numComponents;
+				queue.enqueue(i);
+				
+				while(!queue.isEmpty())
+				{
+					int current = queue.dequeue();
+					int col = current % numCols;
+					int row = current / numCols;
+					
+					if(col > 0)
+					{
+						visit(layer, labels, queue, current - 1, col - 1, row, value, numComponents);
+					}
+					
+					if(col < numCols - 1)
+					{
+						visit(layer, labels, queue, current + 1, col + 1, row, value, numComponents);
+					}
+					
+					if(row > 0)
+					{
+						visit(layer, labels, queue, current - numCols, col, row - 1, value, numComponents);
+					}
+					
+					if(row < numRows - 1)
+					{
+						visit(layer, labels, queue, current + numCols, col, row + 1, value, numComponents);
+					}
+				}
+				
+				++numComponents;
+			}
+			
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Method that adds a Tile to the search if it has the value and has not been visited
+	 * @param layer (Layer) The Layer
+	 * @param labels (int[]) The component of each Tile (-1 if not visited)
+	 * @param queue (IntQueue) The Tiles to search from
+	 * @param index (int) index of the Tile
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @param value (int) The value of the component
+	 * @param label (int) The component
+	 */
+	private static void visit(Layer layer, int[] labels, IntQueue queue, int index, int col, int row, int value, int label)
+	{
+		if(labels[index] == -1 && layer.getValue(col, row) == value)
+		{
+			labels[index] = label;
+			queue.enqueue(index);
+		}
+	}
+}
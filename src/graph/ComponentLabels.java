@@ -0,0 +1,638 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import map.Layer;
+import map.LayerType;
+
+/**
+ * ComponentLabels class keeps track of the components ("regions") of a Layer;
+ * groups of Tiles connected to each other (left, right, up or down) that
+ * have the same value
+ *
+ * Every Tile has a label, and labels of the same component are joined with
+ * union-find, so "which component is this Tile in" and "how large is it"
+ * are a lookup. The labels are built for the whole Layer (in parallel, one
+ * band of rows per processor) and then kept up to date one Tile at a time:
+ * a changed Tile joins the components next to it with its new value, and
+ * the component it leaves is searched (up to RELABEL_LIMIT Tiles) to find
+ * out whether it split apart. If that search is too large the labels are
+ * marked stale and built again the next time they are needed
+ * 
+ * Tile indices and neighbors come from a Graph of the Layer; building the
+ * labels reads whole rows, so it works out the indices of each row inline
+ * 
+ * The bands are labeled in the common ForkJoinPool, so building the labels
+ * again does not start any Threads of its own
+ * 
+ * The labels are only used by TileMap.findPath, to tell at once that two
+ * Tiles are not connected; ComponentAnalysis finds the size and bounding
+ * box of every component
+ * @author Vachia Thoj
+ */
+public class ComponentLabels
+{
+	//The Layer being labeled, and the Graph of its Tiles
+	private Layer layer;
+	private Graph graph;
+	
+	//Number of columns and rows in the Layer
+	private int numCols;
+	private int numRows;
+	
+	//Label of each Tile (index = row * numCols + col)
+	private int[] labels;
+	
+	//Union-find parent of each label, and the number of Tiles of each root label
+	private int[] parents;
+	private int[] sizes;
+	
+	//Number of labels in use; labels below numCols * numRows are Tile indices
+	private int numLabels;
+	
+	//Whether the labels have to be built again
+	private boolean stale;
+	
+	//Reusable data for the search after a Tile changes
+	private IntQueue queue;
+	private int[] neighbors;
+	private int[] searchTiles;
+	private int[] searchLabels;
+	private int[] targets;
+	
+	//Largest number of Tiles searched after a Tile changes
+	public static final int RELABEL_LIMIT = 4096;
+	
+	//Largest Layer (number of Tiles) that can be labeled
+	public static final int MAX_TILES = 1 << 24;
+	
+	/**
+	 * Constructor
+	 * The labels are built the first time they are needed
+	 * @param layer (Layer) The Layer to label (at most MAX_TILES Tiles)
+	 */
+	public ComponentLabels(Layer layer)
+	{
+		this.layer = layer;
+		this.graph = new Graph(layer);
+		this.numCols = layer.getNumCols();
+		this.numRows = layer.getNumRows();
+		
+		if((long) numCols * numRows > MAX_TILES)
+		{
+			throw new IllegalArgumentException("Layer of " + numCols + " x " + numRows + " Tiles is too large to label");
+		}
+		
+		this.stale = true;
+		
+		this.queue = new IntQueue();
+		this.neighbors = new int[4];
+		this.searchTiles = new int[RELABEL_LIMIT];
+		this.searchLabels = new int[RELABEL_LIMIT];
+		this.targets = new int[4];
+	}
+	
+	/**
+	 * Method that checks if a Layer is small enough (and safe to read from
+	 * several threads) to be labeled
+	 * @param layer (Layer) The Layer
+	 * @return true if the Layer can be labeled, otherwise false
+	 */
+	public static boolean canLabel(Layer layer)
+	{
+		return layer.getLayerType() != LayerType.STREAMING && (long) layer.getNumCols() * layer.getNumRows() <= MAX_TILES;
+	}
+	
+	//Getter methods
+	public boolean isStale() {return stale;}
+	
+	//Setter methods
+	public void setStale() {this.stale = true;}
+	
+	/**
+	 * Method that obtains the component of a Tile
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @return the label of the component (the same for every Tile of the component)
+	 */
+	public int getComponent(int col, int row)
+	{
+		update();
+		
+		int index = graph.getIndex(col, row);
+		int root = find(labels[index]);
+		labels[index] = root;
+		
+		return root;
+	}
+	
+	/**
+	 * Method that obtains the number of Tiles in the component of a Tile
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @return the number of Tiles
+	 */
+	public int getComponentSize(int col, int row)
+	{
+		return sizes[getComponent(col, row)];
+	}
+	
+	/**
+	 * Method that checks if two Tiles are in the same component
+	 * @param col1 (int) column of the first Tile
+	 * @param row1 (int) row of the first Tile
+	 * @param col2 (int) column of the second Tile
+	 * @param row2 (int) row of the second Tile
+	 * @return true if the Tiles are in the same component, otherwise false
+	 */
+	public boolean isConnected(int col1, int row1, int col2, int row2)
+	{
+		return getComponent(col1, row1) == getComponent(col2, row2);
+	}
+	
+	/**
+	 * Method that counts the components of the Layer
+	 * @return the number of components
+	 */
+	public int getNumComponents()
+	{
+		update();
+		
+		int count = 0;
+		for(int i = 0; i < numLabels; i++)
+		{
+			if(parents[i] == i && sizes[i] > 0)
+			{
+				++count;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Method that builds the labels again if they are stale
+	 */
+	public void update()
+	{
+		if(stale)
+		{
+			rebuild();
+		}
+	}
+	
+	/**
+	 * Method that finds the root label of a label
+	 * @param label (int) The label
+	 * @return the root label
+	 */
+	private int find(int label)
+	{
+		while(parents[label] != label)
+		{
+			//Path halving
+			parents[label] = parents[parents[label]];
+			label = parents[label];
+		}
+		
+		return label;
+	}
+	
+	/**
+	 * Method that finds the root label of a label without changing any parent
+	 * (so several threads may call it at once)
+	 * @param label (int) The label
+	 * @return the root label
+	 */
+	private int findRoot(int label)
+	{
+		while(parents[label] != label)
+		{
+			label = parents[label];
+		}
+		
+		return label;
+	}
+	
+	/**
+	 * Method that joins the components of two labels while building;
+	 * the smaller root label becomes the root
+	 * @param a (int) A label
+	 * @param b (int) Another label
+	 * @return the root label
+	 */
+	private int unionByIndex(int a, int b)
+	{
+		a = find(a);
+		b = find(b);
+		
+		if(a < b)
+		{
+			parents[b] = a;
+			return a;
+		}
+		
+		parents[a] = b;
+		return b;
+	}
+	
+	/**
+	 * Method that joins the components of two labels once the labels are
+	 * built; the larger component's root becomes the root
+	 * @param a (int) A label
+	 * @param b (int) Another label
+	 * @return the root label
+	 */
+	private int unionBySize(int a, int b)
+	{
+		a = find(a);
+		b = find(b);
+		
+		if(a == b)
+		{
+			return a;
+		}
+		
+		if(sizes[a] < sizes[b])
+		{
+			int temp = a;
+			a = b;
+			b = temp;
+		}
+		
+		parents[b] = a;
+		sizes[a] += sizes[b];
+		sizes[b] = 0;
+		
+		return a;
+	}
+	
+	/**
+	 * Method that builds the labels for the whole Layer
+	 * Each processor labels a band of rows; the bands are then joined
+	 */
+	public void rebuild()
+	{
+		int numTiles = numCols * numRows;
+		
+		if(labels == null || labels.length != numTiles)
+		{
+			labels = new int[numTiles];
+		}
+		
+		parents = new int[Math.max(numTiles, 1)];
+		sizes = new int[parents.length];
+		numLabels = numTiles;
+		
+		//Split the rows into bands
+		int numBands = Math.max(Math.min(Runtime.getRuntime().availableProcessors(), numRows / 16), 1);
+		final int[] bandStarts = new int[numBands + 1];
+		for(int i = 0; i <= numBands; i++)
+		{
+			bandStarts[i] = (int) ((long) numRows * i / numBands);
+		}
+		
+		//Label each band
+		runBands(bandStarts, new BandTask()
+		{
+			public void run(int startRow, int endRow)
+			{
+				labelBand(startRow, endRow);
+			}
+		});
+		
+		//Join the components along the edges between bands
+		int[] above = new int[numCols];
+		int[] below = new int[numCols];
+		for(int i = 1; i < numBands; i++)
+		{
+			int row = bandStarts[i];
+			layer.readRow(row - 1, 0, numCols - 1, above);
+			layer.readRow(row, 0, numCols - 1, below);
+			
+			for(int j = 0; j < numCols; j++)
+			{
+				if(above[j] == below[j])
+				{
+					unionByIndex(labels[(row - 1) * numCols + j], labels[row * numCols + j]);
+				}
+			}
+		}
+		
+		//Give every Tile its root label
+		runBands(bandStarts, new BandTask()
+		{
+			public void run(int startRow, int endRow)
+			{
+				for(int i = startRow * numCols; i < endRow * numCols; i++)
+				{
+					labels[i] = findRoot(labels[i]);
+				}
+			}
+		});
+		
+		for(int i = 0; i < numTiles; i++)
+		{
+			++sizes[labels[i]];
+		}
+		
+		stale = false;
+	}
+	
+	/**
+	 * Method that labels a band of rows on its own
+	 * Only labels of Tiles within the band are used, so bands can be
+	 * labeled at the same time
+	 * @param startRow (int) The first row
+	 * @param endRow (int) The row after the last row
+	 */
+	private void labelBand(int startRow, int endRow)
+	{
+		int[] above = new int[numCols];
+		int[] current = new int[numCols];
+		
+		for(int i = startRow; i < endRow; i++)
+		{
+			layer.readRow(i, 0, numCols - 1, current);
+			
+			for(int j = 0; j < numCols; j++)
+			{
+				int index = i * numCols + j;
+				int value = current[j];
+				int label = index;
+				
+				//Join the Tile to the left
+				if(j > 0 && current[j - 1] == value)
+				{
+					label = labels[index - 1];
+				}
+				
+				//Join the Tile above
+				if(i > startRow && above[j] == value)
+				{
+					label = (label == index) ? labels[index - numCols] : unionByIndex(label, labels[index - numCols]);
+				}
+				
+				if(label == index)
+				{
+					parents[index] = index;
+				}
+				
+				labels[index] = label;
+			}
+			
+			int[] temp = above;
+			above = current;
+			current = temp;
+		}
+	}
+	
+	/**
+	 * Task run on each band of rows
+	 */
+	private static abstract class BandTask
+	{
+		public abstract void run(int startRow, int endRow);
+	}
+	
+	/**
+	 * Fork-join task that runs a BandTask on a range of bands
+	 * The range is split in half until each task has one band
+	 */
+	private static class BandAction extends RecursiveAction
+	{
+		//For serialization
+		private static final long serialVersionUID = 1L;
+		
+		//The first row of each band (and the row after the last band)
+		private int[] bandStarts;
+		
+		//The task run on each band
+		private BandTask task;
+		
+		//Range of bands (the first band and the band after the last)
+		private int start;
+		private int end;
+		
+		/**
+		 * Constructor
+		 * @param bandStarts (int[]) The first row of each band (and the row after the last band)
+		 * @param task (BandTask) The task
+		 * @param start (int) The first band
+		 * @param end (int) The band after the last band
+		 */
+		public BandAction(int[] bandStarts, BandTask task, int start, int end)
+		{
+			this.bandStarts = bandStarts;
+			this.task = task;
+			this.start = start;
+			this.end = end;
+		}
+		
+		protected void compute()
+		{
+			if(end - start == 1)
+			{
+				task.run(bandStarts[start], bandStarts[end]);
+				return;
+			}
+			
+			int middle = (start + end) >>> 1;
+			invokeAll(new BandAction(bandStarts, task, start, middle), new BandAction(bandStarts, task, middle, end));
+		}
+	}
+	
+	/**
+	 * Method that runs a task on every band of rows in the common ForkJoinPool
+	 * @param bandStarts (int[]) The first row of each band (and the row after the last band)
+	 * @param task (BandTask) The task
+	 */
+	private static void runBands(int[] bandStarts, BandTask task)
+	{
+		int numBands = bandStarts.length - 1;
+		
+		//A single band is run on this thread
+		if(numBands == 1)
+		{
+			task.run(bandStarts[0], bandStarts[1]);
+			return;
+		}
+		
+		ForkJoinPool.commonPool().invoke(new BandAction(bandStarts, task, 0, numBands));
+	}
+	
+	/**
+	 * Method that creates a new label
+	 * @return the label
+	 */
+	private int newLabel()
+	{
+		if(numLabels == parents.length)
+		{
+			parents = Arrays.copyOf(parents, parents.length * 2);
+			sizes = Arrays.copyOf(sizes, sizes.length * 2);
+		}
+		
+		parents[numLabels] = numLabels;
+		sizes[numLabels] = 0;
+		
+		return numLabels++;
+	}
+	
+	/**
+	 * Method to be called after a Tile of the Layer has changed
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @param oldValue (int) The value the Tile had
+	 * @param newValue (int) The value the Tile has now
+	 */
+	public void changeTile(int col, int row, int oldValue, int newValue)
+	{
+		if(stale || oldValue == newValue)
+		{
+			return;
+		}
+		
+		//Too many labels have been created; start again
+		if(numLabels >= 2 * labels.length)
+		{
+			stale = true;
+			return;
+		}
+		
+		int index = graph.getIndex(col, row);
+		int oldRoot = find(labels[index]);
+		
+		//The Tile leaves its component...
+		--sizes[oldRoot];
+		
+		//...and joins the components next to it with the new value
+		int label = newLabel();
+		sizes[label] = 1;
+		labels[index] = label;
+		
+		int numTargets = 0;
+		int numNeighbors = graph.getNeighbors(index, neighbors);
+		
+		for(int i = 0; i < numNeighbors; i++)
+		{
+			int value = layer.getValue(graph.getCol(neighbors[i]), graph.getRow(neighbors[i]));
+			
+			if(value == newValue)
+			{
+				label = unionBySize(label, labels[neighbors[i]]);
+			}
+			else if(value == oldValue)
+			{
+				targets[numTargets++] = neighbors[i];
+			}
+		}
+		
+		labels[index] = label;
+		
+		//The neighbors with the old value may no longer be connected
+		splitComponent(oldRoot, oldValue, numTargets);
+	}
+	
+	/**
+	 * Method that checks whether the Tiles in targets are still connected
+	 * to each other and gives each part that is not a label of its own
+	 * @param oldRoot (int) The root label of the component the Tiles were in
+	 * @param value (int) The value of the Tiles
+	 * @param numTargets (int) Number of Tiles in targets
+	 */
+	private void splitComponent(int oldRoot, int value, int numTargets)
+	{
+		while(numTargets > 1)
+		{
+			//Search from the first target until every other target is
+			//reached (still connected) or there is nothing left to search (split)
+			int tempLabel = newLabel();
+			int numSearched = 0;
+			int numReached = 1;
+			
+			queue.clear();
+			searchTiles[numSearched] = targets[0];
+			searchLabels[numSearched] = labels[targets[0]];
+			labels[targets[0]] = tempLabel;
+			++numSearched;
+			queue.enqueue(targets[0]);
+			
+			while(!queue.isEmpty() && numReached < numTargets)
+			{
+				int current = queue.dequeue();
+				int numNeighbors = graph.getNeighbors(current, neighbors);
+				
+				for(int i = 0; i < numNeighbors; i++)
+				{
+					int next = neighbors[i];
+					
+					if(labels[next] == tempLabel || layer.getValue(graph.getCol(next), graph.getRow(next)) != value)
+					{
+						continue;
+					}
+					
+					//The component is too large to search; build the labels again later
+					if(numSearched == RELABEL_LIMIT)
+					{
+						restoreSearch(numSearched);
+						stale = true;
+						return;
+					}
+					
+					searchTiles[numSearched] = next;
+					searchLabels[numSearched] = labels[next];
+					labels[next] = tempLabel;
+					++numSearched;
+					queue.enqueue(next);
+					
+					for(int j = 1; j < numTargets; j++)
+					{
+						if(targets[j] == next)
+						{
+							++numReached;
+						}
+					}
+				}
+			}
+			
+			if(numReached == numTargets)
+			{
+				//Still connected
+				restoreSearch(numSearched);
+				--numLabels;
+				return;
+			}
+			
+			//The searched Tiles split off into a component of their own
+			sizes[tempLabel] = numSearched;
+			sizes[oldRoot] -= numSearched;
+			
+			//Keep searching from the targets that were not reached
+			int remaining = 0;
+			for(int j = 1; j < numTargets; j++)
+			{
+				if(labels[targets[j]] != tempLabel)
+				{
+					targets[remaining++] = targets[j];
+				}
+			}
+			
+			numTargets = remaining;
+		}
+	}
+	
+	/**
+	 * Method that gives the searched Tiles back their labels
+	 * @param numSearched (int) Number of Tiles searched
+	 */
+	private void restoreSearch(int numSearched)
+	{
+		for(int i = 0; i < numSearched; i++)
+		{
+			labels[searchTiles[i]] = searchLabels[i];
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package graph;
+
+import map.Layer;
+import map.LayerType;
+
+/**
+ * DistanceField class finds, for every Tile of a Layer (i.e. the hitbox
+ * layer), the distance to the nearest blocked Tile (a Tile with a value other
+ * than 0); the edge of the Layer counts as blocked
+ *
+ * Distances are measured in the same units as PathFinder's costs (10 for a
+ * straight move, 14 for a diagonal one), so a Tile next to a wall is 10 away
+ * and a blocked Tile is 0. They are found with two passes over the Layer: the
+ * first carries distances down and to the right, the second up and to the left
+ * @author Vachia Thoj
+ *
+ */
+public class DistanceField
+{
+	//Distance of a straight and a diagonal move
+	public static final int STRAIGHT_DISTANCE = 10;
+	public static final int DIAGONAL_DISTANCE = 14;
+	
+	//Distances are kept as shorts; larger distances are kept as MAX_DISTANCE
+	public static final int MAX_DISTANCE = Short.MAX_VALUE;
+	
+	//Largest number of Tiles a DistanceField can be found for
+	public static final int MAX_TILES = 1 << 26;
+	
+	//Number of columns and rows in the Layer
+	private int numCols;
+	private int numRows;
+	
+	//Distance of each Tile (row by row)
+	private short[] distances;
+	
+	//Reusable array for the values of one row
+	private int[] rowValues;
+	
+	/**
+	 * Constructor
+	 */
+	public DistanceField()
+	{
+		this.distances = new short[0];
+		this.rowValues = new int[0];
+	}
+	
+	//Getter methods
+	public int getNumCols() {return numCols;}
+	public int getNumRows() {return numRows;}
+	public short[] getDistances() {return distances;}
+	public int getDistance(int col, int row) {return distances[row * numCols + col];}
+	
+	/**
+	 * Method that checks if a DistanceField (or FlowField) can be found for a Layer
+	 * (Layers streamed from disk, or with more than MAX_TILES Tiles, cannot)
+	 * @param layer (Layer) The Layer
+	 * @return true if the field can be found, otherwise false
+	 */
+	public static boolean canCompute(Layer layer)
+	{
+		return layer.getLayerType() != LayerType.STREAMING && (long) layer.getNumCols() * layer.getNumRows() <= MAX_TILES;
+	}
+	
+	/**
+	 * Method that finds the distance of every Tile of a Layer to the nearest blocked Tile
+	 * Only the first numCols * numRows values of getDistances() are used
+	 * @param layer (Layer) The Layer (0 can be walked on)
+	 */
+	public void compute(Layer layer)
+	{
+		if(!canCompute(layer))
+		{
+			throw new IllegalArgumentException("Layer of " + layer.getNumCols() + " x " + layer.getNumRows() + " Tiles is too large for a DistanceField");
+		}
+		
+		numCols = layer.getNumCols();
+		numRows = layer.getNumRows();
+		
+		if(distances.length < numCols * numRows)
+		{
+			distances = new short[numCols * numRows];
+		}
+		
+		if(rowValues.length < numCols)
+		{
+			rowValues = new int[numCols];
+		}
+		
+		//First pass; from the left, up-left, up and up-right
+		for(int i = 0; i < numRows; i++)
+		{
+			layer.readRow(i, 0, numCols - 1, rowValues);
+			int rowStart = i * numCols;
+			
+			for(int j = 0; j < numCols; j++)
+			{
+				if(rowValues[j] != 0)
+				{
+					distances[rowStart + j] = 0;
+					continue;
+				}
+				
+				int distance = STRAIGHT_DISTANCE + (j > 0 ? distances[rowStart + j - 1] : 0);
+				
+				if(i > 0)
+				{
+					int above = rowStart - numCols + j;
+					
+					distance = Math.min(distance, STRAIGHT_DISTANCE + distances[above]);
+					
+					if(j > 0)
+					{
+						distance = Math.min(distance, DIAGONAL_DISTANCE + distances[above - 1]);
+					}
+					
+					if(j < numCols - 1)
+					{
+						distance = Math.min(distance, DIAGONAL_DISTANCE + distances[above + 1]);
+					}
+				}
+				else
+				{
+					distance = STRAIGHT_DISTANCE;
+				}
+				
+				distances[rowStart + j] = (short) Math.min(distance, MAX_DISTANCE);
+			}
+		}
+		
+		//Second pass; from the right, down-right, down and down-left
+		for(int i = numRows - 1; i >= 0; i--)
+		{
+			int rowStart = i * numCols;
+			
+			for(int j = numCols - 1; j >= 0; j--)
+			{
+				int distance = distances[rowStart + j];
+				
+				//Blocked Tile
+				if(distance == 0)
+				{
+					continue;
+				}
+				
+				distance = Math.min(distance, STRAIGHT_DISTANCE + (j < numCols - 1 ? distances[rowStart + j + 1] : 0));
+				
+				if(i < numRows - 1)
+				{
+					int below = rowStart + numCols + j;
+					
+					distance = Math.min(distance, STRAIGHT_DISTANCE + distances[below]);
+					
+					if(j > 0)
+					{
+						distance = Math.min(distance, DIAGONAL_DISTANCE + distances[below - 1]);
+					}
+					
+					if(j < numCols - 1)
+					{
+						distance = Math.min(distance, DIAGONAL_DISTANCE + distances[below + 1]);
+					}
+				}
+				else
+				{
+					distance = STRAIGHT_DISTANCE;
+				}
+				
+				distances[rowStart + j] = (short) Math.min(distance, MAX_DISTANCE);
+			}
+		}
+	}
+}
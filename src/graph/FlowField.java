@@ -0,0 +1,204 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import entity.Point;
+import map.Layer;
+
+/**
+ * FlowField class finds, for every Tile of a Layer (i.e. the hitbox layer),
+ * the number of steps to the nearest of a set of goal Tiles and the direction
+ * to move in to get there, where a Tile with the value 0 can be walked on
+ *
+ * The steps are found with one breadth first search started from every goal
+ * at once (moving left, right, up and down). Each Tile then points at the
+ * neighbour with the fewest steps, moving diagonally where that does not cut
+ * a corner, so something following the directions reaches a goal
+ * 
+ * The search takes its indices and neighbors from a Graph of the Layer;
+ * findDirections also moves diagonally, so it works out its indices inline
+ * @author Vachia Thoj
+ *
+ */
+public class FlowField
+{
+	//Steps of a Tile that can be walked on but cannot reach a goal,
+	//and of a blocked Tile
+	public static final int UNREACHED = -1;
+	public static final int BLOCKED = -2;
+	
+	//Direction of a goal, blocked or unreached Tile
+	public static final byte NO_DIRECTION = -1;
+	
+	//Column and row change of each direction
+	//(left, right, up, down, up-left, up-right, down-left, down-right)
+	private static final int[] DIRECTION_COLS = {-1, 1, 0, 0, -1, 1, -1, 1};
+	private static final int[] DIRECTION_ROWS = {0, 0, -1, 1, -1, -1, 1, 1};
+	
+	//Number of columns and rows in the Layer
+	private int numCols;
+	private int numRows;
+	
+	//Steps and direction of each Tile (row by row)
+	private int[] steps;
+	private byte[] directions;
+	
+	//Number of goals that could be walked on
+	private int numGoals;
+	
+	//Tiles to search from
+	private IntQueue queue;
+	
+	//Reusable array for the neighbors of a Tile
+	private int[] neighbors;
+	
+	//Reusable array for the values of one row
+	private int[] rowValues;
+	
+	/**
+	 * Constructor
+	 */
+	public FlowField()
+	{
+		this.steps = new int[0];
+		this.directions = new byte[0];
+		this.numGoals = 0;
+		this.queue = new IntQueue();
+		this.neighbors = new int[4];
+		this.rowValues = new int[0];
+	}
+	
+	//Getter methods
+	public int getNumCols() {return numCols;}
+	public int getNumRows() {return numRows;}
+	public int getNumGoals() {return numGoals;}
+	public int[] getSteps() {return steps;}
+	public byte[] getDirections() {return directions;}
+	public int getSteps(int col, int row) {return steps[row * numCols + col];}
+	public int getDirection(int col, int row) {return directions[row * numCols + col];}
+	public static int getDirectionCol(int direction) {return DIRECTION_COLS[direction];}
+	public static int getDirectionRow(int direction) {return DIRECTION_ROWS[direction];}
+	
+	/**
+	 * Method that finds the steps and direction of every Tile of a Layer
+	 * towards the nearest goal
+	 * Only the first numCols * numRows values of getSteps() and getDirections() are used
+	 * @param layer (Layer) The Layer (0 can be walked on)
+	 * @param goals (ArrayList<Point>) The goal Tiles (x is the column and y the row)
+	 */
+	public void compute(Layer layer, ArrayList<Point> goals)
+	{
+		if(!DistanceField.canCompute(layer))
+		{
+			throw new IllegalArgumentException("Layer of " + layer.getNumCols() + " x " + layer.getNumRows() + " Tiles is too large for a FlowField");
+		}
+		
+		numCols = layer.getNumCols();
+		numRows = layer.getNumRows();
+		
+		if(steps.length < numCols * numRows)
+		{
+			steps = new int[numCols * numRows];
+			directions = new byte[numCols * numRows];
+		}
+		
+		if(rowValues.length < numCols)
+		{
+			rowValues = new int[numCols];
+		}
+		
+		for(int i = 0; i < numRows; i++)
+		{
+			layer.readRow(i, 0, numCols - 1, rowValues);
+			int rowStart = i * numCols;
+			
+			for(int j = 0; j < numCols; j++)
+			{
+				steps[rowStart + j] = rowValues[j] == 0 ? UNREACHED : BLOCKED;
+			}
+		}
+		
+		Arrays.fill(directions, 0, numCols * numRows, NO_DIRECTION);
+		
+		Graph graph = new Graph(layer);
+		
+		//Start from every goal at once
+		queue.clear();
+		numGoals = 0;
+		
+		for(int i = 0; i < goals.size(); i++)
+		{
+			int tile = graph.getIndex(goals.get(i).getX(), goals.get(i).getY());
+			
+			if(tile >= 0 && steps[tile] == UNREACHED)
+			{
+				steps[tile] = 0;
+				queue.enqueue(tile);
+				++numGoals;
+			}
+		}
+		
+		while(!queue.isEmpty())
+		{
+			int tile = queue.dequeue();
+			int next = steps[tile] + 1;
+			int numNeighbors = graph.getNeighbors(tile, neighbors);
+			
+			for(int i = 0; i < numNeighbors; i++)
+			{
+				if(steps[neighbors[i]] == UNREACHED)
+				{
+					steps[neighbors[i]] = next;
+					queue.enqueue(neighbors[i]);
+				}
+			}
+		}
+		
+		findDirections();
+	}
+	
+	/**
+	 * Method that points every reached Tile (other than a goal) at its
+	 * neighbour with the fewest steps
+	 * Straight moves are checked first, so they are kept when a diagonal
+	 * move is no better
+	 */
+	private void findDirections()
+	{
+		for(int i = 0; i < numRows; i++)
+		{
+			for(int j = 0; j < numCols; j++)
+			{
+				int tile = i * numCols + j;
+				int best = steps[tile];
+				
+				if(best <= 0)
+				{
+					continue;
+				}
+				
+				for(int direction = 0; direction < DIRECTION_COLS.length; direction++)
+				{
+					int col = j + DIRECTION_COLS[direction];
+					int row = i + DIRECTION_ROWS[direction];
+					
+					if(col < 0 || row < 0 || col >= numCols || row >= numRows)
+					{
+						continue;
+					}
+					
+					int neighbour = steps[row * numCols + col];
+					
+					//Diagonal moves may not cut the corner of a blocked Tile
+					if(neighbour >= 0 && neighbour < best &&
+							(direction < 4 || (steps[i * numCols + col] >= 0 && steps[row * numCols + j] >= 0)))
+					{
+						best = neighbour;
+						directions[tile] = (byte) direction;
+					}
+				}
+			}
+		}
+	}
+}
@@ -1,95 +1,178 @@
 package graph;
 
-import java.util.ArrayList;
-
-import entity.Tile;
+import map.Layer;
 import map.TileMap;
 
 /**
  * Graph class represents a graph data structure
+ * 
+ * The Graph is a grid: every Tile of a TileMap within the Graph's bounds is a
+ * Node, connected to the Tiles left, right, up and down of it. Nodes are not
+ * stored; a Node is its index, (row - startRow) * numCols + (col - startCol),
+ * and its neighbors are worked out when they are asked for
+ * 
+ * The searches of the graph package (i.e. ComponentLabels and FlowField)
+ * use a Graph of the Layer they search for their indices and neighbors
  * @author Vachia Thoj
  */
 public class Graph
 {
+	//The TileMap or the Layer the Graph is of (the other is null)
 	private TileMap tileMap;
-	private ArrayList<Node> nodeList;
+	private Layer layer;
+	
+	//First column and row of the TileMap within the Graph
+	private int startCol;
+	private int startRow;
+	
+	//Number of columns and rows within the Graph
+	private int numCols;
+	private int numRows;
 	
 	/**
 	 * Constructor
+	 * Creates a Graph of the whole TileMap (index = row * numCols + col)
 	 * @param tileMap (TileMap) A TileMap object; to be turned into a graph data structure
 	 */
 	public Graph(TileMap tileMap)
+	{
+		this(tileMap, 0, 0, tileMap.getNumCols() - 1, tileMap.getNumRows() - 1);
+	}
+	
+	/**
+	 * Constructor
+	 * Creates a Graph of part of a TileMap
+	 * @param tileMap (TileMap) A TileMap object; to be turned into a graph data structure
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 */
+	public Graph(TileMap tileMap, int startCol, int startRow, int endCol, int endRow)
 	{
 		this.tileMap = tileMap;
-		this.nodeList = new ArrayList<Node>();
+		this.layer = null;
 		
-		createNodeList();
+		setBounds(startCol, startRow, endCol, endRow, tileMap.getNumCols(), tileMap.getNumRows());
+	}
+	
+	/**
+	 * Constructor
+	 * Creates a Graph of a whole Layer (index = row * numCols + col)
+	 * @param layer (Layer) The Layer; to be turned into a graph data structure
+	 */
+	public Graph(Layer layer)
+	{
+		this.tileMap = null;
+		this.layer = layer;
+		
+		setBounds(0, 0, layer.getNumCols() - 1, layer.getNumRows() - 1, layer.getNumCols(), layer.getNumRows());
+	}
+	
+	/**
+	 * Method that sets the columns and rows within the Graph, clipped to the TileMap or Layer
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 * @param mapCols (int) Number of columns in the TileMap or Layer
+	 * @param mapRows (int) Number of rows in the TileMap or Layer
+	 */
+	private void setBounds(int startCol, int startRow, int endCol, int endRow, int mapCols, int mapRows)
+	{
+		this.startCol = Math.max(startCol, 0);
+		this.startRow = Math.max(startRow, 0);
+		this.numCols = Math.max(Math.min(endCol, mapCols - 1) - this.startCol + 1, 0);
+		this.numRows = Math.max(Math.min(endRow, mapRows - 1) - this.startRow + 1, 0);
+		
+		if((long) numCols * numRows > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Graph of " + numCols + " x " + numRows + " Tiles is too large");
+		}
 	}
 	
-	private void createNodeList()
+	//Getter methods
+	public TileMap getTileMap() {return tileMap;}
+	public Layer getLayer() {return layer;}
+	public int getStartCol() {return startCol;}
+	public int getStartRow() {return startRow;}
+	public int getNumCols() {return numCols;}
+	public int getNumRows() {return numRows;}
+	public int getNumNodes() {return numCols * numRows;}
+	
+	/**
+	 * Method that obtains the index of the Node of a Tile
+	 * @param col (int) The column of the Tile
+	 * @param row (int) The row of the Tile
+	 * @return the index of the Node, or -1 if the Tile is not within the Graph
+	 */
+	public int getIndex(int col, int row)
 	{
-		//A temporary list (array) for the Nodes
-		Node[][] tempNodeList = new Node[tileMap.getNumRows()][tileMap.getNumCols()];
+		col -= startCol;
+		row -= startRow;
 		
-		//Obtain the map from the TileMap object
-		Tile [][] map = tileMap.getTileMap();
+		if(col < 0 || row < 0 || col >= numCols || row >= numRows)
+		{
+			return -1;
+		}
 		
-		//Obtain the locations (columns and rows) on the map where we need to start and end
-		int startCol = tileMap.getStartCol();
-		int endCol = tileMap.getEndCol();
-		int startRow = tileMap.getStartRow();
-		int endRow = tileMap.getEndRow();
+		return row * numCols + col;
+	}
+	
+	//Methods that obtain the column, row and value of the Tile of a Node
+	public int getCol(int index) {return startCol + index % numCols;}
+	public int getRow(int index) {return startRow + index / numCols;}
+	public int getValue(int index) {return getValue(getCol(index), getRow(index));}
+	
+	/**
+	 * Method that obtains the value of a Tile from the TileMap or Layer
+	 * @param col (int) The column of the Tile
+	 * @param row (int) The row of the Tile
+	 * @return the value
+	 */
+	private int getValue(int col, int row)
+	{
+		return (tileMap != null) ? tileMap.getValue(col, row) : layer.getValue(col, row);
+	}
+	
+	/**
+	 * Method that obtains the neighbors of a Node (left, right, up and down;
+	 * only those within the Graph)
+	 * @param index (int) The index of the Node
+	 * @param neighbors (int[]) An array (at least 4 long) to receive the indices of the neighbors
+	 * @return the number of neighbors
+	 */
+	public int getNeighbors(int index, int[] neighbors)
+	{
+		int col = index % numCols;
+		int row = index / numCols;
+		int count = 0;
+		
+		//Check for left neighbor
+		if(col > 0)
+		{
+			neighbors[count++] = index - 1;
+		}
 		
-		//Create the Nodes
-		for(int i = startRow; i <= endRow; i++)
+		//Check for right neighbor
+		if(col < numCols - 1)
 		{
-			for(int j = startCol; j <= endCol; j++)
-			{
-				//Create a Node and add it the tempNodeList
-				Node newNode = new Node(j, i, map[i][j].getValue());
-				tempNodeList[i][j] = newNode;
-			}
+			neighbors[count++] = index + 1;
 		}
 		
-		//Add (find) each Node's neighbors
-		for(int i = startRow; i <= endRow; i++)
+		//Check for up neighbor
+		if(row > 0)
 		{
-			for(int j = startCol; j <= endCol; j++)
-			{				
-				//Check for left neighbor
-				if(j - 1 >= startCol)
-				{
-					tempNodeList[i][j].addNeighbor(tempNodeList[i][j - 1]);
-				}
-				
-				//Check for right neighbor
-				if(j + 1 <= endCol)
-				{
-					tempNodeList[i][j].addNeighbor(tempNodeList[i][j + 1]);
-				}
-				
-				//Check for up neighbor
-				if(i - 1 >= startRow)
-				{
-					tempNodeList[i][j].addNeighbor(tempNodeList[i - 1][j]);
-				}
-				
-				//Check for down neighbor
-				if(i + 1 <= endRow)
-				{
-					tempNodeList[i][j].addNeighbor(tempNodeList[i + 1][j]);
-				}
-			}
+			neighbors[count++] = index - numCols;
 		}
 		
-		//Add the Nodes to nodeList
-		for(int i = startRow; i <= endRow; i++)
+		//Check for down neighbor
+		if(row < numRows - 1)
 		{
-			for(int j = startCol; j <= endCol; j++)
-			{
-				nodeList.add(tempNodeList[i][j]);
-			}
+			neighbors[count++] = index + numCols;
 		}
+		
+		return count;
 	}
 	
 	/**
@@ -100,16 +183,13 @@ public class Graph
 	 */
 	public Node findNode(int col, int row)
 	{
-		for(int i = 0; i < nodeList.size(); i++)
+		int index = getIndex(col, row);
+		
+		if(index < 0)
 		{
-			if(nodeList.get(i).getCol() == col && nodeList.get(i).getRow() == row)
-			{
-				return nodeList.get(i);
-			}
+			return null;
 		}
-		return null;
+		
+		return new Node(col, row, getValue(col, row), index);
 	}
-	
-	//Getter methods
-	public ArrayList<Node> getNodeList() {return nodeList;}
 }
@@ -0,0 +1,123 @@
+package graph;
+
+/**
+ * IntQueue class represents a Queue of ints (i.e. Node indices of a Graph)
+ * The IntQueue is a circular buffer that grows when full, so enqueue, dequeue,
+ * peek and clear take constant (amortized) time, and a cleared IntQueue can be
+ * reused without creating a new buffer
+ * @author Vachia Thoj
+ *
+ */
+public class IntQueue 
+{
+	//Represents a queue; the values are from index head onwards, wrapping around
+	private int[] queue;
+	
+	//Index of the value at the front of the IntQueue
+	private int head;
+	
+	//Number of values in queue
+	private int size;
+	
+	//Default number of values the IntQueue can hold before growing
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	/**
+	 * Constructor
+	 */
+	public IntQueue()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Constructor
+	 * @param capacity (int) Number of values the IntQueue can hold before growing
+	 */
+	public IntQueue(int capacity)
+	{
+		//Keep the capacity a power of 2, so an index wraps around with a mask
+		this.queue = new int[Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1];
+		this.head = 0;
+		this.size = 0;
+	}
+	
+	//Getter methods
+	public int getSize() {return size;}
+	public int getCapacity() {return queue.length;}
+	public boolean isEmpty() {return size == 0;}
+	
+	/**
+	 * Adds a value to the IntQueue
+	 * @param value (int) The value
+	 */
+	public void enqueue(int value)
+	{
+		if(size == queue.length)
+		{
+			grow();
+		}
+		
+		queue[(head + size) & (queue.length - 1)] = value;
+		++size;
+	}
+	
+	/**
+	 * Method that removes the value at the front of the IntQueue
+	 * @return The value, or -1 if the IntQueue is empty
+	 */
+	public int dequeue()
+	{
+		if(size == 0)
+		{
+			return -1;
+		}
+		
+		int temp = queue[head];
+		head = (head + 1) & (queue.length - 1);
+		--size;
+		
+		return temp;
+	}
+	
+	/**
+	 * Method that peeks at what is at the front of the IntQueue
+	 * @return The value, or -1 if the IntQueue is empty
+	 */
+	public int peek()
+	{
+		if(size == 0)
+		{
+			return -1;
+		}
+		
+		return queue[head];
+	}
+	
+	/**
+	 * Method that removes all values from queue
+	 * The buffer is kept for reuse
+	 */
+	public void clear()
+	{
+		head = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Method that doubles the size of the buffer, moving the values
+	 * to the start of the new buffer
+	 */
+	private void grow()
+	{
+		int[] newQueue = new int[queue.length * 2];
+		
+		//Values from head to the end of the buffer, then those that wrapped around
+		int firstPart = queue.length - head;
+		System.arraycopy(queue, head, newQueue, 0, firstPart);
+		System.arraycopy(queue, 0, newQueue, firstPart, head);
+		
+		queue = newQueue;
+		head = 0;
+	}
+}
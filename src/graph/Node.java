@@ -1,9 +1,9 @@
 package graph;
 
-import java.util.ArrayList;
-
 /**
  * Node class represents a Node data
+ * A Node is created when asked for (see Graph.findNode); a Graph
+ * does not store its Nodes
  * @author Vachia Thoj
  *
  */
@@ -13,38 +13,26 @@ public class Node
 	private int col;	//Column
 	private int row;	//Row
 	private int value;	//Integer value
-	
-	//A list of neighbors next to this Node
-	private ArrayList<Node> neighbors;
-	
-	//Flag to indicate if the Node has been visited
-	private boolean visited;
+	private int index;	//Index within the Graph
 	
 	/**
 	 * Constructor
 	 * @param col (int) A column value
 	 * @param row (int) A row value
 	 * @param value (int) An integer value
+	 * @param index (int) The Node's index within its Graph
 	 */
-	public Node(int col, int row, int value)
+	public Node(int col, int row, int value, int index)
 	{
 		this.col = col;
 		this.row = row;
 		this.value = value;
-	
-		this.neighbors = new ArrayList<Node>();
-		
-		this.visited = false;
+		this.index = index;
 	}
 	
 	//Getter methods
 	public int getCol() {return col;}
 	public int getRow() {return row;}
 	public int getValue() {return value;}
-	public ArrayList<Node> getNeightbors() {return neighbors;}
-	public boolean isVisited() {return visited;}
-	
-	//Setter methods
-	public void setVisisted(boolean b) {this.visited = b;}
-	public void addNeighbor(Node newNeighbor) {this.neighbors.add(newNeighbor);}
+	public int getIndex() {return index;}
 }
\ No newline at end of file
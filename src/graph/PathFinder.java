@@ -0,0 +1,836 @@
+package graph;
+
+import java.util.Arrays;
+
+import map.Layer;
+
+/**
+ * PathFinder class finds the shortest path between two Tiles of a Layer
+ * (i.e. the hitbox layer), where a Tile with the value 0 can be walked on and
+ * any other value is blocked
+ *
+ * A path moves left, right, up, down or diagonally; a diagonal move is only
+ * allowed when both Tiles it passes between can be walked on (no cutting
+ * corners). A straight move costs STRAIGHT_COST and a diagonal move costs
+ * DIAGONAL_COST
+ *
+ * Which Tiles can be walked on is kept as bits, row by row and column by
+ * column, so a jump along a row or column looks at 64 Tiles at a time. The
+ * bits are only read from the Layer again when setLayer is given a different
+ * Layer or version (or updateTile is called)
+ *
+ * The search uses only arrays of ints and longs, which are kept between
+ * searches (a Tile is "open" or "closed" if its mark equals the current
+ * search's generation), so nothing has to be cleared or created for each
+ * search and a PathFinder should be reused. A PathFinder does not need
+ * anything but a Layer, so it can be used without the rest of Tile Map Maker;
+ * each thread needs its own PathFinder
+ * @author Vachia Thoj
+ *
+ */
+public class PathFinder
+{
+	//The Layer being searched and its version (see setLayer)
+	private Layer layer;
+	private long version;
+	private int numCols;
+	private int numRows;
+	
+	//One bit per Tile that can be walked on; row by row (wordsPerRow longs
+	//per row) and column by column (wordsPerCol longs per column)
+	private long[] rowBits;
+	private long[] colBits;
+	private int wordsPerRow;
+	private int wordsPerCol;
+	
+	//How to search
+	private PathMode pathMode;
+	
+	//Goal of the search
+	private int goalCol;
+	private int goalRow;
+	
+	//Cost of the best path found to each Tile and the Tile it came from
+	private int[] costs;
+	private int[] parents;
+	
+	//Mark of each Tile; generation if open, generation + 1 if closed
+	private int[] marks;
+	private int generation;
+	
+	//Open Tiles as a binary heap, ordered by cost plus estimate
+	//(then by estimate; nearer the goal first)
+	private int[] heapTiles;
+	private long[] heapKeys;
+	private int heapSize;
+	
+	//Path found, from start to goal (every Tile along it)
+	private int[] path;
+	private int pathLength;
+	private int pathCost;
+	
+	//Number of Tiles closed by the last search
+	private int numExpanded;
+	
+	//Cost of a straight and of a diagonal move
+	public static final int STRAIGHT_COST = 10;
+	public static final int DIAGONAL_COST = 14;
+	
+	//Version of a Layer given without one
+	private static final long NO_VERSION = Long.MIN_VALUE;
+	
+	/**
+	 * Constructor
+	 * Searches with jump point search
+	 */
+	public PathFinder()
+	{
+		this.pathMode = PathMode.JUMP_POINT;
+		
+		this.version = NO_VERSION;
+		this.rowBits = new long[0];
+		this.colBits = new long[0];
+		
+		this.costs = new int[0];
+		this.parents = new int[0];
+		this.marks = new int[0];
+		this.generation = 0;
+		
+		this.heapTiles = new int[256];
+		this.heapKeys = new long[256];
+		this.heapSize = 0;
+		
+		this.path = new int[256];
+		this.pathLength = 0;
+		this.pathCost = 0;
+	}
+	
+	//Getter methods
+	public PathMode getPathMode() {return pathMode;}
+	public int getPathLength() {return pathLength;}
+	public int getPathCost() {return pathCost;}
+	public int getNumExpanded() {return numExpanded;}
+	public int getPathCol(int index) {return path[index] % numCols;}
+	public int getPathRow(int index) {return path[index] / numCols;}
+	
+	//Setter methods
+	public void setPathMode(PathMode pathMode) {this.pathMode = pathMode;}
+	
+	/**
+	 * Method that forgets the last path found
+	 */
+	public void clearPath()
+	{
+		pathLength = 0;
+		pathCost = 0;
+		numExpanded = 0;
+	}
+	
+	/**
+	 * Method that sets the Layer to search and reads which Tiles can be walked on
+	 * @param layer (Layer) The Layer (0 can be walked on)
+	 */
+	public void setLayer(Layer layer)
+	{
+		setLayer(layer, NO_VERSION);
+	}
+	
+	/**
+	 * Method that sets the Layer to search
+	 * Which Tiles can be walked on is only read again if the Layer or
+	 * version is not the same as last time (i.e. TileMap.getModCount())
+	 * @param layer (Layer) The Layer (0 can be walked on)
+	 * @param version (long) The number of changes made to the Layer
+	 */
+	public void setLayer(Layer layer, long version)
+	{
+		if(layer == this.layer && version == this.version && version != NO_VERSION)
+		{
+			return;
+		}
+		
+		if((long) layer.getNumCols() * layer.getNumRows() > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Layer of " + layer.getNumCols() + " x " + layer.getNumRows() + " Tiles is too large to search");
+		}
+		
+		this.layer = layer;
+		this.version = version;
+		this.numCols = layer.getNumCols();
+		this.numRows = layer.getNumRows();
+		this.wordsPerRow = (numCols + 63) >> 6;
+		this.wordsPerCol = (numRows + 63) >> 6;
+		
+		if(rowBits.length < numRows * wordsPerRow || colBits.length < numCols * wordsPerCol)
+		{
+			rowBits = new long[numRows * wordsPerRow];
+			colBits = new long[numCols * wordsPerCol];
+		}
+		else
+		{
+			Arrays.fill(rowBits, 0L);
+			Arrays.fill(colBits, 0L);
+		}
+		
+		int[] values = new int[numCols];
+		for(int i = 0; i < numRows; i++)
+		{
+			layer.readRow(i, 0, numCols - 1, values);
+			
+			for(int j = 0; j < numCols; j++)
+			{
+				if(values[j] == 0)
+				{
+					rowBits[i * wordsPerRow + (j >> 6)] |= 1L << j;
+					colBits[j * wordsPerCol + (i >> 6)] |= 1L << i;
+				}
+			}
+		}
+		
+		clearPath();
+	}
+	
+	/**
+	 * Method that reads again whether one Tile can be walked on
+	 * (after it changed, without reading the whole Layer again)
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 */
+	public void updateTile(int col, int row)
+	{
+		if(layer.getValue(col, row) == 0)
+		{
+			rowBits[row * wordsPerRow + (col >> 6)] |= 1L << col;
+			colBits[col * wordsPerCol + (row >> 6)] |= 1L << row;
+		}
+		else
+		{
+			rowBits[row * wordsPerRow + (col >> 6)] &= ~(1L << col);
+			colBits[col * wordsPerCol + (row >> 6)] &= ~(1L << row);
+		}
+	}
+	
+	/**
+	 * Method that finds the shortest path between two Tiles of the Layer
+	 * (see setLayer)
+	 * @param startCol (int) column of the starting Tile
+	 * @param startRow (int) row of the starting Tile
+	 * @param goalCol (int) column of the goal Tile
+	 * @param goalRow (int) row of the goal Tile
+	 * @return true if a path was found, otherwise false
+	 */
+	public boolean findPath(int startCol, int startRow, int goalCol, int goalRow)
+	{
+		this.goalCol = goalCol;
+		this.goalRow = goalRow;
+		
+		clearPath();
+		
+		if(layer == null || !isWalkable(startCol, startRow) || !isWalkable(goalCol, goalRow))
+		{
+			return false;
+		}
+		
+		prepare();
+		
+		int start = startRow * numCols + startCol;
+		int goal = goalRow * numCols + goalCol;
+		
+		costs[start] = 0;
+		parents[start] = -1;
+		marks[start] = generation;
+		push(start, 0);
+		
+		while(heapSize > 0)
+		{
+			int current = pop();
+			
+			//Already closed (a cheaper copy was taken earlier)
+			if(marks[current] == generation + 1)
+			{
+				continue;
+			}
+			
+			marks[current] = generation + 1;
+			++numExpanded;
+			
+			if(current == goal)
+			{
+				createPath(goal);
+				return true;
+			}
+			
+			if(pathMode == PathMode.JUMP_POINT)
+			{
+				expandJumpPoint(current);
+			}
+			else
+			{
+				expandAStar(current);
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Method that makes the arrays large enough for the Layer and starts a
+	 * new generation of marks
+	 */
+	private void prepare()
+	{
+		int numTiles = numCols * numRows;
+		
+		if(marks.length < numTiles)
+		{
+			costs = new int[numTiles];
+			parents = new int[numTiles];
+			marks = new int[numTiles];
+			generation = 0;
+		}
+		
+		//Start again from 0 before the marks run out
+		if(generation >= Integer.MAX_VALUE - 2)
+		{
+			Arrays.fill(marks, 0);
+			generation = 0;
+		}
+		
+		generation += 2;
+		heapSize = 0;
+	}
+	
+	/**
+	 * Method that checks if a Tile can be walked on
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @return true if the Tile is within the Layer and its value was 0, otherwise false
+	 */
+	private boolean isWalkable(int col, int row)
+	{
+		return col >= 0 && row >= 0 && col < numCols && row < numRows && (rowBits[row * wordsPerRow + (col >> 6)] & (1L << col)) != 0;
+	}
+	
+	/**
+	 * Method that estimates the cost from a Tile to the goal
+	 * (the cost if nothing were blocked)
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @return the estimated cost
+	 */
+	private int estimate(int col, int row)
+	{
+		return distance(col, row, goalCol, goalRow);
+	}
+	
+	/**
+	 * Method that obtains the cost between two Tiles if nothing were blocked
+	 * (as many diagonal moves as possible, then straight moves)
+	 * @param col1 (int) column of the first Tile
+	 * @param row1 (int) row of the first Tile
+	 * @param col2 (int) column of the second Tile
+	 * @param row2 (int) row of the second Tile
+	 * @return the cost
+	 */
+	private static int distance(int col1, int row1, int col2, int row2)
+	{
+		int dx = Math.abs(col1 - col2);
+		int dy = Math.abs(row1 - row2);
+		
+		return STRAIGHT_COST * Math.max(dx, dy) + (DIAGONAL_COST - STRAIGHT_COST) * Math.min(dx, dy);
+	}
+	
+	/**
+	 * Method that opens (or finds a cheaper path to) a Tile
+	 * @param from (int) The Tile the path comes from
+	 * @param to (int) The Tile to open
+	 * @param stepCost (int) The cost from one Tile to the other
+	 */
+	private void open(int from, int to, int stepCost)
+	{
+		if(marks[to] == generation + 1)
+		{
+			return;
+		}
+		
+		int cost = costs[from] + stepCost;
+		
+		if(marks[to] != generation || cost < costs[to])
+		{
+			marks[to] = generation;
+			costs[to] = cost;
+			parents[to] = from;
+			push(to, cost);
+		}
+	}
+	
+	/**
+	 * Method that opens every neighbor of a Tile that can be moved to
+	 * @param current (int) The Tile
+	 */
+	private void expandAStar(int current)
+	{
+		int col = current % numCols;
+		int row = current / numCols;
+		
+		boolean left = isWalkable(col - 1, row);
+		boolean right = isWalkable(col + 1, row);
+		boolean up = isWalkable(col, row - 1);
+		boolean down = isWalkable(col, row + 1);
+		
+		if(left)
+		{
+			open(current, current - 1, STRAIGHT_COST);
+		}
+		
+		if(right)
+		{
+			open(current, current + 1, STRAIGHT_COST);
+		}
+		
+		if(up)
+		{
+			open(current, current - numCols, STRAIGHT_COST);
+		}
+		
+		if(down)
+		{
+			open(current, current + numCols, STRAIGHT_COST);
+		}
+		
+		//Diagonal moves may not cut corners
+		if(up && left && isWalkable(col - 1, row - 1))
+		{
+			open(current, current - numCols - 1, DIAGONAL_COST);
+		}
+		
+		if(up && right && isWalkable(col + 1, row - 1))
+		{
+			open(current, current - numCols + 1, DIAGONAL_COST);
+		}
+		
+		if(down && left && isWalkable(col - 1, row + 1))
+		{
+			open(current, current + numCols - 1, DIAGONAL_COST);
+		}
+		
+		if(down && right && isWalkable(col + 1, row + 1))
+		{
+			open(current, current + numCols + 1, DIAGONAL_COST);
+		}
+	}
+	
+	/**
+	 * Method that opens the jump points reachable from a Tile
+	 * Only the directions a shortest path could continue in (given the
+	 * direction it arrived from) are searched
+	 * @param current (int) The Tile
+	 */
+	private void expandJumpPoint(int current)
+	{
+		int col = current % numCols;
+		int row = current / numCols;
+		int parent = parents[current];
+		
+		if(parent == -1)
+		{
+			//The start; every direction
+			for(int dy = -1; dy <= 1; dy++)
+			{
+				for(int dx = -1; dx <= 1; dx++)
+				{
+					if((dx != 0 || dy != 0) && canMove(col, row, dx, dy))
+					{
+						jumpFrom(current, col, row, dx, dy);
+					}
+				}
+			}
+			
+			return;
+		}
+		
+		int dx = Integer.signum(col - parent % numCols);
+		int dy = Integer.signum(row - parent / numCols);
+		
+		if(dx != 0 && dy != 0)
+		{
+			//Diagonal; keep going, or go either of the straight ways
+			boolean horizontal = isWalkable(col + dx, row);
+			boolean vertical = isWalkable(col, row + dy);
+			
+			if(vertical)
+			{
+				jumpFrom(current, col, row, 0, dy);
+			}
+			
+			if(horizontal)
+			{
+				jumpFrom(current, col, row, dx, 0);
+			}
+			
+			if(horizontal && vertical)
+			{
+				jumpFrom(current, col, row, dx, dy);
+			}
+		}
+		else if(dx != 0)
+		{
+			//Horizontal; keep going, or turn up or down (straight or diagonal)
+			boolean next = isWalkable(col + dx, row);
+			boolean up = isWalkable(col, row - 1);
+			boolean down = isWalkable(col, row + 1);
+			
+			if(next)
+			{
+				jumpFrom(current, col, row, dx, 0);
+				
+				if(up)
+				{
+					jumpFrom(current, col, row, dx, -1);
+				}
+				
+				if(down)
+				{
+					jumpFrom(current, col, row, dx, 1);
+				}
+			}
+			
+			if(up)
+			{
+				jumpFrom(current, col, row, 0, -1);
+			}
+			
+			if(down)
+			{
+				jumpFrom(current, col, row, 0, 1);
+			}
+		}
+		else
+		{
+			//Vertical; keep going, or turn left or right (straight or diagonal)
+			boolean next = isWalkable(col, row + dy);
+			boolean left = isWalkable(col - 1, row);
+			boolean right = isWalkable(col + 1, row);
+			
+			if(next)
+			{
+				jumpFrom(current, col, row, 0, dy);
+				
+				if(left)
+				{
+					jumpFrom(current, col, row, -1, dy);
+				}
+				
+				if(right)
+				{
+					jumpFrom(current, col, row, 1, dy);
+				}
+			}
+			
+			if(left)
+			{
+				jumpFrom(current, col, row, -1, 0);
+			}
+			
+			if(right)
+			{
+				jumpFrom(current, col, row, 1, 0);
+			}
+		}
+	}
+	
+	/**
+	 * Method that checks if a move of one Tile can be made
+	 * @param col (int) column of the Tile moved from
+	 * @param row (int) row of the Tile moved from
+	 * @param dx (int) -1, 0 or 1
+	 * @param dy (int) -1, 0 or 1
+	 * @return true if the move can be made, otherwise false
+	 */
+	private boolean canMove(int col, int row, int dx, int dy)
+	{
+		if(!isWalkable(col + dx, row + dy))
+		{
+			return false;
+		}
+		
+		return dx == 0 || dy == 0 || (isWalkable(col + dx, row) && isWalkable(col, row + dy));
+	}
+	
+	/**
+	 * Method that jumps from a Tile in a direction and opens the jump point found
+	 * @param current (int) The Tile
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @param dx (int) -1, 0 or 1
+	 * @param dy (int) -1, 0 or 1
+	 */
+	private void jumpFrom(int current, int col, int row, int dx, int dy)
+	{
+		int jumpPoint = jump(col + dx, row + dy, dx, dy);
+		
+		if(jumpPoint != -1)
+		{
+			open(current, jumpPoint, distance(col, row, jumpPoint % numCols, jumpPoint / numCols));
+		}
+	}
+	
+	/**
+	 * Method that moves in a direction until a Tile where the path may
+	 * have to turn (a jump point), the goal, or a blocked Tile
+	 * @param col (int) column of the first Tile to move to
+	 * @param row (int) row of the first Tile to move to
+	 * @param dx (int) -1, 0 or 1
+	 * @param dy (int) -1, 0 or 1
+	 * @return the jump point, or -1 if there is none in the direction
+	 */
+	private int jump(int col, int row, int dx, int dy)
+	{
+		if(dy == 0)
+		{
+			if(col < 0 || col >= numCols)
+			{
+				return -1;
+			}
+			
+			int stop = scan(rowBits, wordsPerRow, numRows, row, col, dx, row == goalRow ? goalCol : -1);
+			
+			return stop == -1 ? -1 : row * numCols + stop;
+		}
+		
+		if(dx == 0)
+		{
+			if(row < 0 || row >= numRows)
+			{
+				return -1;
+			}
+			
+			int stop = scan(colBits, wordsPerCol, numCols, col, row, dy, col == goalCol ? goalRow : -1);
+			
+			return stop == -1 ? -1 : stop * numCols + col;
+		}
+		
+		//Diagonal
+		while(true)
+		{
+			if(!isWalkable(col, row))
+			{
+				return -1;
+			}
+			
+			if(col == goalCol && row == goalRow)
+			{
+				return row * numCols + col;
+			}
+			
+			//A jump point if a straight jump from here finds one
+			if(jump(col + dx, row, dx, 0) != -1 || jump(col, row + dy, 0, dy) != -1)
+			{
+				return row * numCols + col;
+			}
+			
+			//The next diagonal move may not cut a corner
+			if(!isWalkable(col + dx, row) || !isWalkable(col, row + dy))
+			{
+				return -1;
+			}
+			
+			col += dx;
+			row += dy;
+		}
+	}
+	
+	/**
+	 * Method that moves along a row (or column) until a jump point, the goal
+	 * or a blocked Tile, 64 Tiles at a time
+	 * A Tile is a jump point if a Tile next to it (in the line on either side)
+	 * can be walked on but the Tile one step back from that one can not;
+	 * that Tile can then only be reached through the jump point
+	 * @param bits (long[]) rowBits (to move along a row) or colBits (to move along a column)
+	 * @param wordsPerLine (int) Number of longs per line
+	 * @param numLines (int) Number of lines
+	 * @param line (int) The row (or column) to move along
+	 * @param position (int) The first Tile to move to within the line
+	 * @param direction (int) 1 or -1
+	 * @param goalPosition (int) The goal within the line, or -1 if the goal is not on the line
+	 * @return the position of the jump point or goal, or -1 if a blocked Tile came first
+	 */
+	private static int scan(long[] bits, int wordsPerLine, int numLines, int line, int position, int direction, int goalPosition)
+	{
+		int base = line * wordsPerLine;
+		boolean hasBefore = line > 0;
+		boolean hasAfter = line < numLines - 1;
+		
+		int word = position >> 6;
+		long mask = direction > 0 ? -1L << position : -1L >>> (63 - (position & 63));
+		
+		while(word >= 0 && word < wordsPerLine)
+		{
+			long current = bits[base + word];
+			long before = hasBefore ? bits[base - wordsPerLine + word] : 0;
+			long after = hasAfter ? bits[base + wordsPerLine + word] : 0;
+			
+			//Bits of the Tiles one step back along the lines on either side
+			long beforeBack;
+			long afterBack;
+			if(direction > 0)
+			{
+				beforeBack = (before << 1) | (hasBefore && word > 0 ? bits[base - wordsPerLine + word - 1] >>> 63 : 0);
+				afterBack = (after << 1) | (hasAfter && word > 0 ? bits[base + wordsPerLine + word - 1] >>> 63 : 0);
+			}
+			else
+			{
+				beforeBack = (before >>> 1) | (hasBefore && word < wordsPerLine - 1 ? bits[base - wordsPerLine + word + 1] << 63 : 0);
+				afterBack = (after >>> 1) | (hasAfter && word < wordsPerLine - 1 ? bits[base + wordsPerLine + word + 1] << 63 : 0);
+			}
+			
+			long stops = ~current | (before & ~beforeBack) | (after & ~afterBack);
+			
+			if(goalPosition >= 0 && goalPosition >> 6 == word)
+			{
+				stops |= 1L << goalPosition;
+			}
+			
+			stops &= mask;
+			
+			if(stops != 0)
+			{
+				int bit = direction > 0 ? Long.numberOfTrailingZeros(stops) : 63 - Long.numberOfLeadingZeros(stops);
+				
+				return (current & (1L << bit)) != 0 ? (word << 6) + bit : -1;
+			}
+			
+			word += direction;
+			mask = -1L;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Method that creates the path from the start to the goal,
+	 * filling in the Tiles between jump points
+	 * @param goal (int) The goal Tile
+	 */
+	private void createPath(int goal)
+	{
+		pathCost = costs[goal];
+		
+		//Count the Tiles along the path
+		int count = 1;
+		for(int tile = goal; parents[tile] != -1; tile = parents[tile])
+		{
+			int parent = parents[tile];
+			count += Math.max(Math.abs(tile % numCols - parent % numCols), Math.abs(tile / numCols - parent / numCols));
+		}
+		
+		if(path.length < count)
+		{
+			path = new int[Math.max(count, path.length * 2)];
+		}
+		
+		//Fill the path in from the goal back to the start
+		int n = count - 1;
+		path[n] = goal;
+		for(int tile = goal; parents[tile] != -1; tile = parents[tile])
+		{
+			int parent = parents[tile];
+			int step = Integer.signum(parent / numCols - tile / numCols) * numCols + Integer.signum(parent % numCols - tile % numCols);
+			
+			for(int t = tile + step; n > 0; t += step)
+			{
+				path[--n] = t;
+				
+				if(t == parent)
+				{
+					break;
+				}
+			}
+		}
+		
+		pathLength = count;
+	}
+	
+	/**
+	 * Method that adds an open Tile to the heap
+	 * @param tile (int) The Tile
+	 * @param cost (int) The cost of the best path found to the Tile
+	 */
+	private void push(int tile, int cost)
+	{
+		if(heapSize == heapTiles.length)
+		{
+			heapTiles = Arrays.copyOf(heapTiles, heapSize * 2);
+			heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+		}
+		
+		int estimate = estimate(tile % numCols, tile / numCols);
+		long key = ((long) (cost + estimate) << 32) | estimate;
+		
+		//Move up until the parent's key is not larger
+		int i = heapSize++;
+		while(i > 0)
+		{
+			int parent = (i - 1) >> 1;
+			
+			if(heapKeys[parent] <= key)
+			{
+				break;
+			}
+			
+			heapTiles[i] = heapTiles[parent];
+			heapKeys[i] = heapKeys[parent];
+			i = parent;
+		}
+		
+		heapTiles[i] = tile;
+		heapKeys[i] = key;
+	}
+	
+	/**
+	 * Method that removes the Tile with the smallest key from the heap
+	 * @return the Tile
+	 */
+	private int pop()
+	{
+		int top = heapTiles[0];
+		
+		--heapSize;
+		int tile = heapTiles[heapSize];
+		long key = heapKeys[heapSize];
+		
+		//Move the last Tile down from the top until neither child's key is smaller
+		int i = 0;
+		while(true)
+		{
+			int child = 2 * i + 1;
+			
+			if(child >= heapSize)
+			{
+				break;
+			}
+			
+			if(child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child])
+			{
+				++child;
+			}
+			
+			if(heapKeys[child] >= key)
+			{
+				break;
+			}
+			
+			heapTiles[i] = heapTiles[child];
+			heapKeys[i] = heapKeys[child];
+			i = child;
+		}
+		
+		if(heapSize > 0)
+		{
+			heapTiles[i] = tile;
+			heapKeys[i] = key;
+		}
+		
+		return top;
+	}
+}
@@ -0,0 +1,15 @@
+package graph;
+
+/**
+ * Enum to define the different ways a PathFinder can search
+ * A_STAR looks at every neighbor of every Tile it reaches; JUMP_POINT
+ * (jump point search) skips along straight and diagonal lines, only
+ * stopping at Tiles where the path may have to turn
+ * @author Vachia Thoj
+ *
+ */
+public enum PathMode 
+{
+	A_STAR,
+	JUMP_POINT;
+}
@@ -1,32 +1,51 @@
 package graph;
 
-import java.util.ArrayList;
-
 /**
  * Queue class represents a Queue data structure
+ * The Queue is a circular buffer that grows when full, so enqueue, dequeue,
+ * peek and clear take constant (amortized) time, and a cleared Queue can be
+ * reused without creating a new buffer (see IntQueue for a Queue of ints)
  * @author Vachia Thoj
  *
+ * @param <T> The type of the elements in the Queue
  */
-public class Queue 
+public class Queue<T> 
 {
-	//Represents a queue
-	private ArrayList<Node> queue;
+	//Represents a queue; the elements are from index head onwards, wrapping around
+	private Object[] queue;
+	
+	//Index of the element at the front of the Queue
+	private int head;
 	
-	//Number of Nodes in queue
+	//Number of elements in queue
 	private int size;
 	
+	//Default number of elements the Queue can hold before growing
+	private static final int DEFAULT_CAPACITY = 16;
+	
 	/**
 	 * Constructor
 	 */
 	public Queue()
 	{
-		this.queue = new ArrayList<Node>();
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Constructor
+	 * @param capacity (int) Number of elements the Queue can hold before growing
+	 */
+	public Queue(int capacity)
+	{
+		//Keep the capacity a power of 2, so an index wraps around with a mask
+		this.queue = new Object[Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1];
+		this.head = 0;
 		this.size = 0;
 	}
 	
 	//Getter methods
-	public ArrayList<Node> getQueue() {return queue;}
 	public int getSize() {return size;}
+	public int getCapacity() {return queue.length;}
 	public boolean isEmpty()
 	{
 		if(size == 0)
@@ -38,28 +57,35 @@ public class Queue
 	}
 	
 	/**
-	 * Adds a node to the Queue
-	 * @param node A Node object
+	 * Adds an element to the Queue
+	 * @param element An element
 	 */
-	public void enqueue(Node node)
+	public void enqueue(T element)
 	{
-		queue.add(node);
+		if(size == queue.length)
+		{
+			grow();
+		}
+		
+		queue[(head + size) & (queue.length - 1)] = element;
 		++size;
 	}
 	
 	/**
-	 * Method that removes the Node at the front of the Queue
-	 * @return A Node object
+	 * Method that removes the element at the front of the Queue
+	 * @return The element, or null if the Queue is empty
 	 */
-	public Node dequeue()
+	@SuppressWarnings("unchecked")
+	public T dequeue()
 	{
 		if(size == 0)
 		{
 			return null;
 		}
 		
-		Node temp = queue.get(0);
-		queue.remove(0);
+		T temp = (T) queue[head];
+		queue[head] = null;
+		head = (head + 1) & (queue.length - 1);
 		--size;
 		
 		return temp;
@@ -67,24 +93,49 @@ public class Queue
 	
 	/**
 	 * Method that peeks at what is at the front of the Queue
-	 * @return A Node object
+	 * @return The element, or null if the Queue is empty
 	 */
-	public Node peek()
+	@SuppressWarnings("unchecked")
+	public T peek()
 	{
 		if(size == 0)
 		{
 			return null;
 		}
 		
-		return queue.get(0);
+		return (T) queue[head];
 	}
 	
 	/**
-	 * Method that removes all Nodes from queue
+	 * Method that removes all elements from queue
+	 * The buffer is kept for reuse
 	 */
 	public void clear()
 	{
-		queue.clear();
+		//Let go of the elements (each one was enqueued, so this is constant amortized time)
+		for(int i = 0; i < size; i++)
+		{
+			queue[(head + i) & (queue.length - 1)] = null;
+		}
+		
+		head = 0;
 		size = 0;
 	}
+	
+	/**
+	 * Method that doubles the size of the buffer, moving the elements
+	 * to the start of the new buffer
+	 */
+	private void grow()
+	{
+		Object[] newQueue = new Object[queue.length * 2];
+		
+		//Elements from head to the end of the buffer, then those that wrapped around
+		int firstPart = queue.length - head;
+		System.arraycopy(queue, head, newQueue, 0, firstPart);
+		System.arraycopy(queue, 0, newQueue, firstPart, head);
+		
+		queue = newQueue;
+		head = 0;
+	}
 }
\ No newline at end of file
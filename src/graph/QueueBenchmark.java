@@ -0,0 +1,186 @@
+package graph;
+
+import java.util.ArrayList;
+
+/**
+ * QueueBenchmark class compares the speed of the Queues
+ * (run it on its own; it is not part of Tile Map Maker)
+ * 
+ * For each number of elements, every Queue has that many elements enqueued
+ * and then dequeued, the way a breadth first search uses it. The Queue that
+ * used an ArrayList (kept below as ArrayListQueue) takes time proportional
+ * to the square of the number of elements, so it is only run up to 10^5
+ * elements unless the argument "all" is given
+ * @author Vachia Thoj
+ *
+ */
+public class QueueBenchmark 
+{
+	//Number of times each measurement is repeated; the fastest is kept
+	private static final int ROUNDS = 5;
+	
+	//Largest number of elements to run ArrayListQueue with (without "all")
+	private static final int MAX_ARRAY_LIST_ELEMENTS = 100000;
+	
+	public static void main(String[] args)
+	{
+		boolean all = args.length > 0 && args[0].equals("all");
+		
+		System.out.println("elements   ArrayListQueue (ms)   Queue (ms)   IntQueue (ms)");
+		
+		for(int n = 1000; n <= 1000000; n *= 10)
+		{
+			Integer[] elements = new Integer[n];
+			for(int i = 0; i < n; i++)
+			{
+				elements[i] = i;
+			}
+			
+			String arrayListTime = "skipped";
+			if(all || n <= MAX_ARRAY_LIST_ELEMENTS)
+			{
+				arrayListTime = String.format("%.3f", timeArrayListQueue(elements) / 1e6);
+			}
+			
+			System.out.println(String.format(
+					"%-10d %-21s %-12.3f %.3f",
+					n,
+					arrayListTime,
+					timeQueue(elements) / 1e6,
+					timeIntQueue(n) / 1e6
+			));
+		}
+	}
+	
+	/**
+	 * Method that times ArrayListQueue
+	 * @param elements (Integer[]) The elements to enqueue
+	 * @return the fastest time (nanoseconds)
+	 */
+	private static long timeArrayListQueue(Integer[] elements)
+	{
+		long best = Long.MAX_VALUE;
+		long check = 0;
+		
+		for(int round = 0; round < ROUNDS; round++)
+		{
+			long start = System.nanoTime();
+			
+			ArrayListQueue queue = new ArrayListQueue();
+			for(int i = 0; i < elements.length; i++)
+			{
+				queue.enqueue(elements[i]);
+			}
+			while(!queue.isEmpty())
+			{
+				check += queue.dequeue();
+			}
+			
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		
+		verify(check, elements.length);
+		
+		return best;
+	}
+	
+	/**
+	 * Method that times Queue (reusing one Queue, as a search would)
+	 * @param elements (Integer[]) The elements to enqueue
+	 * @return the fastest time (nanoseconds)
+	 */
+	private static long timeQueue(Integer[] elements)
+	{
+		long best = Long.MAX_VALUE;
+		long check = 0;
+		Queue<Integer> queue = new Queue<Integer>();
+		
+		for(int round = 0; round < ROUNDS; round++)
+		{
+			long start = System.nanoTime();
+			
+			queue.clear();
+			for(int i = 0; i < elements.length; i++)
+			{
+				queue.enqueue(elements[i]);
+			}
+			while(!queue.isEmpty())
+			{
+				check += queue.dequeue();
+			}
+			
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		
+		verify(check, elements.length);
+		
+		return best;
+	}
+	
+	/**
+	 * Method that times IntQueue (reusing one IntQueue, as a search would)
+	 * @param n (int) The number of values to enqueue
+	 * @return the fastest time (nanoseconds)
+	 */
+	private static long timeIntQueue(int n)
+	{
+		long best = Long.MAX_VALUE;
+		long check = 0;
+		IntQueue queue = new IntQueue();
+		
+		for(int round = 0; round < ROUNDS; round++)
+		{
+			long start = System.nanoTime();
+			
+			queue.clear();
+			for(int i = 0; i < n; i++)
+			{
+				queue.enqueue(i);
+			}
+			while(!queue.isEmpty())
+			{
+				check += queue.dequeue();
+			}
+			
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		
+		verify(check, n);
+		
+		return best;
+	}
+	
+	/**
+	 * Method that checks every element came out of a Queue
+	 * (and keeps the work from being optimized away)
+	 * @param check (long) The sum of the dequeued elements over every round
+	 * @param n (int) The number of elements
+	 */
+	private static void verify(long check, int n)
+	{
+		if(check != (long) ROUNDS * n * (n - 1) / 2)
+		{
+			System.out.println("FAILED to DEQUEUE every element");
+		}
+	}
+	
+	/**
+	 * The Queue before it became a circular buffer (an ArrayList that
+	 * removes its first element on every dequeue)
+	 */
+	private static class ArrayListQueue
+	{
+		private ArrayList<Integer> queue = new ArrayList<Integer>();
+		
+		public boolean isEmpty() {return queue.isEmpty();}
+		public void enqueue(Integer element) {queue.add(element);}
+		
+		public Integer dequeue()
+		{
+			Integer temp = queue.get(0);
+			queue.remove(0);
+			
+			return temp;
+		}
+	}
+}
@@ -0,0 +1,319 @@
+package graph;
+
+import java.util.Arrays;
+
+import map.Layer;
+import map.LayerType;
+
+/**
+ * Reachability class finds every Tile of a Layer (i.e. the hitbox layer) that
+ * can be walked to from a set of starting Tiles, where a Tile with the value 0
+ * can be walked on and any other value is blocked
+ *
+ * Which Tiles can be walked on and which have been reached are kept as bits,
+ * row by row. The search takes a whole run of Tiles along a row at once and
+ * looks for more runs in the rows above and below 64 Tiles at a time, so it
+ * takes time in proportion to the number of runs rather than Tiles. Moving
+ * diagonally (without cutting corners) reaches the same Tiles as moving left,
+ * right, up and down, so only those moves are searched
+ * @author Vachia Thoj
+ *
+ */
+public class Reachability
+{
+	//Largest number of Tiles that can be searched (32 MB for each set of bits)
+	public static final int MAX_TILES = 1 << 28;
+	
+	//Number of columns and rows in the Layer
+	private int numCols;
+	private int numRows;
+	
+	//One bit per Tile (wordsPerRow longs per row); set if the Tile can be
+	//walked on, and set if the Tile has been reached
+	private long[] walkable;
+	private long[] reached;
+	private int wordsPerRow;
+	
+	//Runs to search from (a Tile of each)
+	private IntQueue queue;
+	
+	//Number of Tiles reached
+	private int numReached;
+	
+	/**
+	 * Constructor
+	 */
+	public Reachability()
+	{
+		this.walkable = new long[0];
+		this.reached = new long[0];
+		this.queue = new IntQueue();
+		this.numReached = 0;
+	}
+	
+	//Getter methods
+	public int getNumCols() {return numCols;}
+	public int getNumRows() {return numRows;}
+	public int getNumReached() {return numReached;}
+	
+	/**
+	 * Method that checks if a Layer can be searched
+	 * (Layers streamed from disk, or with more than MAX_TILES Tiles, cannot)
+	 * @param layer (Layer) The Layer
+	 * @return true if the Layer can be searched, otherwise false
+	 */
+	public static boolean canSearch(Layer layer)
+	{
+		return layer.getLayerType() != LayerType.STREAMING && (long) layer.getNumCols() * layer.getNumRows() <= MAX_TILES;
+	}
+	
+	/**
+	 * Method that reads which Tiles of a Layer can be walked on
+	 * (and forgets the Tiles reached)
+	 * @param layer (Layer) The Layer (0 can be walked on)
+	 */
+	public void setLayer(Layer layer)
+	{
+		if(!canSearch(layer))
+		{
+			throw new IllegalArgumentException("Layer of " + layer.getNumCols() + " x " + layer.getNumRows() + " Tiles is too large to search");
+		}
+		
+		numCols = layer.getNumCols();
+		numRows = layer.getNumRows();
+		wordsPerRow = (numCols + 63) >> 6;
+		
+		if(walkable.length < numRows * wordsPerRow)
+		{
+			walkable = new long[numRows * wordsPerRow];
+			reached = new long[numRows * wordsPerRow];
+		}
+		else
+		{
+			Arrays.fill(walkable, 0L);
+		}
+		
+		int[] values = new int[numCols];
+		for(int i = 0; i < numRows; i++)
+		{
+			layer.readRow(i, 0, numCols - 1, values);
+			
+			for(int j = 0; j < numCols; j++)
+			{
+				if(values[j] == 0)
+				{
+					walkable[i * wordsPerRow + (j >> 6)] |= 1L << j;
+				}
+			}
+		}
+		
+		clearReached();
+	}
+	
+	/**
+	 * Method that forgets the Tiles reached
+	 */
+	public void clearReached()
+	{
+		Arrays.fill(reached, 0L);
+		numReached = 0;
+	}
+	
+	/**
+	 * Method that checks if a Tile has been reached
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @return true if the Tile has been reached, otherwise false
+	 */
+	public boolean isReached(int col, int row)
+	{
+		if(col < 0 || row < 0 || col >= numCols || row >= numRows)
+		{
+			return false;
+		}
+		
+		return (reached[row * wordsPerRow + (col >> 6)] & (1L << col)) != 0;
+	}
+	
+	/**
+	 * Method that checks if a Tile, or a Tile next to it (left, right, up or
+	 * down), has been reached; i.e. something on a blocked Tile can still be
+	 * reached from beside it
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @return true if the Tile or a Tile next to it has been reached, otherwise false
+	 */
+	public boolean isNextToReached(int col, int row)
+	{
+		return isReached(col, row) || isReached(col - 1, row) || isReached(col + 1, row) ||
+				isReached(col, row - 1) || isReached(col, row + 1);
+	}
+	
+	/**
+	 * Method that reaches every Tile that can be walked to from a Tile
+	 * (Tiles already reached stay reached, so it can be called for each
+	 * starting Tile in turn)
+	 * @param col (int) column of the starting Tile
+	 * @param row (int) row of the starting Tile
+	 * @return the number of Tiles reached so far
+	 */
+	public int reachFrom(int col, int row)
+	{
+		if(col < 0 || row < 0 || col >= numCols || row >= numRows)
+		{
+			return numReached;
+		}
+		
+		queue.clear();
+		queue.enqueue(row * numCols + col);
+		
+		while(!queue.isEmpty())
+		{
+			int tile = queue.dequeue();
+			int seedCol = tile % numCols;
+			int seedRow = tile / numCols;
+			
+			if(!isBitSet(walkable, seedRow, seedCol) || isBitSet(reached, seedRow, seedCol))
+			{
+				continue;
+			}
+			
+			//The run of Tiles that can be walked on containing the seed
+			int start = findRunEnd(seedRow, seedCol, -1);
+			int end = findRunEnd(seedRow, seedCol, 1);
+			
+			setBits(reached, seedRow, start, end);
+			numReached += end - start + 1;
+			
+			//Runs in the rows above and below that touch this run
+			if(seedRow > 0)
+			{
+				queueRuns(seedRow - 1, start, end);
+			}
+			
+			if(seedRow < numRows - 1)
+			{
+				queueRuns(seedRow + 1, start, end);
+			}
+		}
+		
+		return numReached;
+	}
+	
+	/**
+	 * Method that checks if the bit of a Tile is set
+	 * @param bits (long[]) walkable or reached
+	 * @param row (int) row of the Tile
+	 * @param col (int) column of the Tile
+	 * @return true if the bit is set, otherwise false
+	 */
+	private boolean isBitSet(long[] bits, int row, int col)
+	{
+		return (bits[row * wordsPerRow + (col >> 6)] & (1L << col)) != 0;
+	}
+	
+	/**
+	 * Method that finds the last Tile that can be walked on, moving along a
+	 * row from a Tile that can be walked on
+	 * @param row (int) The row
+	 * @param col (int) The column to start from
+	 * @param direction (int) 1 (right) or -1 (left)
+	 * @return the column of the last Tile
+	 */
+	private int findRunEnd(int row, int col, int direction)
+	{
+		int base = row * wordsPerRow;
+		int word = col >> 6;
+		
+		//Blocked Tiles from col onwards (in the direction)
+		long blocked = ~walkable[base + word] & (direction > 0 ? -1L << col : -1L >>> (63 - (col & 63)));
+		
+		while(blocked == 0)
+		{
+			word += direction;
+			
+			if(word < 0 || word >= wordsPerRow)
+			{
+				//Reached the edge of the Layer
+				return direction > 0 ? numCols - 1 : 0;
+			}
+			
+			blocked = ~walkable[base + word];
+		}
+		
+		if(direction > 0)
+		{
+			return Math.min((word << 6) + Long.numberOfTrailingZeros(blocked) - 1, numCols - 1);
+		}
+		
+		return (word << 6) + 63 - Long.numberOfLeadingZeros(blocked) + 1;
+	}
+	
+	/**
+	 * Method that sets the bits of a run of Tiles, a whole word at a time
+	 * @param bits (long[]) The bits
+	 * @param row (int) The row
+	 * @param start (int) The first column
+	 * @param end (int) The last column (inclusive)
+	 */
+	private void setBits(long[] bits, int row, int start, int end)
+	{
+		int base = row * wordsPerRow;
+		int firstWord = start >> 6;
+		int lastWord = end >> 6;
+		long firstMask = -1L << start;
+		long lastMask = -1L >>> (63 - (end & 63));
+		
+		if(firstWord == lastWord)
+		{
+			bits[base + firstWord] |= firstMask & lastMask;
+			return;
+		}
+		
+		bits[base + firstWord] |= firstMask;
+		for(int i = firstWord + 1; i < lastWord; i++)
+		{
+			bits[base + i] = -1L;
+		}
+		bits[base + lastWord] |= lastMask;
+	}
+	
+	/**
+	 * Method that queues one Tile of each run of Tiles that can be walked on
+	 * but has not been reached, within part of a row
+	 * @param row (int) The row
+	 * @param start (int) The first column
+	 * @param end (int) The last column (inclusive)
+	 */
+	private void queueRuns(int row, int start, int end)
+	{
+		int base = row * wordsPerRow;
+		
+		for(int word = start >> 6; word <= end >> 6; word++)
+		{
+			long candidates = walkable[base + word] & ~reached[base + word];
+			
+			if(word == start >> 6)
+			{
+				candidates &= -1L << start;
+			}
+			
+			if(word == end >> 6)
+			{
+				candidates &= -1L >>> (63 - (end & 63));
+			}
+			
+			//The first Tile of each run within the word
+			//(a run carrying on into the next word is queued again; the
+			//second one is skipped once the run has been reached)
+			long firsts = candidates & ~(candidates << 1);
+			
+			while(firsts != 0)
+			{
+				int bit = Long.numberOfTrailingZeros(firsts);
+				queue.enqueue(row * numCols + (word << 6) + bit);
+				firsts &= firsts - 1;
+			}
+		}
+	}
+}
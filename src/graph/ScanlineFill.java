@@ -0,0 +1,436 @@
+package graph;
+
+import java.util.Arrays;
+
+import map.Layer;
+
+/**
+ * ScanlineFill class finds the Tiles a "fill" should change
+ * 
+ * Starting from one Tile, it finds every Tile connected to it (left, right,
+ * up or down) that has the same value, as horizontal spans (a row and a first
+ * and last column). The values are read straight from a Layer; nothing is
+ * changed. The stack, the visited bitmap and the list of spans are kept
+ * between fills, so a ScanlineFill should be reused
+ * 
+ * A fill can be limited to a number of Tiles and an amount of time; a fill
+ * that reaches either limit stops early with the spans found so far
+ * 
+ * A fill can also be found a little at a time (i.e. a few milliseconds each
+ * frame): begin starts it and each call to resume carries on from where the
+ * last one stopped, as long as the Layer does not change in between
+ * @author Vachia Thoj
+ */
+public class ScanlineFill
+{
+	//Stack of Tiles to start spans from (column and row of each, and the
+	//row, first column and last column of the span that found it)
+	private int[] stack;
+	private int stackSize;
+	
+	//One bit per Tile within the bounds; set once the Tile is part of a span
+	private long[] visited;
+	
+	//Spans found (row, first column and last column of each)
+	private int[] spans;
+	private int numSpans;
+	
+	//Number of Tiles within the spans
+	private int numTiles;
+	
+	//Reusable array for the values of part of a row
+	private int[] rowValues;
+	
+	//Bounds the fill may not leave
+	private int left;
+	private int top;
+	private int right;
+	private int bottom;
+	private int boundsWidth;
+	
+	//Limits of a fill; the maximum number of Tiles and the time (nanoseconds)
+	private int maxTiles;
+	private long timeBudget;
+	
+	//Whether the last fill stopped at a limit
+	private boolean truncated;
+	
+	//Whether the last fill would have continued past its bounds
+	private boolean clipped;
+	
+	//Layer and value of the fill being found
+	private Layer layer;
+	private int value;
+	
+	//Number of ints on the stack for each seed
+	private static final int SEED_SIZE = 5;
+	
+	//Number of Tiles looked at between checks of the time
+	private static final int TILES_PER_TIME_CHECK = 4096;
+	
+	/**
+	 * Constructor
+	 */
+	public ScanlineFill()
+	{
+		this.stack = new int[SEED_SIZE * 32];
+		this.stackSize = 0;
+		this.visited = new long[0];
+		this.spans = new int[96];
+		this.numSpans = 0;
+		this.numTiles = 0;
+		this.rowValues = new int[Layer.CHUNK_SIZE];
+		this.maxTiles = Integer.MAX_VALUE;
+		this.timeBudget = Long.MAX_VALUE;
+	}
+	
+	//Getter methods
+	public int getNumSpans() {return numSpans;}
+	public int getNumTiles() {return numTiles;}
+	public boolean isTruncated() {return truncated;}
+	public boolean isClipped() {return clipped;}
+	public boolean isFinished() {return stackSize == 0 || truncated;}
+	public int getSpanRow(int index) {return spans[index * 3];}
+	public int getSpanStartCol(int index) {return spans[index * 3 + 1];}
+	public int getSpanEndCol(int index) {return spans[index * 3 + 2];}
+	
+	//Setter methods
+	public void setMaxTiles(int maxTiles) {this.maxTiles = maxTiles;}
+	public void setTimeBudget(long timeBudget) {this.timeBudget = timeBudget;}
+	
+	/**
+	 * Method that finds every Tile connected to a Tile that has the same value
+	 * @param layer (Layer) The Layer to read the values from
+	 * @param col (int) column of the starting Tile
+	 * @param row (int) row of the starting Tile
+	 * @param left (int) The first column the fill may reach
+	 * @param top (int) The first row the fill may reach
+	 * @param right (int) The last column the fill may reach (inclusive)
+	 * @param bottom (int) The last row the fill may reach (inclusive)
+	 * @return the number of spans found
+	 */
+	public int findSpans(Layer layer, int col, int row, int left, int top, int right, int bottom)
+	{
+		if(!begin(layer, col, row, left, top, right, bottom))
+		{
+			return 0;
+		}
+		
+		if(!resume(timeBudget))
+		{
+			truncated = true;
+		}
+		
+		return numSpans;
+	}
+	
+	/**
+	 * Method that starts finding every Tile connected to a Tile that has the
+	 * same value; no spans are found until resume is called
+	 * @param layer (Layer) The Layer to read the values from
+	 * @param col (int) column of the starting Tile
+	 * @param row (int) row of the starting Tile
+	 * @param left (int) The first column the fill may reach
+	 * @param top (int) The first row the fill may reach
+	 * @param right (int) The last column the fill may reach (inclusive)
+	 * @param bottom (int) The last row the fill may reach (inclusive)
+	 * @return true if the fill was started, false if the Tile is outside the bounds
+	 */
+	public boolean begin(Layer layer, int col, int row, int left, int top, int right, int bottom)
+	{
+		this.layer = layer;
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+		this.boundsWidth = right - left + 1;
+		
+		stackSize = 0;
+		numSpans = 0;
+		numTiles = 0;
+		truncated = false;
+		clipped = false;
+		
+		if(col < left || col > right || row < top || row > bottom)
+		{
+			return false;
+		}
+		
+		clearVisited((long) boundsWidth * (bottom - top + 1));
+		
+		if(rowValues.length < boundsWidth)
+		{
+			rowValues = new int[boundsWidth];
+		}
+		
+		value = layer.getValue(col, row);
+		push(col, row, row, col, col - 1);
+		
+		return true;
+	}
+	
+	/**
+	 * Method that carries on finding the spans of the fill started by begin
+	 * It stops once every span has been found, once maxTiles Tiles have been
+	 * found (isTruncated) or once it has taken timeBudget; a later call
+	 * carries on from there
+	 * @param timeBudget (long) The time it may take (nanoseconds)
+	 * @return true if the fill is finished, false if it ran out of time
+	 */
+	public boolean resume(long timeBudget)
+	{
+		long startTime = System.nanoTime();
+		int tilesSinceTimeCheck = 0;
+		
+		while(stackSize > 0)
+		{
+			//Stop at the limits
+			if(numTiles >= maxTiles)
+			{
+				truncated = true;
+				break;
+			}
+			
+			if(tilesSinceTimeCheck >= TILES_PER_TIME_CHECK)
+			{
+				tilesSinceTimeCheck = 0;
+				
+				if(System.nanoTime() - startTime > timeBudget)
+				{
+					return false;
+				}
+			}
+			
+			stackSize -= SEED_SIZE;
+			int seedCol = stack[stackSize];
+			int seedRow = stack[stackSize + 1];
+			int parentRow = stack[stackSize + 2];
+			int parentStart = stack[stackSize + 3];
+			int parentEnd = stack[stackSize + 4];
+			
+			if(isVisited(seedCol, seedRow))
+			{
+				continue;
+			}
+			
+			//Extend the span left and right from the seed
+			//(spans always reach as far as they can, so a Tile next to this
+			//one with the same value can not be part of another span)
+			int spanStart = seedCol;
+			while(spanStart > left && layer.getValue(spanStart - 1, seedRow) == value)
+			{
+				--spanStart;
+			}
+			
+			int spanEnd = seedCol;
+			while(spanEnd < right && layer.getValue(spanEnd + 1, seedRow) == value)
+			{
+				++spanEnd;
+			}
+			
+			//Check if the span would have continued past the bounds
+			if((spanStart == left && left > 0 && layer.getValue(left - 1, seedRow) == value) ||
+					(spanEnd == right && right < layer.getNumCols() - 1 && layer.getValue(right + 1, seedRow) == value))
+			{
+				clipped = true;
+			}
+			
+			//Only take as many Tiles as the limit allows
+			if(spanEnd - spanStart + 1 > maxTiles - numTiles)
+			{
+				spanEnd = spanStart + (maxTiles - numTiles) - 1;
+				truncated = true;
+			}
+			
+			visitSpan(seedRow, spanStart, spanEnd);
+			tilesSinceTimeCheck += 3 * (spanEnd - spanStart + 1);
+			
+			//Look for more spans in the rows above and below
+			//Within the row of the parent span, the Tiles below (or above)
+			//the parent span are already part of it
+			for(int nextRow = seedRow - 1; nextRow <= seedRow + 1; nextRow += 2)
+			{
+				if(nextRow < top || nextRow > bottom)
+				{
+					if(nextRow >= 0 && nextRow < layer.getNumRows() && hasValue(layer, nextRow, spanStart, spanEnd, value))
+					{
+						clipped = true;
+					}
+					
+					continue;
+				}
+				
+				if(nextRow == parentRow)
+				{
+					pushSeeds(layer, nextRow, spanStart, Math.min(spanEnd, parentStart - 1), value, seedRow, spanStart, spanEnd);
+					pushSeeds(layer, nextRow, Math.max(spanStart, parentEnd + 1), spanEnd, value, seedRow, spanStart, spanEnd);
+				}
+				else
+				{
+					pushSeeds(layer, nextRow, spanStart, spanEnd, value, seedRow, spanStart, spanEnd);
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that pushes one seed for each run of Tiles with value
+	 * (that are not part of a span yet) within part of a row
+	 * @param layer (Layer) The Layer to read the values from
+	 * @param row (int) The row
+	 * @param startCol (int) The first column
+	 * @param endCol (int) The last column (inclusive)
+	 * @param value (int) The value being filled
+	 * @param spanRow (int) row of the span the seeds are found from
+	 * @param spanStart (int) first column of the span the seeds are found from
+	 * @param spanEnd (int) last column of the span the seeds are found from
+	 */
+	private void pushSeeds(Layer layer, int row, int startCol, int endCol, int value, int spanRow, int spanStart, int spanEnd)
+	{
+		if(startCol > endCol)
+		{
+			return;
+		}
+		
+		layer.readRow(row, startCol, endCol, rowValues);
+		
+		boolean inRun = false;
+		for(int j = startCol; j <= endCol; j++)
+		{
+			if(rowValues[j - startCol] == value && !isVisited(j, row))
+			{
+				if(!inRun)
+				{
+					push(j, row, spanRow, spanStart, spanEnd);
+					inRun = true;
+				}
+			}
+			else
+			{
+				inRun = false;
+			}
+		}
+	}
+	
+	/**
+	 * Method that checks if any Tile within part of a row has a value
+	 * @param layer (Layer) The Layer to read the values from
+	 * @param row (int) The row
+	 * @param startCol (int) The first column
+	 * @param endCol (int) The last column (inclusive)
+	 * @param value (int) The value
+	 * @return true if a Tile has the value, otherwise false
+	 */
+	private boolean hasValue(Layer layer, int row, int startCol, int endCol, int value)
+	{
+		layer.readRow(row, startCol, endCol, rowValues);
+		
+		for(int j = startCol; j <= endCol; j++)
+		{
+			if(rowValues[j - startCol] == value)
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Method that pushes a seed onto the stack
+	 * @param col (int) column of the seed
+	 * @param row (int) row of the seed
+	 * @param parentRow (int) row of the span that found the seed
+	 * @param parentStart (int) first column of the span that found the seed
+	 * @param parentEnd (int) last column of the span that found the seed
+	 */
+	private void push(int col, int row, int parentRow, int parentStart, int parentEnd)
+	{
+		if(stackSize + SEED_SIZE > stack.length)
+		{
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		
+		stack[stackSize] = col;
+		stack[stackSize + 1] = row;
+		stack[stackSize + 2] = parentRow;
+		stack[stackSize + 3] = parentStart;
+		stack[stackSize + 4] = parentEnd;
+		stackSize += SEED_SIZE;
+	}
+	
+	/**
+	 * Method that adds a span and marks its Tiles as visited
+	 * @param row (int) row of the span
+	 * @param startCol (int) first column of the span
+	 * @param endCol (int) last column of the span (inclusive)
+	 */
+	private void visitSpan(int row, int startCol, int endCol)
+	{
+		if(numSpans * 3 + 3 > spans.length)
+		{
+			spans = Arrays.copyOf(spans, spans.length * 2);
+		}
+		
+		spans[numSpans * 3] = row;
+		spans[numSpans * 3 + 1] = startCol;
+		spans[numSpans * 3 + 2] = endCol;
+		++numSpans;
+		numTiles += endCol - startCol + 1;
+		
+		long firstBit = (long) (row - top) * boundsWidth + (startCol - left);
+		long lastBit = firstBit + (endCol - startCol);
+		int firstWord = (int) (firstBit >> 6);
+		int lastWord = (int) (lastBit >> 6);
+		
+		//Set the bits a whole word at a time
+		long firstMask = -1L << firstBit;
+		long lastMask = -1L >>> (63 - (lastBit & 63));
+		
+		if(firstWord == lastWord)
+		{
+			visited[firstWord] |= firstMask & lastMask;
+			return;
+		}
+		
+		visited[firstWord] |= firstMask;
+		for(int i = firstWord + 1; i < lastWord; i++)
+		{
+			visited[i] = -1L;
+		}
+		visited[lastWord] |= lastMask;
+	}
+	
+	/**
+	 * Method that checks if a Tile is part of a span
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @return true if the Tile is part of a span, otherwise false
+	 */
+	private boolean isVisited(int col, int row)
+	{
+		long bit = (long) (row - top) * boundsWidth + (col - left);
+		
+		return (visited[(int) (bit >> 6)] & (1L << bit)) != 0;
+	}
+	
+	/**
+	 * Method that clears (and if needed, enlarges) the visited bitmap
+	 * @param numBits (long) The number of Tiles within the bounds
+	 */
+	private void clearVisited(long numBits)
+	{
+		int numWords = (int) ((numBits + 63) >> 6);
+		
+		if(visited.length < numWords)
+		{
+			visited = new long[numWords];
+		}
+		else
+		{
+			Arrays.fill(visited, 0, numWords, 0L);
+		}
+	}
+}
@@ -1,6 +1,13 @@
 package main;
 
+import java.awt.BorderLayout;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.EventQueue;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.KeyEvent;
@@ -41,7 +48,43 @@ public class GamePanel extends JPanel implements Runnable, KeyListener
 	
 	//Game framerate
 	private static final int FPS = 120;
-	private static final int TARGET_TIME = 1000 / FPS;
+	private static final long TARGET_TIME = 1000000000L / FPS;
+	
+	//When to update and draw a frame
+	private RenderMode renderMode;
+	
+	//Flag to see if an input event arrived since the last frame was started;
+	//guarded by frameLock
+	private boolean frameRequested;
+	private final Object frameLock;
+	
+	//Number of frames still to be drawn after the last input or animation,
+	//so anything that reacts to input a frame later is drawn
+	private int settleFrames;
+	
+	//Frames drawn after input or an animation stops
+	private static final int SETTLE_FRAMES = 2;
+	
+	//Longest time to sleep while idle (milliseconds), in case something changes without input
+	private static final long IDLE_TIMEOUT = 1000;
+	
+	//Number of frames drawn
+	private long numFrames;
+	
+	//Where frames are shown; a Canvas with a BufferStrategy when one can be created
+	private Canvas canvas;
+	private BufferStrategy bufferStrategy;
+	private PresentMode presentMode;
+	
+	//Time taken to show the frames on screen (nanoseconds)
+	private long presentTime;
+	
+	//Longest time to wait for the Canvas to be laid out before showing frames without it (milliseconds)
+	private static final long CANVAS_TIMEOUT = 2000;
+	
+	//Listeners for mouse events (on whichever component frames are shown on)
+	private MouseAdapter mouseListener;
+	private MouseAdapter mouseMotionListener;
 	
 	//To manage mouse events
 	private MouseManager mouseManager;
@@ -65,6 +108,223 @@ public class GamePanel extends JPanel implements Runnable, KeyListener
 		mouseManager = MouseManager.instance();
 		keyManager = KeyManager.instance();
 		stateManager = StateManager.instance();
+		
+		renderMode = RenderMode.ON_DEMAND;
+		frameRequested = false;
+		frameLock = new Object();
+		settleFrames = SETTLE_FRAMES;
+		numFrames = 0;
+		
+		//Frames are shown on a Canvas filling the GamePanel when there is a screen
+		bufferStrategy = null;
+		presentMode = PresentMode.SOFTWARE;
+		presentTime = 0;
+		
+		if(!GraphicsEnvironment.isHeadless())
+		{
+			canvas = new Canvas()
+			{
+				private static final long serialVersionUID = 1L;
+				
+				//The BufferStrategy's contents may be lost when the window
+				//is uncovered; draw a new frame instead of clearing the Canvas
+				public void paint(Graphics g) {requestFrame();}
+				public void update(Graphics g) {paint(g);}
+			};
+			
+			canvas.setPreferredSize(new Dimension(WIDTH * SCALE, HEIGHT * SCALE));
+			canvas.setFocusable(true);
+			
+			this.setLayout(new BorderLayout());
+			this.add(canvas, BorderLayout.CENTER);
+		}
+		
+		//Keys go to whichever component is shown
+		this.setFocusable(canvas == null);
+		
+		createMouseListeners();
+	}
+	
+	//Getter methods
+	public RenderMode getRenderMode() {return renderMode;}
+	public long getNumFrames() {return numFrames;}
+	public PresentMode getPresentMode() {return presentMode;}
+	public double getAveragePresentTime() {return numFrames == 0 ? 0 : presentTime / 1e6 / numFrames;}
+	
+	/**
+	 * Method that describes how frames are shown on screen
+	 * @return the PresentMode and, for a BufferStrategy, whether it flips pages
+	 * and whether its back buffer is accelerated
+	 */
+	public String getPipelineDescription()
+	{
+		if(presentMode == PresentMode.BUFFER_STRATEGY)
+		{
+			BufferCapabilities capabilities = bufferStrategy.getCapabilities();
+			
+			return presentMode + " (" + (capabilities.isPageFlipping() ? "page flipping" : "blitting") +
+					", back buffer " + (capabilities.getBackBufferCapabilities().isAccelerated() ? "accelerated" : "not accelerated") +
+					", " + SCALE + "x nearest neighbour)";
+		}
+		
+		return presentMode + " (" + SCALE + "x nearest neighbour)";
+	}
+	
+	/**
+	 * Method that creates the BufferStrategy of the Canvas, or removes the
+	 * Canvas and shows frames on the GamePanel if it cannot be created
+	 * (called on the game thread before the first frame; the Canvas must
+	 * be displayable and laid out, so this waits up to CANVAS_TIMEOUT for it)
+	 */
+	private void createBufferStrategy()
+	{
+		if(canvas != null)
+		{
+			if(waitForCanvas())
+			{
+				try {
+					canvas.createBufferStrategy(2);
+					bufferStrategy = canvas.getBufferStrategy();
+				}catch(Exception e) {
+					e.printStackTrace();
+					bufferStrategy = null;
+				}
+			}
+			
+			if(bufferStrategy == null)
+			{
+				removeCanvas();
+			}
+		}
+		
+		presentMode = bufferStrategy != null ? PresentMode.BUFFER_STRATEGY : PresentMode.SOFTWARE;
+		
+		System.out.println("PRESENTING FRAMES WITH " + getPipelineDescription());
+	}
+	
+	/**
+	 * Method that waits until the Canvas is displayable and has a size
+	 * @return true if it is, or false if CANVAS_TIMEOUT passed first
+	 */
+	private boolean waitForCanvas()
+	{
+		long deadline = System.nanoTime() + CANVAS_TIMEOUT * 1000000;
+		
+		while(!canvas.isDisplayable() || canvas.getWidth() <= 0 || canvas.getHeight() <= 0)
+		{
+			if(System.nanoTime() > deadline)
+			{
+				return false;
+			}
+			
+			try {
+				Thread.sleep(10);
+			}catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that removes the Canvas (on the event dispatch thread) and
+	 * moves its input listeners and keyboard focus to the GamePanel
+	 */
+	private void removeCanvas()
+	{
+		final Canvas removed = canvas;
+		canvas = null;
+		
+		EventQueue.invokeLater(new Runnable()
+		{
+			public void run()
+			{
+				removeInputListeners(removed);
+				remove(removed);
+				
+				addInputListeners(GamePanel.this);
+				setFocusable(true);
+				requestFocusInWindow();
+				
+				revalidate();
+				repaint();
+			}
+		});
+	}
+	
+	/**
+	 * Method that sets when to update and draw a frame
+	 * @param renderMode (RenderMode) The RenderMode
+	 */
+	public void setRenderMode(RenderMode renderMode)
+	{
+		this.renderMode = renderMode;
+		requestFrame();
+	}
+	
+	/**
+	 * Method that wakes the game thread (if it is sleeping) to update and draw a frame
+	 * (called for every input event, from the event dispatch thread)
+	 */
+	public void requestFrame()
+	{
+		synchronized(frameLock)
+		{
+			frameRequested = true;
+			frameLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Method that sleeps until an input event requests a frame (or IDLE_TIMEOUT passes)
+	 */
+	private void waitForFrameRequest()
+	{
+		synchronized(frameLock)
+		{
+			try {
+				if(!frameRequested)
+				{
+					frameLock.wait(IDLE_TIMEOUT);
+				}
+			}catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Method that checks if nothing can change without new input: no key
+	 * or mouse button is held down, no event arrived since the last frame
+	 * was started, and the current State is not animating
+	 * @return true if the game thread may sleep until the next input event
+	 */
+	private boolean isIdle()
+	{
+		synchronized(frameLock)
+		{
+			if(frameRequested)
+			{
+				settleFrames = SETTLE_FRAMES;
+				return false;
+			}
+		}
+		
+		if(keyManager.isAnyKeyDown() || mouseManager.isMousePressed() || stateManager.isAnimating())
+		{
+			settleFrames = SETTLE_FRAMES;
+			return false;
+		}
+		
+		if(settleFrames > 0)
+		{
+			--settleFrames;
+			return false;
+		}
+		
+		return true;
 	}
 	
 	public void addNotify()
@@ -73,47 +333,78 @@ public class GamePanel extends JPanel implements Runnable, KeyListener
 		
 		if(thread == null)
 		{
+			//Input arrives at the Canvas when frames are shown on it
+			addInputListeners(canvas != null ? canvas : this);
+			
 			//Create thread and start thread
+			//(it creates the BufferStrategy once the Canvas has a size)
 			thread = new Thread(this);
 			thread.start();
-			
-			//Add KeyListener
-			addKeyListener(this);
-			
-			//Add a MouseListener
-			
-			addMouseListener(new MouseAdapter()
+		}
+	}
+	
+	/**
+	 * Method that creates the listeners for mouse events
+	 */
+	private void createMouseListeners()
+	{
+		mouseListener = new MouseAdapter()
+		{
+			public void mousePressed(MouseEvent e)
 			{
-				public void mousePressed(MouseEvent e)
-				{
-					mouseManager.setPressedPoint(e.getX(), e.getY());
-					mouseManager.setMousePressed(true);
-					mouseManager.setMouseReleased(false);
-				}
-				
-				public void mouseReleased(MouseEvent e)
-				{
-					mouseManager.setReleasedPoint(e.getX(), e.getY());
-					mouseManager.setMouseReleased(true);
-					mouseManager.setMousePressed(false);
-				}
-			});
+				mouseManager.setPressedPoint(e.getX(), e.getY());
+				mouseManager.setMousePressed(true);
+				mouseManager.setMouseReleased(false);
+				requestFrame();
+			}
 			
-			//Add a MouseMotionListener
-			addMouseMotionListener(new MouseAdapter() 
+			public void mouseReleased(MouseEvent e)
 			{
-				public void mouseMoved(MouseEvent e)
-				{
-					mouseManager.setCurrentPoint(e.getX(), e.getY());
-				}
-			});
-		}
+				mouseManager.setReleasedPoint(e.getX(), e.getY());
+				mouseManager.setMouseReleased(true);
+				mouseManager.setMousePressed(false);
+				requestFrame();
+			}
+		};
+		
+		mouseMotionListener = new MouseAdapter() 
+		{
+			public void mouseMoved(MouseEvent e)
+			{
+				mouseManager.setCurrentPoint(e.getX(), e.getY());
+				requestFrame();
+			}
+		};
+	}
+	
+	/**
+	 * Method that adds the key and mouse listeners to a component
+	 * @param component (Component) The component frames are shown on
+	 */
+	private void addInputListeners(Component component)
+	{
+		component.addKeyListener(this);
+		component.addMouseListener(mouseListener);
+		component.addMouseMotionListener(mouseMotionListener);
+	}
+	
+	/**
+	 * Method that removes the key and mouse listeners from a component
+	 * @param component (Component) The component frames were shown on
+	 */
+	private void removeInputListeners(Component component)
+	{
+		component.removeKeyListener(this);
+		component.removeMouseListener(mouseListener);
+		component.removeMouseMotionListener(mouseMotionListener);
 	}
 	
 	public void run()
 	{
 		running = true;
 		
+		createBufferStrategy();
+		
 		image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
 		g = (Graphics2D) image.getGraphics();
 		
@@ -121,34 +412,49 @@ public class GamePanel extends JPanel implements Runnable, KeyListener
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 		
-		long start;
-		long elapsed;
+		//Time the next frame is due (nanoseconds)
+		long nextFrame = System.nanoTime();
 		long wait;
 		
 		//Events to do while thread is running
 		while(running)
 		{
-			start = System.nanoTime();
+			//Input arriving from here on is seen by this frame's update or the next one
+			synchronized(frameLock)
+			{
+				frameRequested = false;
+			}
 			
 			update();
 			draw();
 			drawToScreen();
+			++numFrames;
 			
 			//******* (START) Frame counting *******
-			elapsed = (System.nanoTime() - start) / 1000000;
-			wait = TARGET_TIME - elapsed;
+			//Frames are due every TARGET_TIME; a late frame does not make the
+			//following ones rush to catch up
+			nextFrame += TARGET_TIME;
+			wait = nextFrame - System.nanoTime();
 			
 			if(wait < 0)
 			{
-				wait = TARGET_TIME;
+				nextFrame = System.nanoTime();
+				wait = 0;
 			}
 			
 			try{
-				Thread.sleep(wait);
+				Thread.sleep(wait / 1000000, (int) (wait % 1000000));
 			}catch(Exception e){
 				
 			}
 			//******* (END) Frame counting *******
+			
+			//Sleep until the next input event if nothing can change without one
+			if(renderMode == RenderMode.ON_DEMAND && isIdle())
+			{
+				waitForFrameRequest();
+				nextFrame = System.nanoTime();
+			}
 		}
 	}
 	
@@ -173,13 +479,76 @@ public class GamePanel extends JPanel implements Runnable, KeyListener
 	 */
 	private void drawToScreen()
 	{
-		Graphics g2 = this.getGraphics();
-		g2.drawImage(image, 0, 0, WIDTH * SCALE, HEIGHT * SCALE, null);
-		g2.dispose();
+		long startTime = System.nanoTime();
+		
+		if(presentMode == PresentMode.BUFFER_STRATEGY)
+		{
+			drawToBufferStrategy();
+		}
+		else
+		{
+			Graphics2D g2 = (Graphics2D) this.getGraphics();
+			g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+			g2.drawImage(image, 0, 0, WIDTH * SCALE, HEIGHT * SCALE, null);
+			g2.dispose();
+		}
+		
+		presentTime += System.nanoTime() - startTime;
+	}
+	
+	/**
+	 * Method that shows the frame with the Canvas's BufferStrategy
+	 * The back buffer may be lost or restored while drawing (i.e. when the
+	 * display changes); the frame is then drawn again until it is shown
+	 */
+	private void drawToBufferStrategy()
+	{
+		do
+		{
+			do
+			{
+				Graphics2D g2 = (Graphics2D) bufferStrategy.getDrawGraphics();
+				g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+				g2.drawImage(image, 0, 0, WIDTH * SCALE, HEIGHT * SCALE, null);
+				g2.dispose();
+			}while(bufferStrategy.contentsRestored());
+			
+			bufferStrategy.show();
+		}while(bufferStrategy.contentsLost());
+		
+		//Flush the window system's queue so the frame is shown now
+		Toolkit.getDefaultToolkit().sync();
+	}
+	
+	/**
+	 * Method that draws the last frame when Swing repaints the GamePanel
+	 * (i.e. after the window was covered), as no new frame is drawn while idle
+	 * @param g (Graphics) The Graphics object to be drawn on
+	 */
+	public void paintComponent(Graphics g)
+	{
+		super.paintComponent(g);
+		
+		if(image != null)
+		{
+			g.drawImage(image, 0, 0, WIDTH * SCALE, HEIGHT * SCALE, null);
+		}
+		
+		requestFrame();
+	}
+	
+	public void keyPressed(KeyEvent k)
+	{
+		keyManager.setKey(k.getKeyCode(), true);
+		requestFrame();
+	}
+	
+	public void keyReleased(KeyEvent k)
+	{
+		keyManager.setKey(k.getKeyCode(), false);
+		requestFrame();
 	}
 	
-	public void keyPressed(KeyEvent k) {keyManager.setKey(k.getKeyCode(), true);}
-	public void keyReleased(KeyEvent k) {keyManager.setKey(k.getKeyCode(), false);}
 	public void keyTyped(KeyEvent k) {}
 	
 }
\ No newline at end of file
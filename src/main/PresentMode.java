@@ -0,0 +1,16 @@
+package main;
+
+/**
+ * Enum to define how GamePanel shows a frame on screen
+ * BUFFER_STRATEGY draws it to the back buffer of a Canvas's BufferStrategy
+ * (accelerated where the platform allows) and flips or copies it to the
+ * screen; SOFTWARE draws it with the GamePanel's Graphics object, which is
+ * used when no BufferStrategy can be created
+ * @author Vachia Thoj
+ *
+ */
+public enum PresentMode 
+{
+	BUFFER_STRATEGY,
+	SOFTWARE;
+}
@@ -0,0 +1,15 @@
+package main;
+
+/**
+ * Enum to define when GamePanel updates and draws a frame
+ * CONTINUOUS does so every frame; ON_DEMAND only while there is input (a key
+ * or the mouse is held down, or an event just arrived) or the current State
+ * is animating, and otherwise sleeps until the next input event
+ * @author Vachia Thoj
+ *
+ */
+public enum RenderMode 
+{
+	CONTINUOUS,
+	ON_DEMAND;
+}
@@ -89,4 +89,21 @@ public class KeyManager
 	{
 		return isDown[i];
 	}
+	
+	/**
+	 * Method that checks if any key is being pressed
+	 * @return true if a key is pressed, otherwise false
+	 */
+	public boolean isAnyKeyDown()
+	{
+		for(int i = 0; i < NUM_KEYS; i++)
+		{
+			if(isDown[i])
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
 }
\ No newline at end of file
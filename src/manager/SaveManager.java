@@ -43,6 +43,7 @@ public class SaveManager
 			String itemMapFilePath = "/saves" + "/file" + (i + 1) + "/ItemMap.ser";
 			String hitboxMapFilePath = "/saves" + "/file" + (i + 1) + "/HitboxMap.ser";
 			String saveDateFilePath = "/saves" + "/file" + (i + 1) + "/SaveDate.ser";
+			String fieldsFilePath = "/saves" + "/file" + (i + 1) + "/HitboxFields.bin";
 			
 			saveFiles[i] = new SaveFile(
 					i,
@@ -50,7 +51,8 @@ public class SaveManager
 					objectMapFilePath,
 					itemMapFilePath,
 					hitboxMapFilePath,
-					saveDateFilePath
+					saveDateFilePath,
+					fieldsFilePath
 			);
 			
 			//Load save files
@@ -60,6 +62,8 @@ public class SaveManager
 	
 	/**
 	 * Method that attempts to save a file
+	 * Snapshots of the maps are written on a background thread, so the maps
+	 * can keep being edited while the save is in progress
 	 * @param id (int) The id of the save file
 	 * @param tileMap (TileMap) The tileMap to be saved
 	 * @param objectMap (ObjectMap) The objectMap to be saved
@@ -71,7 +75,13 @@ public class SaveManager
 	{
 		if(id > -1 && id < MAX_SAVE_FILES)
 		{
-			saveFiles[id].save(tileMap, objectMap, itemMap, hitboxMap, saveDate);
+			saveFiles[id].saveInBackground(
+					tileMap.snapshot(),
+					objectMap.snapshot(),
+					itemMap.snapshot(),
+					hitboxMap.snapshot(),
+					saveDate
+			);
 			currentSaveFile = saveFiles[id];
 		}
 	}
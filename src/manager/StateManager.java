@@ -82,4 +82,13 @@ public class StateManager
 	{
 		currentState.draw(g);
 	}
+	
+	/**
+	 * Method that checks if the current state changes without input
+	 * @return true if the current state is animating, otherwise false
+	 */
+	public boolean isAnimating()
+	{
+		return currentState.isAnimating();
+	}
 }
\ No newline at end of file
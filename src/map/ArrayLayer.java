@@ -0,0 +1,83 @@
+package map;
+
+import java.util.Arrays;
+
+/**
+ * ArrayLayer class stores every value of a Layer in one flat array,
+ * row by row (index = row * numCols + col)
+ * @author Vachia Thoj
+ *
+ */
+public class ArrayLayer extends Layer
+{
+	//For serialization
+	private static final long serialVersionUID = 1L;
+	
+	//The values of the Layer
+	private short[] values;
+	
+	/**
+	 * Constructor
+	 * Creates a Layer where every value is 0
+	 * @param numCols (int) number of columns in Layer
+	 * @param numRows (int) number of rows in Layer
+	 */
+	public ArrayLayer(int numCols, int numRows)
+	{
+		super(numCols, numRows);
+		
+		this.values = new short[numRows * numCols];
+	}
+	
+	/**
+	 * Constructor
+	 * @param numCols (int) number of columns in Layer
+	 * @param numRows (int) number of rows in Layer
+	 * @param values (short[]) The values of the Layer, row by row
+	 */
+	public ArrayLayer(int numCols, int numRows, short[] values)
+	{
+		super(numCols, numRows);
+		
+		this.values = values;
+	}
+	
+	public LayerType getLayerType() {return LayerType.ARRAY;}
+	public int getValue(int col, int row) {return values[row * numCols + col];}
+	public void setValue(int col, int row, int value) {values[row * numCols + col] = (short) value;}
+	
+	public void readRow(int row, int startCol, int endCol, int[] out)
+	{
+		int rowStart = row * numCols;
+		
+		for(int j = startCol; j <= endCol; j++)
+		{
+			out[j - startCol] = values[rowStart + j];
+		}
+	}
+	
+	/**
+	 * Method that creates a copy of the Layer
+	 * The whole array is copied, so this takes time proportional to the size of the Layer
+	 * @return a new ArrayLayer with the same values
+	 */
+	public Layer snapshot()
+	{
+		return new ArrayLayer(numCols, numRows, values.clone());
+	}
+	
+	public void fillRow(int row, int startCol, int endCol, int value)
+	{
+		Arrays.fill(values, row * numCols + startCol, row * numCols + endCol + 1, (short) value);
+	}
+	
+	public void writeRow(int row, int startCol, int endCol, int[] in, int offset)
+	{
+		int rowStart = row * numCols;
+		
+		for(int j = startCol; j <= endCol; j++)
+		{
+			values[rowStart + j] = (short) in[offset + j - startCol];
+		}
+	}
+}
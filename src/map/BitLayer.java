@@ -0,0 +1,359 @@
+package map;
+
+/**
+ * BitLayer class stores a Layer that only holds the values 0 and 1
+ * (i.e. the hitbox layer) as one bit per column and row
+ * Bits are stored row by row (bit index = row * numCols + col), 64 per long,
+ * so ranges of a row can be filled, counted and compared a word at a time
+ * @author Vachia Thoj
+ *
+ */
+public class BitLayer extends Layer
+{
+	//For serialization
+	private static final long serialVersionUID = 1L;
+	
+	//The bits of the Layer
+	private long[] words;
+	
+	/**
+	 * Constructor
+	 * Creates a Layer where every value is 0
+	 * @param numCols (int) number of columns in Layer
+	 * @param numRows (int) number of rows in Layer
+	 */
+	public BitLayer(int numCols, int numRows)
+	{
+		super(numCols, numRows);
+		
+		this.words = new long[(int) (((long) numCols * numRows + 63) >> 6)];
+	}
+	
+	//Getter methods
+	public LayerType getLayerType() {return LayerType.BIT;}
+	public long[] getWords() {return words;}
+	public boolean isSet(int col, int row) {return isSet(row * numCols + col);}
+	public int getValue(int col, int row) {return isSet(row * numCols + col) ? 1 : 0;}
+	
+	private boolean isSet(int bit) {return (words[bit >> 6] & (1L << bit)) != 0;}
+	
+	/**
+	 * Method that creates a copy of the Layer
+	 * At one bit per value the copy is small (about 1.7 KB for a 150x90 Layer)
+	 * @return a new BitLayer with the same values
+	 */
+	public Layer snapshot()
+	{
+		BitLayer copy = new BitLayer(numCols, numRows);
+		System.arraycopy(words, 0, copy.words, 0, words.length);
+		
+		return copy;
+	}
+	
+	/**
+	 * Method that sets a value of the Layer
+	 * Any value other than 0 is stored as 1
+	 * @param col (int) column of the value
+	 * @param row (int) row of the value
+	 * @param value (int) the value
+	 */
+	public void setValue(int col, int row, int value)
+	{
+		int bit = row * numCols + col;
+		
+		if(value != 0)
+		{
+			words[bit >> 6] |= 1L << bit;
+		}
+		else
+		{
+			words[bit >> 6] &= ~(1L << bit);
+		}
+	}
+	
+	public void readRow(int row, int startCol, int endCol, int[] out)
+	{
+		int rowStart = row * numCols;
+		
+		for(int j = startCol; j <= endCol; j++)
+		{
+			out[j - startCol] = isSet(rowStart + j) ? 1 : 0;
+		}
+	}
+	
+	public void fillRow(int row, int startCol, int endCol, int value)
+	{
+		fillBits(row * numCols + startCol, row * numCols + endCol + 1, value != 0);
+	}
+	
+	/**
+	 * Method that sets or clears a range of bits, a word at a time
+	 * @param fromBit (int) The first bit (inclusive)
+	 * @param toBit (int) The last bit (exclusive)
+	 * @param set (boolean) true to set the bits to 1, false to set them to 0
+	 */
+	private void fillBits(int fromBit, int toBit, boolean set)
+	{
+		if(fromBit >= toBit)
+		{
+			return;
+		}
+		
+		int startWord = fromBit >> 6;
+		int endWord = (toBit - 1) >> 6;
+		long firstMask = -1L << fromBit;
+		long lastMask = -1L >>> -toBit;
+		
+		if(startWord == endWord)
+		{
+			long mask = firstMask & lastMask;
+			words[startWord] = set ? words[startWord] | mask : words[startWord] & ~mask;
+			return;
+		}
+		
+		words[startWord] = set ? words[startWord] | firstMask : words[startWord] & ~firstMask;
+		
+		for(int i = startWord + 1; i < endWord; i++)
+		{
+			words[i] = set ? -1L : 0L;
+		}
+		
+		words[endWord] = set ? words[endWord] | lastMask : words[endWord] & ~lastMask;
+	}
+	
+	/**
+	 * Method that counts the bits set to 1 within a range
+	 * @param fromBit (int) The first bit (inclusive)
+	 * @param toBit (int) The last bit (exclusive)
+	 * @return the number of bits set to 1
+	 */
+	private int countBits(int fromBit, int toBit)
+	{
+		if(fromBit >= toBit)
+		{
+			return 0;
+		}
+		
+		int startWord = fromBit >> 6;
+		int endWord = (toBit - 1) >> 6;
+		long firstMask = -1L << fromBit;
+		long lastMask = -1L >>> -toBit;
+		
+		if(startWord == endWord)
+		{
+			return Long.bitCount(words[startWord] & firstMask & lastMask);
+		}
+		
+		int count = Long.bitCount(words[startWord] & firstMask);
+		
+		for(int i = startWord + 1; i < endWord; i++)
+		{
+			count += Long.bitCount(words[i]);
+		}
+		
+		return count + Long.bitCount(words[endWord] & lastMask);
+	}
+	
+	/**
+	 * Method that sets every value within a rectangle
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 * @param value (int) the value; any value other than 0 is stored as 1
+	 */
+	public void fill(int startCol, int startRow, int endCol, int endRow, int value)
+	{
+		for(int i = startRow; i <= endRow; i++)
+		{
+			fillBits(i * numCols + startCol, i * numCols + endCol + 1, value != 0);
+		}
+	}
+	
+	/**
+	 * Method that counts the values set to 1 within a rectangle
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 * @return the number of values set to 1
+	 */
+	public int count(int startCol, int startRow, int endCol, int endRow)
+	{
+		int count = 0;
+		
+		for(int i = startRow; i <= endRow; i++)
+		{
+			count += countBits(i * numCols + startCol, i * numCols + endCol + 1);
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Method that counts the values set to 1 within the whole Layer
+	 * @return the number of values set to 1
+	 */
+	public int count()
+	{
+		int count = 0;
+		
+		for(int i = 0; i < words.length; i++)
+		{
+			count += Long.bitCount(words[i]);
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Method that checks if every value within a rectangle is 0
+	 * i.e. nothing within the rectangle is blocked
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 * @return true if every value is 0, otherwise false
+	 */
+	public boolean isClear(int startCol, int startRow, int endCol, int endRow)
+	{
+		for(int i = startRow; i <= endRow; i++)
+		{
+			if(countBits(i * numCols + startCol, i * numCols + endCol + 1) != 0)
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that finds the next column of a row set to 1
+	 * @param col (int) The column to start looking from
+	 * @param row (int) The row
+	 * @return the column, or numCols if no column from col onwards is set to 1
+	 */
+	public int nextSetCol(int col, int row)
+	{
+		int rowStart = row * numCols;
+		int rowEnd = rowStart + numCols;
+		int bit = rowStart + col;
+		
+		if(bit >= rowEnd)
+		{
+			return numCols;
+		}
+		
+		int index = bit >> 6;
+		long word = words[index] & (-1L << bit);
+		
+		while(word == 0)
+		{
+			if(++index << 6 >= rowEnd)
+			{
+				return numCols;
+			}
+			
+			word = words[index];
+		}
+		
+		return Math.min((index << 6) + Long.numberOfTrailingZeros(word), rowEnd) - rowStart;
+	}
+	
+	/**
+	 * Method that finds the next column of a row set to 0
+	 * @param col (int) The column to start looking from
+	 * @param row (int) The row
+	 * @return the column, or numCols if no column from col onwards is set to 0
+	 */
+	public int nextClearCol(int col, int row)
+	{
+		int rowStart = row * numCols;
+		int rowEnd = rowStart + numCols;
+		int bit = rowStart + col;
+		
+		if(bit >= rowEnd)
+		{
+			return numCols;
+		}
+		
+		int index = bit >> 6;
+		long word = ~words[index] & (-1L << bit);
+		
+		while(word == 0)
+		{
+			if(++index << 6 >= rowEnd)
+			{
+				return numCols;
+			}
+			
+			word = ~words[index];
+		}
+		
+		return Math.min((index << 6) + Long.numberOfTrailingZeros(word), rowEnd) - rowStart;
+	}
+	
+	/**
+	 * Method that checks if this Layer and another BitLayer of the
+	 * same size have a value set to 1 in the same place
+	 * @param other (BitLayer) The other BitLayer
+	 * @return true if they share a value set to 1, otherwise false
+	 */
+	public boolean intersects(BitLayer other)
+	{
+		for(int i = 0; i < words.length; i++)
+		{
+			if((words[i] & other.words[i]) != 0)
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Method that counts the places where both this Layer and another
+	 * BitLayer of the same size have a value set to 1
+	 * @param other (BitLayer) The other BitLayer
+	 * @return the number of shared values set to 1
+	 */
+	public int countIntersection(BitLayer other)
+	{
+		int count = 0;
+		
+		for(int i = 0; i < words.length; i++)
+		{
+			count += Long.bitCount(words[i] & other.words[i]);
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Method that keeps only the values set to 1 in both this Layer and
+	 * another BitLayer of the same size
+	 * @param other (BitLayer) The other BitLayer
+	 */
+	public void and(BitLayer other)
+	{
+		for(int i = 0; i < words.length; i++)
+		{
+			words[i] &= other.words[i];
+		}
+	}
+	
+	/**
+	 * Method that sets to 1 every value set to 1 in another
+	 * BitLayer of the same size
+	 * @param other (BitLayer) The other BitLayer
+	 */
+	public void or(BitLayer other)
+	{
+		for(int i = 0; i < words.length; i++)
+		{
+			words[i] |= other.words[i];
+		}
+	}
+}
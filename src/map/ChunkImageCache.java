@@ -0,0 +1,293 @@
+package map;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * ChunkImageCache class keeps the Tiles of a TileMap drawn onto images of
+ * IMAGE_TILES x IMAGE_TILES Tiles, so drawing the TileMap takes one drawImage
+ * per image instead of one per Tile
+ *
+ * An image is drawn again only when the chunk of the DirtyTracker it lies in
+ * has changed since it was drawn. Images of chunks that are not drawn for a
+ * while are dropped (least recently drawn first) and reused
+ * @author Vachia Thoj
+ *
+ */
+public class ChunkImageCache
+{
+	//Size of an image (Tiles); IMAGE_SHIFT may not be larger than Layer.CHUNK_SHIFT,
+	//so every image lies within one chunk of the DirtyTracker
+	public static final int IMAGE_SHIFT = 4;
+	public static final int IMAGE_TILES = 1 << IMAGE_SHIFT;
+	
+	//Fewest images kept, and how many times the images on screen are kept
+	private static final int MIN_IMAGES = 32;
+	private static final int SCREENS_KEPT = 4;
+	
+	//Size of a Tile (pixels)
+	private int tileSize;
+	
+	//Image of each chunk, least recently drawn first
+	private LinkedHashMap<Long, ChunkImage> chunkImages;
+	
+	//Dropped images to reuse
+	private ArrayList<BufferedImage> spareImages;
+	
+	//Reusable array for the values of one row of an image
+	private int[] rowValues;
+	
+	//Number of images drawn onto since the cache was created (to measure the cache)
+	private long numRendered;
+	
+	/**
+	 * ChunkImage class holds the image of one chunk and the mod count it was drawn at
+	 */
+	private static class ChunkImage
+	{
+		//The image (null if every Tile of the chunk is 0)
+		private BufferedImage image;
+		
+		//Mod count of the chunk when the image was drawn
+		private long modCount;
+	}
+	
+	/**
+	 * Constructor
+	 * @param tileSize (int) Size of a Tile (pixels)
+	 */
+	public ChunkImageCache(int tileSize)
+	{
+		this.tileSize = tileSize;
+		this.chunkImages = new LinkedHashMap<Long, ChunkImage>(16, 0.75f, true);
+		this.spareImages = new ArrayList<BufferedImage>();
+		this.rowValues = new int[IMAGE_TILES];
+		this.numRendered = 0;
+	}
+	
+	//Getter methods
+	public int getNumImages() {return chunkImages.size();}
+	public long getNumRendered() {return numRendered;}
+	
+	/**
+	 * Method that drops every image (i.e. when the images of the Tiles change)
+	 */
+	public void clear()
+	{
+		Iterator<ChunkImage> iterator = chunkImages.values().iterator();
+		while(iterator.hasNext())
+		{
+			recycle(iterator.next());
+		}
+		
+		chunkImages.clear();
+	}
+	
+	/**
+	 * Method that draws part of a TileMap from the cached images, drawing
+	 * any image that is missing or out of date first
+	 * Only the pixels of the Tiles from startCol, startRow to endCol, endRow are drawn
+	 * @param g (Graphics2D) The Graphics2D object to be drawn on
+	 * @param layer (Layer) The values of the TileMap
+	 * @param dirtyTracker (DirtyTracker) The DirtyTracker of the TileMap
+	 * @param images (BufferedImage[]) The image of each Tile value
+	 * @param startCol (int) The first column to draw
+	 * @param startRow (int) The first row to draw
+	 * @param endCol (int) The last column to draw (inclusive)
+	 * @param endRow (int) The last row to draw (inclusive)
+	 * @param offSetX (int) x-coordinate on screen of startCol
+	 * @param offSetY (int) y-coordinate on screen of startRow
+	 */
+	public void draw(Graphics2D g, Layer layer, DirtyTracker dirtyTracker, BufferedImage[] images,
+			int startCol, int startRow, int endCol, int endRow, int offSetX, int offSetY)
+	{
+		if(endCol < startCol || endRow < startRow)
+		{
+			return;
+		}
+		
+		int firstImageCol = Math.max(startCol, 0) >> IMAGE_SHIFT;
+		int firstImageRow = Math.max(startRow, 0) >> IMAGE_SHIFT;
+		int lastImageCol = endCol >> IMAGE_SHIFT;
+		int lastImageRow = endRow >> IMAGE_SHIFT;
+		int maxImages = Math.max(MIN_IMAGES, SCREENS_KEPT * (lastImageCol - firstImageCol + 1) * (lastImageRow - firstImageRow + 1));
+		
+		//Images cover whole chunks; keep them to the Tiles that would have been drawn
+		Shape oldClip = g.getClip();
+		g.clipRect(offSetX, offSetY, (endCol - startCol + 1) * tileSize, (endRow - startRow + 1) * tileSize);
+		
+		for(int i = firstImageRow; i <= lastImageRow; i++)
+		{
+			for(int j = firstImageCol; j <= lastImageCol; j++)
+			{
+				ChunkImage chunkImage = getChunkImage(layer, dirtyTracker, images, j, i);
+				
+				if(chunkImage.image != null)
+				{
+					int x = ((j << IMAGE_SHIFT) - startCol) * tileSize + offSetX;
+					int y = ((i << IMAGE_SHIFT) - startRow) * tileSize + offSetY;
+					
+					g.drawImage(chunkImage.image, x, y, null);
+				}
+			}
+		}
+		
+		g.setClip(oldClip);
+		
+		trim(maxImages);
+	}
+	
+	/**
+	 * Method that obtains the image of a chunk, drawing it first if it is missing or out of date
+	 * @param layer (Layer) The values of the TileMap
+	 * @param dirtyTracker (DirtyTracker) The DirtyTracker of the TileMap
+	 * @param images (BufferedImage[]) The image of each Tile value
+	 * @param imageCol (int) column of the chunk (in images)
+	 * @param imageRow (int) row of the chunk (in images)
+	 * @return the image (Tile imageCol * IMAGE_TILES, imageRow * IMAGE_TILES at 0, 0),
+	 * or null if every Tile of the chunk is 0
+	 */
+	public BufferedImage getImage(Layer layer, DirtyTracker dirtyTracker, BufferedImage[] images, int imageCol, int imageRow)
+	{
+		return getChunkImage(layer, dirtyTracker, images, imageCol, imageRow).image;
+	}
+	
+	/**
+	 * Method that drops the least recently drawn images until at most maxImages are kept
+	 * @param maxImages (int) The number of images to keep
+	 */
+	public void trim(int maxImages)
+	{
+		Iterator<ChunkImage> iterator = chunkImages.values().iterator();
+		while(chunkImages.size() > maxImages && iterator.hasNext())
+		{
+			recycle(iterator.next());
+			iterator.remove();
+		}
+	}
+	
+	/**
+	 * Method that obtains the image of a chunk, drawing it if it is missing or out of date
+	 * @param layer (Layer) The values of the TileMap
+	 * @param dirtyTracker (DirtyTracker) The DirtyTracker of the TileMap
+	 * @param images (BufferedImage[]) The image of each Tile value
+	 * @param imageCol (int) column of the chunk (in images)
+	 * @param imageRow (int) row of the chunk (in images)
+	 * @return the ChunkImage of the chunk
+	 */
+	private ChunkImage getChunkImage(Layer layer, DirtyTracker dirtyTracker, BufferedImage[] images, int imageCol, int imageRow)
+	{
+		long key = DirtyTracker.chunkKey(imageCol, imageRow);
+		long modCount = dirtyTracker.getChunkModCount(imageCol >> (Layer.CHUNK_SHIFT - IMAGE_SHIFT), imageRow >> (Layer.CHUNK_SHIFT - IMAGE_SHIFT));
+		ChunkImage chunkImage = chunkImages.get(key);
+		
+		if(chunkImage == null)
+		{
+			chunkImage = new ChunkImage();
+			render(chunkImage, layer, images, imageCol, imageRow);
+			chunkImage.modCount = modCount;
+			chunkImages.put(key, chunkImage);
+		}
+		else if(chunkImage.modCount != modCount)
+		{
+			render(chunkImage, layer, images, imageCol, imageRow);
+			chunkImage.modCount = modCount;
+		}
+		
+		return chunkImage;
+	}
+	
+	/**
+	 * Method that draws the Tiles of a chunk onto its image
+	 * @param chunkImage (ChunkImage) The ChunkImage to draw
+	 * @param layer (Layer) The values of the TileMap
+	 * @param images (BufferedImage[]) The image of each Tile value
+	 * @param imageCol (int) column of the chunk (in images)
+	 * @param imageRow (int) row of the chunk (in images)
+	 */
+	private void render(ChunkImage chunkImage, Layer layer, BufferedImage[] images, int imageCol, int imageRow)
+	{
+		int firstCol = imageCol << IMAGE_SHIFT;
+		int firstRow = imageRow << IMAGE_SHIFT;
+		int lastCol = Math.min(firstCol + IMAGE_TILES, layer.getNumCols()) - 1;
+		int lastRow = Math.min(firstRow + IMAGE_TILES, layer.getNumRows()) - 1;
+		
+		Graphics2D g = null;
+		
+		for(int i = firstRow; i <= lastRow; i++)
+		{
+			layer.readRow(i, firstCol, lastCol, rowValues);
+			
+			for(int j = firstCol; j <= lastCol; j++)
+			{
+				int index = rowValues[j - firstCol];
+				
+				if(index == 0)
+				{
+					continue;
+				}
+				
+				//Only start an image once a Tile has to be drawn on it
+				if(g == null)
+				{
+					if(chunkImage.image == null)
+					{
+						chunkImage.image = takeImage();
+					}
+					
+					g = chunkImage.image.createGraphics();
+					g.setComposite(AlphaComposite.Clear);
+					g.fillRect(0, 0, chunkImage.image.getWidth(), chunkImage.image.getHeight());
+					g.setComposite(AlphaComposite.SrcOver);
+				}
+				
+				g.drawImage(images[index], (j - firstCol) * tileSize, (i - firstRow) * tileSize, null);
+			}
+		}
+		
+		if(g != null)
+		{
+			g.dispose();
+			++numRendered;
+		}
+		else
+		{
+			//Every Tile is 0 now
+			recycle(chunkImage);
+		}
+	}
+	
+	/**
+	 * Method that obtains an image to draw a chunk onto; a dropped one if there is one
+	 * @return the image
+	 */
+	private BufferedImage takeImage()
+	{
+		if(!spareImages.isEmpty())
+		{
+			return spareImages.remove(spareImages.size() - 1);
+		}
+		
+		return new BufferedImage(IMAGE_TILES * tileSize, IMAGE_TILES * tileSize, BufferedImage.TYPE_INT_ARGB);
+	}
+	
+	/**
+	 * Method that keeps the image of a dropped ChunkImage to reuse
+	 * Only a few images are kept; the rest are left to be garbage collected
+	 * @param chunkImage (ChunkImage) The dropped ChunkImage
+	 */
+	private void recycle(ChunkImage chunkImage)
+	{
+		if(chunkImage.image != null && spareImages.size() < MIN_IMAGES)
+		{
+			spareImages.add(chunkImage.image);
+		}
+		
+		chunkImage.image = null;
+	}
+}
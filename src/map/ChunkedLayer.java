@@ -0,0 +1,297 @@
+package map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+/**
+ * ChunkedLayer class stores a Layer as square chunks (CHUNK_SIZE x CHUNK_SIZE)
+ * A chunk is only created once a non-zero value is written to it; until then
+ * it shares one "all-zero" chunk, so a mostly empty Layer uses little memory
+ * 
+ * Snapshots share chunks with the Layer they were taken from; a shared chunk
+ * is copied the first time either Layer writes to it (copy-on-write)
+ * @author Vachia Thoj
+ *
+ */
+public class ChunkedLayer extends Layer
+{
+	//For serialization
+	private static final long serialVersionUID = 1L;
+	
+	//Chunks of the Layer, row by row (index = chunkRow * numChunkCols + chunkCol)
+	private transient short[][] chunks;
+	
+	//Number of chunk columns
+	private transient int numChunkCols;
+	
+	//A chunk may only be written to without copying it if its
+	//ownedGeneration equals generation; taking a snapshot increases generation
+	private transient int generation;
+	private transient int[] ownedGeneration;
+	
+	//The shared chunk for chunks that only contain 0; never written to
+	private static final short[] EMPTY_CHUNK = new short[CHUNK_SIZE * CHUNK_SIZE];
+	
+	/**
+	 * Constructor
+	 * Creates a Layer where every value is 0
+	 * @param numCols (int) number of columns in Layer
+	 * @param numRows (int) number of rows in Layer
+	 */
+	public ChunkedLayer(int numCols, int numRows)
+	{
+		super(numCols, numRows);
+		
+		createChunks();
+	}
+	
+	/**
+	 * Method that creates the chunks; all of them "empty"
+	 */
+	private void createChunks()
+	{
+		numChunkCols = getNumChunkCols();
+		chunks = new short[numChunkCols * getNumChunkRows()][];
+		
+		generation = 0;
+		ownedGeneration = new int[chunks.length];
+		
+		for(int i = 0; i < chunks.length; i++)
+		{
+			chunks[i] = EMPTY_CHUNK;
+		}
+	}
+	
+	//Getter methods
+	public LayerType getLayerType() {return LayerType.CHUNKED;}
+	public boolean isChunkEmpty(int chunkCol, int chunkRow) {return chunks[chunkRow * numChunkCols + chunkCol] == EMPTY_CHUNK;}
+	
+	/**
+	 * Method that counts the chunks that have been created
+	 * @return the number of chunks that are not the shared "all-zero" chunk
+	 */
+	public int getNumAllocatedChunks()
+	{
+		int count = 0;
+		
+		for(int i = 0; i < chunks.length; i++)
+		{
+			if(chunks[i] != EMPTY_CHUNK)
+			{
+				++count;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Method that obtains the chunks that have been created
+	 * (the other chunks only contain 0)
+	 * @return the keys of the chunks (see DirtyTracker.chunkKey)
+	 */
+	public long[] getStoredChunks()
+	{
+		long[] keys = new long[getNumAllocatedChunks()];
+		
+		int n = 0;
+		for(int i = 0; i < chunks.length; i++)
+		{
+			if(chunks[i] != EMPTY_CHUNK)
+			{
+				keys[n] = DirtyTracker.chunkKey(i % numChunkCols, i / numChunkCols);
+				++n;
+			}
+		}
+		
+		return keys;
+	}
+	
+	/**
+	 * Method that creates a snapshot of the Layer
+	 * The snapshot shares every chunk with this Layer; only the list of
+	 * chunks is copied. Later changes to either Layer do not affect the other
+	 * @return a new ChunkedLayer with the same values
+	 */
+	public Layer snapshot()
+	{
+		ChunkedLayer copy = new ChunkedLayer(numCols, numRows);
+		System.arraycopy(chunks, 0, copy.chunks, 0, chunks.length);
+		
+		//Neither Layer owns the shared chunks any more
+		++generation;
+		copy.generation = 1;
+		
+		return copy;
+	}
+	
+	/**
+	 * Method that obtains a chunk that can be written to
+	 * Creates the chunk if it is "empty" and copies it if it is shared
+	 * @param chunkIndex (int) index of the chunk
+	 * @return the chunk
+	 */
+	private short[] writableChunk(int chunkIndex)
+	{
+		short[] chunk = chunks[chunkIndex];
+		
+		if(chunk == EMPTY_CHUNK)
+		{
+			chunk = new short[CHUNK_SIZE * CHUNK_SIZE];
+		}
+		else if(ownedGeneration[chunkIndex] != generation)
+		{
+			chunk = chunk.clone();
+		}
+		else
+		{
+			return chunk;
+		}
+		
+		chunks[chunkIndex] = chunk;
+		ownedGeneration[chunkIndex] = generation;
+		
+		return chunk;
+	}
+	
+	public int getValue(int col, int row)
+	{
+		short[] chunk = chunks[(row >> CHUNK_SHIFT) * numChunkCols + (col >> CHUNK_SHIFT)];
+		
+		return chunk[((row & CHUNK_MASK) << CHUNK_SHIFT) + (col & CHUNK_MASK)];
+	}
+	
+	public void setValue(int col, int row, int value)
+	{
+		int chunkIndex = (row >> CHUNK_SHIFT) * numChunkCols + (col >> CHUNK_SHIFT);
+		
+		//Writing 0 to an "empty" chunk changes nothing
+		if(chunks[chunkIndex] == EMPTY_CHUNK && value == 0)
+		{
+			return;
+		}
+		
+		short[] chunk = writableChunk(chunkIndex);
+		chunk[((row & CHUNK_MASK) << CHUNK_SHIFT) + (col & CHUNK_MASK)] = (short) value;
+	}
+	
+	public void readRow(int row, int startCol, int endCol, int[] out)
+	{
+		int chunkRowStart = (row >> CHUNK_SHIFT) * numChunkCols;
+		int rowInChunk = (row & CHUNK_MASK) << CHUNK_SHIFT;
+		
+		int j = startCol;
+		while(j <= endCol)
+		{
+			//Read up to the end of the chunk
+			short[] chunk = chunks[chunkRowStart + (j >> CHUNK_SHIFT)];
+			int chunkEnd = Math.min(endCol, j | CHUNK_MASK);
+			
+			for(; j <= chunkEnd; j++)
+			{
+				out[j - startCol] = chunk[rowInChunk + (j & CHUNK_MASK)];
+			}
+		}
+	}
+	
+	public void fillRow(int row, int startCol, int endCol, int value)
+	{
+		int chunkRowStart = (row >> CHUNK_SHIFT) * numChunkCols;
+		int rowInChunk = (row & CHUNK_MASK) << CHUNK_SHIFT;
+		
+		int j = startCol;
+		while(j <= endCol)
+		{
+			int chunkIndex = chunkRowStart + (j >> CHUNK_SHIFT);
+			int chunkEnd = Math.min(endCol, j | CHUNK_MASK);
+			
+			//Writing 0 to an "empty" chunk changes nothing
+			if(chunks[chunkIndex] != EMPTY_CHUNK || value != 0)
+			{
+				Arrays.fill(writableChunk(chunkIndex), rowInChunk + (j & CHUNK_MASK), rowInChunk + (chunkEnd & CHUNK_MASK) + 1, (short) value);
+			}
+			
+			j = chunkEnd + 1;
+		}
+	}
+	
+	public void writeRow(int row, int startCol, int endCol, int[] in, int offset)
+	{
+		int chunkRowStart = (row >> CHUNK_SHIFT) * numChunkCols;
+		int rowInChunk = (row & CHUNK_MASK) << CHUNK_SHIFT;
+		
+		int j = startCol;
+		while(j <= endCol)
+		{
+			int chunkIndex = chunkRowStart + (j >> CHUNK_SHIFT);
+			int chunkEnd = Math.min(endCol, j | CHUNK_MASK);
+			
+			if(chunks[chunkIndex] == EMPTY_CHUNK)
+			{
+				//Only create the chunk if a non-zero value is written to it
+				boolean allZero = true;
+				for(int k = j; k <= chunkEnd && allZero; k++)
+				{
+					allZero = (in[offset + k - startCol] == 0);
+				}
+				
+				if(allZero)
+				{
+					j = chunkEnd + 1;
+					continue;
+				}
+			}
+			
+			short[] chunk = writableChunk(chunkIndex);
+			for(; j <= chunkEnd; j++)
+			{
+				chunk[rowInChunk + (j & CHUNK_MASK)] = (short) in[offset + j - startCol];
+			}
+		}
+	}
+	
+	/**
+	 * Method that writes the Layer to a save file
+	 * Only chunks that have been created are written
+	 * @param out (ObjectOutputStream) The stream to write to
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+		
+		for(int i = 0; i < chunks.length; i++)
+		{
+			if(chunks[i] == EMPTY_CHUNK)
+			{
+				out.writeObject(null);
+			}
+			else
+			{
+				out.writeObject(chunks[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Method that reads the Layer from a save file
+	 * @param in (ObjectInputStream) The stream to read from
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		
+		createChunks();
+		
+		for(int i = 0; i < chunks.length; i++)
+		{
+			short[] chunk = (short[]) in.readObject();
+			
+			if(chunk != null)
+			{
+				chunks[i] = chunk;
+			}
+		}
+	}
+}
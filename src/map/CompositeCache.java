@@ -0,0 +1,492 @@
+package map;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import entity.Camera;
+import entity.GameObject;
+
+/**
+ * CompositeCache class flattens the maps being shown (backgroundMap, tileMap,
+ * objectMap, itemMap and hitboxMap, in that order) into one image per chunk of
+ * ChunkImageCache.IMAGE_TILES x ChunkImageCache.IMAGE_TILES Tiles, so drawing
+ * the maps takes one drawImage per chunk instead of one per map
+ *
+ * Each image remembers which maps were shown and the mod count of each map's
+ * chunk when it was made; it is made again (from the chunk images of the
+ * TileMaps and the GameObjects over the chunk) only when one of these differs.
+ * Editing a map therefore only remakes the chunks it changed, and showing or
+ * hiding a map remakes the chunks on screen as they are drawn
+ * @author Vachia Thoj
+ *
+ */
+public class CompositeCache
+{
+	//Maps that can be shown (or'ed together)
+	public static final int SHOW_TILES = 1;
+	public static final int SHOW_OBJECTS = 2;
+	public static final int SHOW_ITEMS = 4;
+	public static final int SHOW_HITBOXES = 8;
+	
+	//Fewest images kept, and how many times the images on screen are kept
+	private static final int MIN_IMAGES = 32;
+	private static final int SCREENS_KEPT = 4;
+	
+	//Maps
+	private TileMap backgroundMap;
+	private TileMap tileMap;
+	private ObjectMap objectMap;
+	private TileMap itemMap;
+	private TileMap hitboxMap;
+	
+	//Size of a Tile and of a chunk (pixels)
+	private int tileSize;
+	private int chunkSize;
+	
+	//Image of each chunk, least recently drawn first
+	private LinkedHashMap<Long, CompositeChunk> chunks;
+	
+	//Dropped images to reuse
+	private ArrayList<BufferedImage> spareImages;
+	
+	//GameObjects over each chunk, in the order they are drawn
+	private HashMap<Long, ArrayList<GameObject>> chunkObjects;
+	
+	//GameObjects in chunkObjects, and the objectMap's mod count when they were found
+	private HashSet<GameObject> indexedObjects;
+	private int indexedModCount;
+	
+	//Number of changes to the GameObjects, and the change count of the last change over each chunk
+	private long objectModCount;
+	private HashMap<Long, Long> objectChunkModCounts;
+	
+	//Number of images made since the cache was created (to measure the cache)
+	private long numRendered;
+	
+	/**
+	 * CompositeChunk class holds the image of one chunk and what it was made from
+	 */
+	private static class CompositeChunk
+	{
+		//The image (null if nothing is drawn over the chunk)
+		private BufferedImage image;
+		
+		//Maps shown when the image was made
+		private int shownMaps;
+		
+		//Mod counts of the chunk of each map when the image was made
+		private long backgroundModCount;
+		private long tileModCount;
+		private long objectModCount;
+		private long itemModCount;
+		private long hitboxModCount;
+	}
+	
+	/**
+	 * Constructor
+	 * The maps must share the same Tile size and have their images set
+	 * @param backgroundMap (TileMap) The backgroundMap (always shown)
+	 * @param tileMap (TileMap) The tileMap
+	 * @param objectMap (ObjectMap) The objectMap
+	 * @param itemMap (TileMap) The itemMap
+	 * @param hitboxMap (TileMap) The hitboxMap
+	 */
+	public CompositeCache(TileMap backgroundMap, TileMap tileMap, ObjectMap objectMap, TileMap itemMap, TileMap hitboxMap)
+	{
+		this.backgroundMap = backgroundMap;
+		this.tileMap = tileMap;
+		this.objectMap = objectMap;
+		this.itemMap = itemMap;
+		this.hitboxMap = hitboxMap;
+		
+		this.tileSize = tileMap.getTileSize();
+		this.chunkSize = ChunkImageCache.IMAGE_TILES * tileSize;
+		
+		this.chunks = new LinkedHashMap<Long, CompositeChunk>(16, 0.75f, true);
+		this.spareImages = new ArrayList<BufferedImage>();
+		this.chunkObjects = new HashMap<Long, ArrayList<GameObject>>();
+		this.indexedObjects = new HashSet<GameObject>();
+		this.indexedModCount = -1;
+		this.objectModCount = 0;
+		this.objectChunkModCounts = new HashMap<Long, Long>();
+		this.numRendered = 0;
+	}
+	
+	//Getter methods
+	public int getNumImages() {return chunks.size();}
+	public long getNumRendered() {return numRendered;}
+	
+	/**
+	 * Method that draws the maps being shown where the Camera is looking
+	 * Only the pixels of the Tiles the tileMap would draw are drawn
+	 * @param g (Graphics2D) The Graphics2D object to be drawn on
+	 * @param camera (Camera) The Camera the maps are updated to
+	 * @param shownMaps (int) The maps to show (SHOW_TILES, SHOW_OBJECTS, SHOW_ITEMS and SHOW_HITBOXES or'ed together)
+	 */
+	public void draw(Graphics2D g, Camera camera, int shownMaps)
+	{
+		int startCol = tileMap.getStartCol();
+		int startRow = tileMap.getStartRow();
+		int endCol = tileMap.getEndCol();
+		int endRow = tileMap.getEndRow();
+		
+		if(endCol < startCol || endRow < startRow)
+		{
+			return;
+		}
+		
+		draw(g, camera, shownMaps,
+				startCol * tileSize - camera.getX(),
+				startRow * tileSize - camera.getY(),
+				(endCol - startCol + 1) * tileSize,
+				(endRow - startRow + 1) * tileSize
+		);
+	}
+	
+	/**
+	 * Method that draws the maps being shown over part of the screen
+	 * (i.e. the strip uncovered when the Camera moves)
+	 * @param g (Graphics2D) The Graphics2D object to be drawn on
+	 * @param camera (Camera) The Camera the maps are drawn for
+	 * @param shownMaps (int) The maps to show (SHOW_TILES, SHOW_OBJECTS, SHOW_ITEMS and SHOW_HITBOXES or'ed together)
+	 * @param x (int) x-coordinate on screen of the area to draw
+	 * @param y (int) y-coordinate on screen of the area to draw
+	 * @param width (int) width of the area to draw
+	 * @param height (int) height of the area to draw
+	 */
+	public void draw(Graphics2D g, Camera camera, int shownMaps, int x, int y, int width, int height)
+	{
+		if(width <= 0 || height <= 0)
+		{
+			return;
+		}
+		
+		if((shownMaps & SHOW_OBJECTS) != 0)
+		{
+			indexObjects();
+		}
+		
+		//Chunks over the area that are on the map
+		int firstChunkCol = Math.max(Math.floorDiv(camera.getX() + x, chunkSize), 0);
+		int firstChunkRow = Math.max(Math.floorDiv(camera.getY() + y, chunkSize), 0);
+		int lastChunkCol = Math.min(Math.floorDiv(camera.getX() + x + width - 1, chunkSize), (tileMap.getNumCols() - 1) >> ChunkImageCache.IMAGE_SHIFT);
+		int lastChunkRow = Math.min(Math.floorDiv(camera.getY() + y + height - 1, chunkSize), (tileMap.getNumRows() - 1) >> ChunkImageCache.IMAGE_SHIFT);
+		
+		//Keep the images of a few screens (of the chunks the Camera can see at once)
+		int maxImages = Math.max(MIN_IMAGES, SCREENS_KEPT * (camera.getWidth() / chunkSize + 2) * (camera.getHeight() / chunkSize + 2));
+		
+		//Images cover whole chunks; keep them to the area
+		Shape oldClip = g.getClip();
+		g.clipRect(x, y, width, height);
+		
+		for(int i = firstChunkRow; i <= lastChunkRow; i++)
+		{
+			for(int j = firstChunkCol; j <= lastChunkCol; j++)
+			{
+				CompositeChunk chunk = getChunk(j, i, shownMaps);
+				
+				if(chunk.image != null)
+				{
+					g.drawImage(chunk.image, j * chunkSize - camera.getX(), i * chunkSize - camera.getY(), null);
+				}
+			}
+		}
+		
+		g.setClip(oldClip);
+		
+		//Drop the least recently drawn images (and those of the TileMaps)
+		Iterator<CompositeChunk> iterator = chunks.values().iterator();
+		while(chunks.size() > maxImages && iterator.hasNext())
+		{
+			recycle(iterator.next());
+			iterator.remove();
+		}
+		
+		backgroundMap.getChunkImageCache().trim(maxImages);
+		tileMap.getChunkImageCache().trim(maxImages);
+		itemMap.getChunkImageCache().trim(maxImages);
+		hitboxMap.getChunkImageCache().trim(maxImages);
+	}
+	
+	/**
+	 * Method that drops every image (i.e. when the images of the maps change)
+	 */
+	public void clear()
+	{
+		Iterator<CompositeChunk> iterator = chunks.values().iterator();
+		while(iterator.hasNext())
+		{
+			recycle(iterator.next());
+		}
+		
+		chunks.clear();
+	}
+	
+	/**
+	 * Method that obtains the CompositeChunk of a chunk, making its image if
+	 * it is missing or out of date
+	 * @param chunkCol (int) column of the chunk
+	 * @param chunkRow (int) row of the chunk
+	 * @param shownMaps (int) The maps to show
+	 * @return the CompositeChunk
+	 */
+	private CompositeChunk getChunk(int chunkCol, int chunkRow, int shownMaps)
+	{
+		long key = DirtyTracker.chunkKey(chunkCol, chunkRow);
+		CompositeChunk chunk = chunks.get(key);
+		
+		if(chunk == null)
+		{
+			chunk = new CompositeChunk();
+			chunks.put(key, chunk);
+		}
+		else if(chunk.shownMaps == shownMaps &&
+				chunk.backgroundModCount == getModCount(backgroundMap, chunkCol, chunkRow) &&
+				chunk.tileModCount == getModCount(tileMap, chunkCol, chunkRow) &&
+				chunk.objectModCount == getObjectModCount(key) &&
+				chunk.itemModCount == getModCount(itemMap, chunkCol, chunkRow) &&
+				chunk.hitboxModCount == getModCount(hitboxMap, chunkCol, chunkRow))
+		{
+			return chunk;
+		}
+		
+		chunk.shownMaps = shownMaps;
+		chunk.backgroundModCount = getModCount(backgroundMap, chunkCol, chunkRow);
+		chunk.tileModCount = getModCount(tileMap, chunkCol, chunkRow);
+		chunk.objectModCount = getObjectModCount(key);
+		chunk.itemModCount = getModCount(itemMap, chunkCol, chunkRow);
+		chunk.hitboxModCount = getModCount(hitboxMap, chunkCol, chunkRow);
+		
+		render(chunk, chunkCol, chunkRow, key);
+		
+		return chunk;
+	}
+	
+	/**
+	 * Method that makes the image of a chunk from the maps being shown
+	 * @param chunk (CompositeChunk) The CompositeChunk to make the image of
+	 * @param chunkCol (int) column of the chunk
+	 * @param chunkRow (int) row of the chunk
+	 * @param key (long) key of the chunk
+	 */
+	private void render(CompositeChunk chunk, int chunkCol, int chunkRow, long key)
+	{
+		//Images of the chunk to flatten, from the bottom up
+		BufferedImage[] layers = {
+				backgroundMap.getChunkImage(chunkCol, chunkRow),
+				(chunk.shownMaps & SHOW_TILES) != 0 ? tileMap.getChunkImage(chunkCol, chunkRow) : null,
+				null,
+				(chunk.shownMaps & SHOW_ITEMS) != 0 ? itemMap.getChunkImage(chunkCol, chunkRow) : null,
+				(chunk.shownMaps & SHOW_HITBOXES) != 0 ? hitboxMap.getChunkImage(chunkCol, chunkRow) : null
+		};
+		
+		ArrayList<GameObject> gameObjects = (chunk.shownMaps & SHOW_OBJECTS) != 0 ? chunkObjects.get(key) : null;
+		
+		Graphics2D g = null;
+		
+		for(int n = 0; n < layers.length; n++)
+		{
+			//GameObjects go between the tileMap and the itemMap
+			if(n == 2 && gameObjects != null)
+			{
+				g = startImage(chunk, g);
+				
+				for(int i = 0; i < gameObjects.size(); i++)
+				{
+					GameObject gameObject = gameObjects.get(i);
+					
+					g.drawImage(
+							objectMap.getImage(gameObject),
+							gameObject.getX() - chunkCol * chunkSize,
+							gameObject.getY() - chunkRow * chunkSize,
+							null
+					);
+				}
+			}
+			
+			if(layers[n] != null)
+			{
+				g = startImage(chunk, g);
+				g.drawImage(layers[n], 0, 0, null);
+			}
+		}
+		
+		if(g != null)
+		{
+			g.dispose();
+			++numRendered;
+		}
+		else
+		{
+			//Nothing is drawn over the chunk
+			recycle(chunk);
+		}
+	}
+	
+	/**
+	 * Method that starts drawing the image of a chunk the first time something is drawn on it
+	 * @param chunk (CompositeChunk) The CompositeChunk being made
+	 * @param g (Graphics2D) The Graphics2D object of the image, or null if it has not been started
+	 * @return the Graphics2D object of the cleared image
+	 */
+	private Graphics2D startImage(CompositeChunk chunk, Graphics2D g)
+	{
+		if(g != null)
+		{
+			return g;
+		}
+		
+		if(chunk.image == null)
+		{
+			chunk.image = spareImages.isEmpty() ?
+					new BufferedImage(chunkSize, chunkSize, BufferedImage.TYPE_INT_ARGB) :
+					spareImages.remove(spareImages.size() - 1);
+		}
+		
+		g = chunk.image.createGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, chunkSize, chunkSize);
+		g.setComposite(AlphaComposite.SrcOver);
+		
+		return g;
+	}
+	
+	/**
+	 * Method that keeps the image of a dropped CompositeChunk to reuse
+	 * Only a few images are kept; the rest are left to be garbage collected
+	 * @param chunk (CompositeChunk) The dropped CompositeChunk
+	 */
+	private void recycle(CompositeChunk chunk)
+	{
+		if(chunk.image != null && spareImages.size() < MIN_IMAGES)
+		{
+			spareImages.add(chunk.image);
+		}
+		
+		chunk.image = null;
+	}
+	
+	/**
+	 * Method that obtains the mod count of the chunk of a TileMap an image chunk lies in
+	 * @param map (TileMap) The TileMap
+	 * @param chunkCol (int) column of the chunk (in images)
+	 * @param chunkRow (int) row of the chunk (in images)
+	 * @return the mod count of the last change to the chunk
+	 */
+	private static long getModCount(TileMap map, int chunkCol, int chunkRow)
+	{
+		int shift = Layer.CHUNK_SHIFT - ChunkImageCache.IMAGE_SHIFT;
+		
+		return map.getDirtyTracker().getChunkModCount(chunkCol >> shift, chunkRow >> shift);
+	}
+	
+	/**
+	 * Method that obtains the change count of the last change to the GameObjects over a chunk
+	 * @param key (long) key of the chunk
+	 * @return the change count, or 0 if the GameObjects over the chunk have never changed
+	 */
+	private long getObjectModCount(long key)
+	{
+		Long count = objectChunkModCounts.get(key);
+		
+		return count == null ? 0 : count;
+	}
+	
+	/**
+	 * Method that finds the GameObjects over each chunk again if the objectMap
+	 * has changed, and marks the chunks of the GameObjects added or removed
+	 * since it was last looked at as changed
+	 */
+	private void indexObjects()
+	{
+		if(indexedModCount == objectMap.getModCount())
+		{
+			return;
+		}
+		
+		ArrayList<GameObject> gameObjects = objectMap.getGameObjects();
+		HashSet<GameObject> currentObjects = new HashSet<GameObject>(gameObjects);
+		
+		++objectModCount;
+		
+		//Removed GameObjects
+		Iterator<GameObject> iterator = indexedObjects.iterator();
+		while(iterator.hasNext())
+		{
+			GameObject gameObject = iterator.next();
+			
+			if(!currentObjects.contains(gameObject))
+			{
+				visitChunks(gameObject, false);
+			}
+		}
+		
+		chunkObjects.clear();
+		
+		for(int i = 0; i < gameObjects.size(); i++)
+		{
+			GameObject gameObject = gameObjects.get(i);
+			
+			//Added GameObjects
+			if(!indexedObjects.contains(gameObject))
+			{
+				visitChunks(gameObject, false);
+			}
+			
+			visitChunks(gameObject, true);
+		}
+		
+		indexedObjects = currentObjects;
+		indexedModCount = objectMap.getModCount();
+	}
+	
+	/**
+	 * Method that either adds a GameObject to the chunks it is over or marks them as changed
+	 * A GameObject is over every chunk its image (or its size, if larger) overlaps
+	 * @param gameObject (GameObject) The GameObject
+	 * @param add (boolean) true to add the GameObject to the chunks, false to mark them
+	 */
+	private void visitChunks(GameObject gameObject, boolean add)
+	{
+		BufferedImage image = objectMap.getImage(gameObject);
+		int width = Math.max(gameObject.getWidth(), image != null ? image.getWidth() : 0);
+		int height = Math.max(gameObject.getHeight(), image != null ? image.getHeight() : 0);
+		
+		int firstChunkCol = Math.floorDiv(gameObject.getX(), chunkSize);
+		int firstChunkRow = Math.floorDiv(gameObject.getY(), chunkSize);
+		int lastChunkCol = Math.floorDiv(gameObject.getX() + Math.max(width, 1) - 1, chunkSize);
+		int lastChunkRow = Math.floorDiv(gameObject.getY() + Math.max(height, 1) - 1, chunkSize);
+		
+		for(int i = firstChunkRow; i <= lastChunkRow; i++)
+		{
+			for(int j = firstChunkCol; j <= lastChunkCol; j++)
+			{
+				long key = DirtyTracker.chunkKey(j, i);
+				
+				if(add)
+				{
+					ArrayList<GameObject> objects = chunkObjects.get(key);
+					
+					if(objects == null)
+					{
+						objects = new ArrayList<GameObject>();
+						chunkObjects.put(key, objects);
+					}
+					
+					objects.add(gameObject);
+				}
+				else
+				{
+					objectChunkModCounts.put(key, objectModCount);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package map;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+/**
+ * DirtyTracker class keeps track of which chunks (Layer.CHUNK_SIZE x Layer.CHUNK_SIZE)
+ * of a TileMap have changed
+ * 
+ * Every change to the TileMap increases a modification count. Each chunk
+ * remembers the modification count of its last change, so any number of
+ * users can check for changes since they last looked. The chunks that changed
+ * are also collected in a dirty set that can be drained by one user
+ * @author Vachia Thoj
+ *
+ */
+public class DirtyTracker 
+{
+	//Number of changes made to the TileMap
+	private long modCount;
+	
+	//The modification count of the last change made to each chunk
+	private HashMap<Long, Long> chunkModCounts;
+	
+	//Chunks changed since the dirty set was last drained
+	private LinkedHashSet<Long> dirtyChunks;
+	
+	//Last chunk marked during the current change; to skip marking it again
+	private long lastMarkedChunk;
+	
+	//No chunk
+	private static final long NO_CHUNK = Long.MIN_VALUE;
+	
+	/**
+	 * Constructor
+	 */
+	public DirtyTracker()
+	{
+		this.modCount = 0;
+		this.chunkModCounts = new HashMap<Long, Long>();
+		this.dirtyChunks = new LinkedHashSet<Long>();
+		this.lastMarkedChunk = NO_CHUNK;
+	}
+	
+	//Getter methods
+	public long getModCount() {return modCount;}
+	public boolean hasDirtyChunks() {return !dirtyChunks.isEmpty();}
+	public int getNumDirtyChunks() {return dirtyChunks.size();}
+	
+	/**
+	 * Method that creates a key for a chunk
+	 * @param chunkCol (int) column of the chunk
+	 * @param chunkRow (int) row of the chunk
+	 * @return the key of the chunk
+	 */
+	public static long chunkKey(int chunkCol, int chunkRow)
+	{
+		return ((long) chunkRow << 32) | (chunkCol & 0xFFFFFFFFL);
+	}
+	
+	//Methods that obtain the column and row of a chunk from its key
+	public static int keyCol(long key) {return (int) key;}
+	public static int keyRow(long key) {return (int) (key >> 32);}
+	
+	/**
+	 * Method that obtains the modification count of the last change made to a chunk
+	 * @param chunkCol (int) column of the chunk
+	 * @param chunkRow (int) row of the chunk
+	 * @return the modification count, or 0 if the chunk has never changed
+	 */
+	public long getChunkModCount(int chunkCol, int chunkRow)
+	{
+		Long count = chunkModCounts.get(chunkKey(chunkCol, chunkRow));
+		
+		return count == null ? 0 : count;
+	}
+	
+	/**
+	 * Method to be called once before each change to the TileMap
+	 * (a change may write any number of Tiles)
+	 */
+	public void beginChange()
+	{
+		++modCount;
+		lastMarkedChunk = NO_CHUNK;
+	}
+	
+	/**
+	 * Method that marks the chunk containing a Tile as changed
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 */
+	public void markTile(int col, int row)
+	{
+		markChunk(col >> Layer.CHUNK_SHIFT, row >> Layer.CHUNK_SHIFT);
+	}
+	
+	/**
+	 * Method that marks every chunk overlapping a rectangle of Tiles as changed
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 */
+	public void markRegion(int startCol, int startRow, int endCol, int endRow)
+	{
+		for(int i = startRow >> Layer.CHUNK_SHIFT; i <= endRow >> Layer.CHUNK_SHIFT; i++)
+		{
+			for(int j = startCol >> Layer.CHUNK_SHIFT; j <= endCol >> Layer.CHUNK_SHIFT; j++)
+			{
+				markChunk(j, i);
+			}
+		}
+	}
+	
+	/**
+	 * Method that marks a chunk as changed
+	 * @param chunkCol (int) column of the chunk
+	 * @param chunkRow (int) row of the chunk
+	 */
+	public void markChunk(int chunkCol, int chunkRow)
+	{
+		long key = chunkKey(chunkCol, chunkRow);
+		
+		if(key == lastMarkedChunk)
+		{
+			return;
+		}
+		
+		lastMarkedChunk = key;
+		chunkModCounts.put(key, modCount);
+		dirtyChunks.add(key);
+	}
+	
+	/**
+	 * Method that obtains the chunks changed since the last time this
+	 * method was called, and empties the dirty set
+	 * @return the keys of the changed chunks (see keyCol and keyRow)
+	 */
+	public long[] drainDirtyChunks()
+	{
+		long[] keys = new long[dirtyChunks.size()];
+		
+		int i = 0;
+		for(Long key : dirtyChunks)
+		{
+			keys[i] = key;
+			++i;
+		}
+		
+		dirtyChunks.clear();
+		
+		return keys;
+	}
+}
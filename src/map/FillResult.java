@@ -0,0 +1,31 @@
+package map;
+
+/**
+ * FillResult class holds the outcome of a fill (TileMap.fillTiles)
+ * @author Vachia Thoj
+ *
+ */
+public class FillResult 
+{
+	//Number of Tiles the fill changed
+	private int numTiles;
+	
+	//Whether the fill stopped before changing every Tile it should have
+	//(it reached its limit of Tiles or time, or the edge of the area it may look at)
+	private boolean truncated;
+	
+	/**
+	 * Constructor
+	 * @param numTiles (int) Number of Tiles the fill changed
+	 * @param truncated (boolean) true if the fill stopped early, otherwise false
+	 */
+	public FillResult(int numTiles, boolean truncated)
+	{
+		this.numTiles = numTiles;
+		this.truncated = truncated;
+	}
+	
+	//Getter methods
+	public int getNumTiles() {return numTiles;}
+	public boolean isTruncated() {return truncated;}
+}
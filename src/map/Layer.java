@@ -0,0 +1,155 @@
+package map;
+
+import java.io.Serializable;
+
+/**
+ * Abstract class that represents the storage of a TileMap's values
+ * (one integer value per column and row)
+ * @author Vachia Thoj
+ *
+ */
+public abstract class Layer implements Serializable
+{
+	//For serialization
+	private static final long serialVersionUID = 1L;
+	
+	//Number of columns and rows in Layer
+	protected int numCols;
+	protected int numRows;
+	
+	//Size (number of columns and rows) of a chunk of the Layer
+	public static final int CHUNK_SHIFT = 5;
+	public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	public static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	
+	/**
+	 * Constructor
+	 * @param numCols (int) number of columns in Layer
+	 * @param numRows (int) number of rows in Layer
+	 */
+	protected Layer(int numCols, int numRows)
+	{
+		this.numCols = numCols;
+		this.numRows = numRows;
+	}
+	
+	//Getter methods
+	public int getNumCols() {return numCols;}
+	public int getNumRows() {return numRows;}
+	public int getNumChunkCols() {return (numCols + CHUNK_MASK) >> CHUNK_SHIFT;}
+	public int getNumChunkRows() {return (numRows + CHUNK_MASK) >> CHUNK_SHIFT;}
+	
+	/**
+	 * Method that copies the values of part of a row into an array
+	 * @param row (int) The row to read
+	 * @param startCol (int) The first column to read
+	 * @param endCol (int) The last column to read
+	 * @param out (int[]) The array to copy into; out[0] receives startCol
+	 */
+	public void readRow(int row, int startCol, int endCol, int[] out)
+	{
+		for(int j = startCol; j <= endCol; j++)
+		{
+			out[j - startCol] = getValue(j, row);
+		}
+	}
+	
+	/**
+	 * Method to be called with the part of the Layer that is about to be
+	 * drawn, so that Layers not kept in memory can get it ready
+	 * Does nothing unless a subclass needs it
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 */
+	public void prepareRegion(int startCol, int startRow, int endCol, int endRow)
+	{
+		
+	}
+	
+	/**
+	 * Method that frees what a snapshot of a Layer holds once it is no longer
+	 * needed; the snapshot can not be used afterwards
+	 * Does nothing unless a subclass needs it
+	 */
+	public void release()
+	{
+		
+	}
+	
+	/**
+	 * Method that sets part of a row to one value
+	 * @param row (int) The row to change
+	 * @param startCol (int) The first column to change
+	 * @param endCol (int) The last column to change
+	 * @param value (int) The value
+	 */
+	public void fillRow(int row, int startCol, int endCol, int value)
+	{
+		for(int j = startCol; j <= endCol; j++)
+		{
+			setValue(j, row, value);
+		}
+	}
+	
+	/**
+	 * Method that sets every value within a rectangle
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 * @param value (int) The value
+	 */
+	public void fill(int startCol, int startRow, int endCol, int endRow, int value)
+	{
+		for(int i = startRow; i <= endRow; i++)
+		{
+			fillRow(i, startCol, endCol, value);
+		}
+	}
+	
+	/**
+	 * Method that copies values from an array into part of a row
+	 * @param row (int) The row to change
+	 * @param startCol (int) The first column to change
+	 * @param endCol (int) The last column to change
+	 * @param in (int[]) The array to copy from
+	 * @param offset (int) Index within in of the value for startCol
+	 */
+	public void writeRow(int row, int startCol, int endCol, int[] in, int offset)
+	{
+		for(int j = startCol; j <= endCol; j++)
+		{
+			setValue(j, row, in[offset + j - startCol]);
+		}
+	}
+	
+	/**
+	 * Method that obtains the chunks that may contain a value other than 0
+	 * Unless a subclass knows which chunks are empty, that is every chunk
+	 * @return the keys of the chunks (see DirtyTracker.chunkKey)
+	 */
+	public long[] getStoredChunks()
+	{
+		int numChunkCols = getNumChunkCols();
+		int numChunkRows = getNumChunkRows();
+		long[] keys = new long[numChunkCols * numChunkRows];
+		
+		for(int i = 0; i < numChunkRows; i++)
+		{
+			for(int j = 0; j < numChunkCols; j++)
+			{
+				keys[i * numChunkCols + j] = DirtyTracker.chunkKey(j, i);
+			}
+		}
+		
+		return keys;
+	}
+	
+	//Abstract methods
+	public abstract LayerType getLayerType();
+	public abstract Layer snapshot();
+	public abstract int getValue(int col, int row);
+	public abstract void setValue(int col, int row, int value);
+}
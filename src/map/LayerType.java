@@ -0,0 +1,17 @@
+package map;
+
+/**
+ * Enum to define the different ways a TileMap can store its values
+ * To be used with Layer subclasses
+ * @author Vachia Thoj
+ *
+ */
+public enum LayerType 
+{
+	ARRAY,
+	CHUNKED,
+	BIT,
+	PACKED,
+	MAPPED,
+	STREAMING;
+}
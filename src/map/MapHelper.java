@@ -3,9 +3,16 @@ package map;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import entity.Camera;
 import entity.DrawMode;
+import entity.GameObject;
+import entity.Point;
+import graph.DistanceField;
+import graph.PathFinder;
+import graph.ScanlineFill;
 import main.GamePanel;
 import manager.ImageManager;
 import manager.KeyManager;
@@ -59,6 +66,59 @@ public class MapHelper
 	private DrawMode currentDrawMode;
 	private BufferedImage bucketIcon;
 	
+	//Path to draw (every Tile along it, from start to goal)
+	private int[] pathCols;
+	private int[] pathRows;
+	private int pathLength;
+	
+	//Start of the next path (-1 if not chosen yet)
+	private int pathStartCol;
+	private int pathStartRow;
+	
+	//Spawn points to draw (x is the column and y the row)
+	private ArrayList<Point> spawnPoints;
+	
+	//Items and GameObjects that cannot be reached from the spawn points
+	private ReachabilityReport reachabilityReport;
+	
+	//Distance of each Tile to the nearest wall, drawn as a heatmap (may be null)
+	private DistanceField distanceField;
+	
+	//Colors of the heatmap; from red (next to a wall) to blue (HEAT_COLORS.length Tiles away or more)
+	private static final Color[] HEAT_COLORS = createHeatColors(32);
+	
+	//TileMap a fill would change (may be null)
+	private TileMap fillMap;
+	
+	//Finds the Tiles a fill of the Tile the mouse is on would change,
+	//a little each frame
+	private ScanlineFill previewFill;
+	
+	//Flag to see if the fill is being previewed
+	private boolean previewing;
+	
+	//What the preview was started for; it starts again if any of them change
+	private TileMap previewMap;
+	private DrawMode previewMode;
+	private int previewCol;
+	private int previewRow;
+	private long previewModCount;
+	private int previewStartCol;
+	private int previewStartRow;
+	
+	//Spans of the preview in each visible row, so only those rows are drawn
+	//(first span of each row from spanStartRow and next span in the same row of each span; -1 if none)
+	private int[] rowSpans;
+	private int[] nextSpans;
+	private int spanStartRow;
+	private int spanEndRow;
+	
+	//Number of spans of the preview put into rowSpans so far
+	private int numRowSpans;
+	
+	//Time the preview may take each frame (nanoseconds)
+	private static final long PREVIEW_TIME_BUDGET = 2000000L;
+	
 	//For keyboard input; SHIFT key
 	private static final int SHIFT = 4;
 	
@@ -95,6 +155,42 @@ public class MapHelper
 		
 		BufferedImage[] buttonImages = ImageManager.instance().getButtonImages();
 		this.bucketIcon = buttonImages[10];
+		
+		this.pathCols = new int[0];
+		this.pathRows = new int[0];
+		this.pathLength = 0;
+		this.pathStartCol = -1;
+		this.pathStartRow = -1;
+		
+		this.spawnPoints = new ArrayList<Point>();
+		this.reachabilityReport = null;
+		this.distanceField = null;
+		
+		this.fillMap = null;
+		this.previewFill = new ScanlineFill();
+		this.previewing = false;
+		
+		this.rowSpans = new int[0];
+		this.nextSpans = new int[64];
+		this.numRowSpans = 0;
+	}
+	
+	/**
+	 * Method that creates the colors of the heatmap
+	 * @param numColors (int) The number of colors
+	 * @return the colors, from red to blue
+	 */
+	private static Color[] createHeatColors(int numColors)
+	{
+		Color[] colors = new Color[numColors];
+		
+		for(int i = 0; i < numColors; i++)
+		{
+			Color color = Color.getHSBColor(0.66f * i / (numColors - 1), 1.0f, 1.0f);
+			colors[i] = new Color(color.getRed(), color.getGreen(), color.getBlue(), 120);
+		}
+		
+		return colors;
 	}
 	
 	//Getter Methods
@@ -105,6 +201,10 @@ public class MapHelper
 	public int getChangeRow() {return changeRow;}
 	public int getCurrentCol() {return currentCol;}
 	public int getCurrentRow() {return currentRow;}
+	public int getPathStartCol() {return pathStartCol;}
+	public int getPathStartRow() {return pathStartRow;}
+	public ReachabilityReport getReachabilityReport() {return reachabilityReport;}
+	public boolean isPreviewPending() {return previewing && !previewFill.isFinished();}
 	
 	//Setter Methods
 	public void setGrid(boolean b) {this.grid = b;}
@@ -112,7 +212,56 @@ public class MapHelper
 	public void setClicked(boolean b) {this.clicked = b;}
 	public void setChangeCol(int changeCol) {this.changeCol = changeCol;}
 	public void setChangeRow(int changeRow) {this.changeRow = changeRow;}
-	public void setCurrentDrawMode(DrawMode currentDrawMode) {this.currentDrawMode = currentDrawMode;}
+	public void setPathStart(int col, int row) {this.pathStartCol = col; this.pathStartRow = row;}
+	public void setSpawnPoints(ArrayList<Point> spawnPoints) {this.spawnPoints = spawnPoints;}
+	public void setReachabilityReport(ReachabilityReport reachabilityReport) {this.reachabilityReport = reachabilityReport;}
+	public void setDistanceField(DistanceField distanceField) {this.distanceField = distanceField;}
+	public void setFillMap(TileMap fillMap) {this.fillMap = fillMap;}
+	
+	/**
+	 * Method that sets the current DrawMode
+	 * The path is no longer drawn once the DrawMode is not PATH
+	 * @param currentDrawMode (DrawMode) The DrawMode
+	 */
+	public void setCurrentDrawMode(DrawMode currentDrawMode)
+	{
+		this.currentDrawMode = currentDrawMode;
+		
+		if(currentDrawMode != DrawMode.PATH)
+		{
+			clearPath();
+			setPathStart(-1, -1);
+		}
+	}
+	
+	/**
+	 * Method that sets the path to draw
+	 * @param pathFinder (PathFinder) The PathFinder holding the path
+	 */
+	public void setPath(PathFinder pathFinder)
+	{
+		pathLength = pathFinder.getPathLength();
+		
+		if(pathCols.length < pathLength)
+		{
+			pathCols = new int[pathLength];
+			pathRows = new int[pathLength];
+		}
+		
+		for(int i = 0; i < pathLength; i++)
+		{
+			pathCols[i] = pathFinder.getPathCol(i);
+			pathRows[i] = pathFinder.getPathRow(i);
+		}
+	}
+	
+	/**
+	 * Method that stops drawing the path
+	 */
+	public void clearPath()
+	{
+		pathLength = 0;
+	}
 	
 	/**
 	 * Method that updates MapHelper
@@ -203,6 +352,91 @@ public class MapHelper
 				currentRow = (camera.getY() + mouseY) / tileMap.getTileSize();
 			}
 		}
+		
+		updateFillPreview();
+	}
+	
+	/**
+	 * Method that finds (a little more of) the Tiles a fill of the Tile the
+	 * mouse is on would change
+	 * The preview starts again as soon as the mouse moves to another Tile,
+	 * the Camera moves or fillMap changes, and takes at most
+	 * PREVIEW_TIME_BUDGET each frame, so large fills do not slow frames down
+	 */
+	private void updateFillPreview()
+	{
+		if((currentDrawMode != DrawMode.FILL && currentDrawMode != DrawMode.FILL_MAP) || fillMap == null)
+		{
+			previewing = false;
+			return;
+		}
+		
+		if(!previewing || previewMap != fillMap || previewMode != currentDrawMode ||
+				previewCol != currentCol || previewRow != currentRow || previewModCount != fillMap.getModCount() ||
+				previewStartCol != fillMap.getStartCol() || previewStartRow != fillMap.getStartRow())
+		{
+			previewMap = fillMap;
+			previewMode = currentDrawMode;
+			previewCol = currentCol;
+			previewRow = currentRow;
+			previewModCount = fillMap.getModCount();
+			previewStartCol = fillMap.getStartCol();
+			previewStartRow = fillMap.getStartRow();
+			
+			previewing = fillMap.beginFill(previewFill, currentCol, currentRow, currentDrawMode == DrawMode.FILL_MAP);
+			numRowSpans = 0;
+		}
+		
+		if(previewing && !previewFill.isFinished())
+		{
+			previewFill.resume(PREVIEW_TIME_BUDGET);
+		}
+		
+		if(previewing)
+		{
+			updateRowSpans();
+		}
+	}
+	
+	/**
+	 * Method that puts the spans of the preview found since the last frame
+	 * into the rows they are in; only spans in visible rows are kept
+	 * All spans are put in again when the preview starts again or the visible rows change
+	 */
+	private void updateRowSpans()
+	{
+		if(numRowSpans == 0 || spanStartRow != startRow || spanEndRow != endRow)
+		{
+			spanStartRow = startRow;
+			spanEndRow = endRow;
+			
+			if(rowSpans.length != Math.max(endRow - startRow + 1, 0))
+			{
+				rowSpans = new int[Math.max(endRow - startRow + 1, 0)];
+			}
+			
+			Arrays.fill(rowSpans, -1);
+			numRowSpans = 0;
+		}
+		
+		int numSpans = previewFill.getNumSpans();
+		if(nextSpans.length < numSpans)
+		{
+			nextSpans = Arrays.copyOf(nextSpans, Math.max(nextSpans.length * 2, numSpans));
+		}
+		
+		for(int i = numRowSpans; i < numSpans; i++)
+		{
+			int row = previewFill.getSpanRow(i);
+			
+			if(row >= spanStartRow && row <= spanEndRow)
+			{
+				nextSpans[i] = rowSpans[row - spanStartRow];
+				rowSpans[row - spanStartRow] = i;
+			}
+		}
+		
+		numRowSpans = numSpans;
 	}
 	
 	/**
@@ -257,7 +491,7 @@ public class MapHelper
 				g.setColor(new Color(255, 255, 0, 100));
 				g.fillRect(x, y, tileMap.getTileSize(), tileMap.getTileSize());
 				
-				if(currentDrawMode == DrawMode.FILL)
+				if(currentDrawMode == DrawMode.FILL || currentDrawMode == DrawMode.FILL_MAP)
 				{
 					g.drawImage(bucketIcon, x, y, null);
 				}
@@ -265,18 +499,184 @@ public class MapHelper
 		}
 	}
 	
+	/**
+	 * Method that draws the path (and the start of the next path);
+	 * only the Tiles within the Camera's view
+	 * @param g (Graphics2D) The Graphics2D object to be drawn on
+	 */
+	private void drawPath(Graphics2D g)
+	{
+		int tileSize = tileMap.getTileSize();
+		
+		g.setColor(new Color(0, 160, 255, 120));
+		for(int i = 0; i < pathLength; i++)
+		{
+			if(pathCols[i] >= startCol && pathCols[i] <= endCol && pathRows[i] >= startRow && pathRows[i] <= endRow)
+			{
+				g.fillRect(-camera.getX() + pathCols[i] * tileSize, -camera.getY() + pathRows[i] * tileSize, tileSize, tileSize);
+			}
+		}
+		
+		//Start of the path in green, goal in red
+		if(pathLength > 0)
+		{
+			g.setColor(Color.GREEN);
+			g.drawRect(-camera.getX() + pathCols[0] * tileSize, -camera.getY() + pathRows[0] * tileSize, tileSize - 1, tileSize - 1);
+			
+			g.setColor(Color.RED);
+			g.drawRect(-camera.getX() + pathCols[pathLength - 1] * tileSize, -camera.getY() + pathRows[pathLength - 1] * tileSize, tileSize - 1, tileSize - 1);
+		}
+		
+		if(pathStartCol != -1)
+		{
+			g.setColor(Color.GREEN);
+			g.drawRect(-camera.getX() + pathStartCol * tileSize, -camera.getY() + pathStartRow * tileSize, tileSize - 1, tileSize - 1);
+		}
+	}
+	
+	/**
+	 * Method that draws the spawn points, and outlines the items and
+	 * GameObjects that cannot be reached from them;
+	 * only the ones within the Camera's view
+	 * @param g (Graphics2D) The Graphics2D object to be drawn on
+	 */
+	private void drawReachability(Graphics2D g)
+	{
+		int tileSize = tileMap.getTileSize();
+		
+		g.setColor(new Color(0, 255, 0, 120));
+		for(int i = 0; i < spawnPoints.size(); i++)
+		{
+			Point spawnPoint = spawnPoints.get(i);
+			
+			if(spawnPoint.getX() >= startCol && spawnPoint.getX() <= endCol && spawnPoint.getY() >= startRow && spawnPoint.getY() <= endRow)
+			{
+				g.fillRect(-camera.getX() + spawnPoint.getX() * tileSize, -camera.getY() + spawnPoint.getY() * tileSize, tileSize, tileSize);
+			}
+		}
+		
+		if(reachabilityReport == null || !reachabilityReport.hasSpawns())
+		{
+			return;
+		}
+		
+		g.setColor(Color.RED);
+		
+		ArrayList<Point> unreachableItems = reachabilityReport.getUnreachableItems();
+		for(int i = 0; i < unreachableItems.size(); i++)
+		{
+			Point item = unreachableItems.get(i);
+			
+			if(item.getX() >= startCol && item.getX() <= endCol && item.getY() >= startRow && item.getY() <= endRow)
+			{
+				g.drawRect(-camera.getX() + item.getX() * tileSize, -camera.getY() + item.getY() * tileSize, tileSize - 1, tileSize - 1);
+			}
+		}
+		
+		ArrayList<GameObject> unreachableObjects = reachabilityReport.getUnreachableObjects();
+		for(int i = 0; i < unreachableObjects.size(); i++)
+		{
+			GameObject gameObject = unreachableObjects.get(i);
+			
+			g.drawRect(-camera.getX() + gameObject.getX(), -camera.getY() + gameObject.getY(), gameObject.getWidth() - 1, gameObject.getHeight() - 1);
+		}
+	}
+	
+	/**
+	 * Method that draws the distance of each Tile to the nearest wall as a
+	 * heatmap (walls are not drawn); only the Tiles within the Camera's view
+	 * @param g (Graphics2D) The Graphics2D object to be drawn on
+	 */
+	private void drawHeatmap(Graphics2D g)
+	{
+		if(distanceField == null || distanceField.getNumCols() != tileMap.getNumCols() || distanceField.getNumRows() != tileMap.getNumRows())
+		{
+			return;
+		}
+		
+		int tileSize = tileMap.getTileSize();
+		
+		for(int i = Math.max(startRow, 0); i <= endRow; i++)
+		{
+			for(int j = Math.max(startCol, 0); j <= endCol; j++)
+			{
+				int distance = distanceField.getDistance(j, i);
+				
+				if(distance == 0)
+				{
+					continue;
+				}
+				
+				g.setColor(HEAT_COLORS[Math.min(distance / DistanceField.STRAIGHT_DISTANCE - 1, HEAT_COLORS.length - 1)]);
+				g.fillRect(-camera.getX() + j * tileSize, -camera.getY() + i * tileSize, tileSize, tileSize);
+			}
+		}
+	}
+	
+	/**
+	 * Method that draws the Tiles found so far that a fill would change;
+	 * only the parts within the Camera's view
+	 * Only the spans of the visible rows are looked at (see updateRowSpans)
+	 * @param g (Graphics2D) The Graphics2D object to be drawn on
+	 */
+	private void drawFillPreview(Graphics2D g)
+	{
+		int tileSize = tileMap.getTileSize();
+		
+		g.setColor(new Color(255, 255, 255, 100));
+		for(int i = 0; i < rowSpans.length; i++)
+		{
+			int row = spanStartRow + i;
+			
+			for(int span = rowSpans[i]; span != -1; span = nextSpans[span])
+			{
+				int spanStart = Math.max(previewFill.getSpanStartCol(span), startCol);
+				int spanEnd = Math.min(previewFill.getSpanEndCol(span), endCol);
+				
+				if(spanStart <= spanEnd)
+				{
+					g.fillRect(-camera.getX() + spanStart * tileSize, -camera.getY() + row * tileSize, (spanEnd - spanStart + 1) * tileSize, tileSize);
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Method that draws the MapHelper
 	 * @param g (Graphics2D) The Graphics2D object to be drawn on
 	 */
 	public void draw(Graphics2D g)
 	{
+		if(currentDrawMode == DrawMode.HEATMAP)
+		{
+			//Draw the distance to the nearest wall
+			drawHeatmap(g);
+		}
+		
 		if(grid)
 		{
 			//Draw grid overlay
 			drawGrid(g);
 		}
 		
+		if(currentDrawMode == DrawMode.PATH)
+		{
+			//Draw the path found
+			drawPath(g);
+		}
+		
+		if(currentDrawMode == DrawMode.SPAWN)
+		{
+			//Draw the spawn points and what cannot be reached from them
+			drawReachability(g);
+		}
+		
+		if(previewing)
+		{
+			//Draw the Tiles a fill would change
+			drawFillPreview(g);
+		}
+		
 		if(highlighted)
 		{
 			//Draw highlighted square
@@ -0,0 +1,504 @@
+package map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * MappedLayer class stores a Layer in a memory-mapped file instead of on the heap
+ * The operating system loads parts of the file when they are read and writes
+ * changed parts back, so a Layer larger than the heap can be opened instantly
+ * and only the parts being looked at have to be in memory
+ * 
+ * Values are stored as shorts, chunk by chunk (CHUNK_SIZE x CHUNK_SIZE), so
+ * the values of a chunk are next to each other in the file
+ * 
+ * A snapshot reads the same file; before this Layer first changes a chunk
+ * after the snapshot was taken, the chunk's old values are copied to the
+ * snapshot, so the snapshot keeps the values it was taken with
+ * @author Vachia Thoj
+ *
+ */
+public class MappedLayer extends Layer
+{
+	//For serialization
+	private static final long serialVersionUID = 1L;
+	
+	//Path of the file holding the values
+	private String filePath;
+	
+	//Flag to see if the file is a temporary file (deleted when the program exits)
+	private transient boolean temporary;
+	
+	//Flag to see if the values are written into the save file instead of only the file path
+	private boolean valuesSaved;
+	
+	//Snapshots of this Layer that are still in use
+	private transient CopyOnWriteArrayList<MappedLayer> snapshots;
+	
+	//The Layer this Layer is a snapshot of (null if it is not a snapshot, or has been released)
+	private transient MappedLayer source;
+	
+	//Values of the chunks the source has changed since this snapshot was taken (by chunk index)
+	private transient HashMap<Integer, byte[]> preservedChunks;
+	
+	//The file and its mapped parts
+	private transient RandomAccessFile file;
+	private transient MappedByteBuffer[] segments;
+	
+	//Number of chunk columns
+	private transient int numChunkCols;
+	
+	//Number of bytes used by a chunk
+	private static final int CHUNK_BYTES = CHUNK_SIZE * CHUNK_SIZE * 2;
+	
+	//Number of chunks in one mapped part of the file (512 MB)
+	private static final int SEGMENT_SHIFT = 18;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+	
+	/**
+	 * Constructor
+	 * Opens (or creates) the file holding the values; a new file contains only 0
+	 * @param numCols (int) number of columns in Layer
+	 * @param numRows (int) number of rows in Layer
+	 * @param filePath (String) path of the file holding the values
+	 */
+	public MappedLayer(int numCols, int numRows, String filePath) throws IOException
+	{
+		super(numCols, numRows);
+		
+		this.filePath = filePath;
+		this.temporary = false;
+		this.snapshots = new CopyOnWriteArrayList<MappedLayer>();
+		
+		open();
+	}
+	
+	/**
+	 * Constructor
+	 * Creates a snapshot of a MappedLayer that reads the same file
+	 * @param source (MappedLayer) The Layer to take a snapshot of
+	 */
+	private MappedLayer(MappedLayer source)
+	{
+		super(source.numCols, source.numRows);
+		
+		this.filePath = source.filePath;
+		this.temporary = source.temporary;
+		this.snapshots = new CopyOnWriteArrayList<MappedLayer>();
+		this.source = source;
+		this.preservedChunks = new HashMap<Integer, byte[]>();
+		this.file = null;
+		this.segments = source.segments;
+		this.numChunkCols = source.numChunkCols;
+	}
+	
+	/**
+	 * Method that creates a MappedLayer backed by a temporary file
+	 * @param numCols (int) number of columns in Layer
+	 * @param numRows (int) number of rows in Layer
+	 * @return a new MappedLayer where every value is 0
+	 */
+	public static MappedLayer createTemporary(int numCols, int numRows) throws IOException
+	{
+		File tempFile = File.createTempFile("TileMap", ".layer");
+		tempFile.deleteOnExit();
+		
+		MappedLayer layer = new MappedLayer(numCols, numRows, tempFile.getPath());
+		layer.temporary = true;
+		
+		return layer;
+	}
+	
+	/**
+	 * Method that opens the file and maps it into memory
+	 * Mapping does not read the file; parts of it are read when first used
+	 */
+	private void open() throws IOException
+	{
+		numChunkCols = getNumChunkCols();
+		long numChunks = (long) numChunkCols * getNumChunkRows();
+		
+		file = new RandomAccessFile(filePath, "rw");
+		
+		if(file.length() < numChunks * CHUNK_BYTES)
+		{
+			file.setLength(numChunks * CHUNK_BYTES);
+		}
+		
+		FileChannel channel = file.getChannel();
+		segments = new MappedByteBuffer[(int) ((numChunks + SEGMENT_MASK) >> SEGMENT_SHIFT)];
+		
+		for(int i = 0; i < segments.length; i++)
+		{
+			long start = ((long) i << SEGMENT_SHIFT) * CHUNK_BYTES;
+			long size = Math.min(numChunks * CHUNK_BYTES - start, (long) CHUNK_BYTES << SEGMENT_SHIFT);
+			
+			segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+		}
+	}
+	
+	//Getter methods
+	public LayerType getLayerType() {return LayerType.MAPPED;}
+	public String getFilePath() {return filePath;}
+	public boolean isTemporary() {return temporary;}
+	public boolean isSnapshot() {return preservedChunks != null;}
+	
+	/**
+	 * Method that obtains the mapped part of the file holding a chunk
+	 * @param chunkIndex (int) index of the chunk
+	 * @return the mapped part of the file
+	 */
+	private MappedByteBuffer segment(int chunkIndex)
+	{
+		return segments[chunkIndex >> SEGMENT_SHIFT];
+	}
+	
+	/**
+	 * Method that obtains the position of a value within its mapped part of the file
+	 * @param chunkIndex (int) index of the chunk holding the value
+	 * @param col (int) column of the value
+	 * @param row (int) row of the value
+	 * @return the position (in bytes)
+	 */
+	private int position(int chunkIndex, int col, int row)
+	{
+		return (chunkIndex & SEGMENT_MASK) * CHUNK_BYTES + ((((row & CHUNK_MASK) << CHUNK_SHIFT) + (col & CHUNK_MASK)) << 1);
+	}
+	
+	public int getValue(int col, int row)
+	{
+		int chunkIndex = (row >> CHUNK_SHIFT) * numChunkCols + (col >> CHUNK_SHIFT);
+		
+		if(preservedChunks != null)
+		{
+			synchronized(this)
+			{
+				byte[] preserved = preservedChunks.get(chunkIndex);
+				if(preserved != null)
+				{
+					return ByteBuffer.wrap(preserved).getShort(position(0, col, row));
+				}
+				
+				return segment(chunkIndex).getShort(position(chunkIndex, col, row));
+			}
+		}
+		
+		return segment(chunkIndex).getShort(position(chunkIndex, col, row));
+	}
+	
+	public void setValue(int col, int row, int value)
+	{
+		int chunkIndex = (row >> CHUNK_SHIFT) * numChunkCols + (col >> CHUNK_SHIFT);
+		
+		preserve(chunkIndex);
+		segment(chunkIndex).putShort(position(chunkIndex, col, row), (short) value);
+	}
+	
+	public void readRow(int row, int startCol, int endCol, int[] out)
+	{
+		int j = startCol;
+		while(j <= endCol)
+		{
+			int chunkIndex = (row >> CHUNK_SHIFT) * numChunkCols + (j >> CHUNK_SHIFT);
+			int chunkEnd = Math.min(endCol, j | CHUNK_MASK);
+			
+			if(preservedChunks != null)
+			{
+				synchronized(this)
+				{
+					readChunkRow(chunkIndex, row, j, chunkEnd, out, j - startCol);
+				}
+			}
+			else
+			{
+				readChunkRow(chunkIndex, row, j, chunkEnd, out, j - startCol);
+			}
+			
+			j = chunkEnd + 1;
+		}
+	}
+	
+	/**
+	 * Method that reads part of a row of one chunk
+	 * (a snapshot calls this while holding its lock)
+	 * @param chunkIndex (int) index of the chunk
+	 * @param row (int) The row
+	 * @param startCol (int) The first column
+	 * @param endCol (int) The last column (inclusive), within the same chunk as startCol
+	 * @param out (int[]) The array to write the values to
+	 * @param offset (int) Index within out of the value of startCol
+	 */
+	private void readChunkRow(int chunkIndex, int row, int startCol, int endCol, int[] out, int offset)
+	{
+		ByteBuffer buffer = segment(chunkIndex);
+		int position = position(chunkIndex, startCol, row);
+		
+		byte[] preserved = (preservedChunks != null) ? preservedChunks.get(chunkIndex) : null;
+		if(preserved != null)
+		{
+			buffer = ByteBuffer.wrap(preserved);
+			position = position(0, startCol, row);
+		}
+		
+		for(int j = startCol; j <= endCol; j++)
+		{
+			out[offset + j - startCol] = buffer.getShort(position);
+			position += 2;
+		}
+	}
+	
+	public void fillRow(int row, int startCol, int endCol, int value)
+	{
+		int j = startCol;
+		while(j <= endCol)
+		{
+			int chunkIndex = (row >> CHUNK_SHIFT) * numChunkCols + (j >> CHUNK_SHIFT);
+			preserve(chunkIndex);
+			
+			MappedByteBuffer segment = segment(chunkIndex);
+			int position = position(chunkIndex, j, row);
+			int chunkEnd = Math.min(endCol, j | CHUNK_MASK);
+			
+			for(; j <= chunkEnd; j++)
+			{
+				segment.putShort(position, (short) value);
+				position += 2;
+			}
+		}
+	}
+	
+	/**
+	 * Method that reads the chunks within a rectangle into memory ahead of
+	 * drawing them (i.e. the part of the Layer around the Camera)
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 */
+	public void prepareRegion(int startCol, int startRow, int endCol, int endRow)
+	{
+		for(int i = startRow >> CHUNK_SHIFT; i <= endRow >> CHUNK_SHIFT; i++)
+		{
+			for(int j = startCol >> CHUNK_SHIFT; j <= endCol >> CHUNK_SHIFT; j++)
+			{
+				//Touching the first value of a chunk reads its page from the file
+				int chunkIndex = i * numChunkCols + j;
+				segment(chunkIndex).get((chunkIndex & SEGMENT_MASK) * CHUNK_BYTES);
+			}
+		}
+	}
+	
+	/**
+	 * Method that copies the values of a chunk to every snapshot that does not
+	 * have them yet, before this Layer changes the chunk
+	 * @param chunkIndex (int) index of the chunk about to change
+	 */
+	private void preserve(int chunkIndex)
+	{
+		if(preservedChunks != null)
+		{
+			throw new UnsupportedOperationException("A snapshot of a MappedLayer can not be changed");
+		}
+		
+		if(snapshots.isEmpty())
+		{
+			return;
+		}
+		
+		for(MappedLayer snapshot : snapshots)
+		{
+			snapshot.preserveChunk(chunkIndex);
+		}
+	}
+	
+	/**
+	 * Method that keeps the values a chunk has in the file, as the source is about to change it
+	 * @param chunkIndex (int) index of the chunk
+	 */
+	private synchronized void preserveChunk(int chunkIndex)
+	{
+		if(source == null || preservedChunks.containsKey(chunkIndex))
+		{
+			return;
+		}
+		
+		byte[] values = new byte[CHUNK_BYTES];
+		readChunk(chunkIndex, values);
+		preservedChunks.put(chunkIndex, values);
+	}
+	
+	/**
+	 * Method that reads the bytes of a chunk from the file
+	 * @param chunkIndex (int) index of the chunk
+	 * @param values (byte[]) The array to read the CHUNK_BYTES bytes into
+	 */
+	private void readChunk(int chunkIndex, byte[] values)
+	{
+		ByteBuffer segment = segment(chunkIndex).duplicate();
+		segment.position((chunkIndex & SEGMENT_MASK) * CHUNK_BYTES);
+		segment.get(values);
+	}
+	
+	/**
+	 * Method that writes every changed value back to the file
+	 */
+	public void flush()
+	{
+		//A snapshot has nothing of its own to write back
+		if(preservedChunks != null)
+		{
+			return;
+		}
+		
+		for(int i = 0; i < segments.length; i++)
+		{
+			segments[i].force();
+		}
+	}
+	
+	/**
+	 * Method that writes every changed value back to the file and closes it
+	 * The Layer can not be used afterwards
+	 */
+	public void close()
+	{
+		if(preservedChunks != null)
+		{
+			release();
+			return;
+		}
+		
+		flush();
+		
+		try {
+			file.close();
+		}catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Method that creates a snapshot of the Layer
+	 * Nothing is copied when the snapshot is taken; this Layer copies a chunk
+	 * (CHUNK_BYTES) to the snapshot the first time it changes it afterwards.
+	 * The snapshot should be released once it is no longer needed
+	 * @return a new MappedLayer that keeps the values this Layer has now
+	 */
+	public Layer snapshot()
+	{
+		if(preservedChunks != null)
+		{
+			throw new UnsupportedOperationException("Can not take a snapshot of a snapshot of a MappedLayer");
+		}
+		
+		MappedLayer snapshot = new MappedLayer(this);
+		snapshots.add(snapshot);
+		
+		return snapshot;
+	}
+	
+	/**
+	 * Method that stops the snapshot from keeping the values of its source
+	 * and drops the chunks it kept; the snapshot can not be used afterwards
+	 */
+	public synchronized void release()
+	{
+		if(source == null)
+		{
+			return;
+		}
+		
+		source.snapshots.remove(this);
+		source = null;
+		preservedChunks.clear();
+		segments = null;
+	}
+	
+	/**
+	 * Method that writes the Layer to a save file
+	 * A temporary file is deleted when the program exits, and a snapshot has
+	 * to keep the values it was taken with, so their values are written into
+	 * the save file, a chunk at a time; otherwise only the file path is saved
+	 * @param out (ObjectOutputStream) The stream to write to
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		valuesSaved = temporary || preservedChunks != null;
+		
+		if(!valuesSaved)
+		{
+			flush();
+		}
+		
+		out.defaultWriteObject();
+		
+		if(!valuesSaved)
+		{
+			return;
+		}
+		
+		byte[] values = new byte[CHUNK_BYTES];
+		long numChunks = (long) numChunkCols * getNumChunkRows();
+		
+		for(int i = 0; i < numChunks; i++)
+		{
+			synchronized(this)
+			{
+				if(preservedChunks != null && preservedChunks.containsKey(i))
+				{
+					System.arraycopy(preservedChunks.get(i), 0, values, 0, CHUNK_BYTES);
+				}
+				else
+				{
+					readChunk(i, values);
+				}
+			}
+			
+			out.write(values);
+		}
+	}
+	
+	/**
+	 * Method that reads the Layer from a save file and maps its file
+	 * Values written into the save file are copied into a new temporary file
+	 * @param in (ObjectInputStream) The stream to read from
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		
+		snapshots = new CopyOnWriteArrayList<MappedLayer>();
+		temporary = valuesSaved;
+		
+		if(!valuesSaved)
+		{
+			open();
+			return;
+		}
+		
+		File tempFile = File.createTempFile("TileMap", ".layer");
+		tempFile.deleteOnExit();
+		filePath = tempFile.getPath();
+		open();
+		
+		byte[] values = new byte[CHUNK_BYTES];
+		long numChunks = (long) numChunkCols * getNumChunkRows();
+		
+		for(int i = 0; i < numChunks; i++)
+		{
+			in.readFully(values);
+			
+			ByteBuffer segment = segment(i).duplicate();
+			segment.position((i & SEGMENT_MASK) * CHUNK_BYTES);
+			segment.put(values);
+		}
+	}
+}
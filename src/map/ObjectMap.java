@@ -27,6 +27,13 @@ public class ObjectMap implements Serializable
 	//ArrayList of GameObjects
 	private ArrayList<GameObject> gameObjects;
 	
+	//Flag to see if gameObjects is shared with a snapshot;
+	//a shared list is copied before it is changed
+	private transient boolean shared;
+	
+	//Number of times a GameObject has been added or removed
+	private transient int modCount;
+	
 	//BufferedImages
 	private transient BufferedImage[] treeImages;
 	private transient BufferedImage[] bushImages;
@@ -43,6 +50,38 @@ public class ObjectMap implements Serializable
 		this.gameObjects = new ArrayList<GameObject>();
 	}
 	
+	/**
+	 * Method that creates a snapshot of the ObjectMap
+	 * The snapshot shares its list of GameObjects with this ObjectMap until
+	 * this ObjectMap adds or removes a GameObject, so taking it is cheap.
+	 * The GameObjects themselves are shared too; after they are added only
+	 * their screen coordinates change, and those are not saved. The snapshot
+	 * can be read (i.e. saved) on another thread while this ObjectMap keeps changing
+	 * @return a new ObjectMap with the same GameObjects
+	 */
+	public ObjectMap snapshot()
+	{
+		ObjectMap copy = new ObjectMap();
+		copy.gameObjects = gameObjects;
+		copy.shared = true;
+		
+		shared = true;
+		
+		return copy;
+	}
+	
+	/**
+	 * Method that copies gameObjects if it is shared with a snapshot
+	 */
+	private void copyIfShared()
+	{
+		if(shared)
+		{
+			gameObjects = new ArrayList<GameObject>(gameObjects);
+			shared = false;
+		}
+	}
+	
 	public void init()
 	{
 		for(int i = 0; i < gameObjects.size(); i++)
@@ -53,6 +92,7 @@ public class ObjectMap implements Serializable
 	
 	//Getter methods
 	public ArrayList<GameObject> getGameObjects() {return gameObjects;}
+	public int getModCount() {return modCount;}
 	
 	//Setter methods
 	public void setCamera(Camera camera) {this.camera = camera;}
@@ -85,7 +125,9 @@ public class ObjectMap implements Serializable
 		}
 		else
 		{
+			copyIfShared();
 			gameObjects.add(newGameObject);
+			++modCount;
 		}
 	}
 	
@@ -99,7 +141,9 @@ public class ObjectMap implements Serializable
 		{
 			if(Collision.aabbCollision(newGameObject, gameObjects.get(i)))
 			{
-				gameObjects.remove(gameObjects.get(i));
+				copyIfShared();
+				gameObjects.remove(i);
+				++modCount;
 				return;
 			}
 		}
@@ -116,6 +160,33 @@ public class ObjectMap implements Serializable
 		}
 	}
 	
+	/**
+	 * Method that obtains the image of a GameObject
+	 * @param gameObject (GameObject) The GameObject
+	 * @return the image of the GameObject, or null if it has none
+	 */
+	public BufferedImage getImage(GameObject gameObject)
+	{
+		//Obtain the type of GameObject that the object is
+		switch(gameObject.getGameObjectType())
+		{
+			case TREE:
+				return treeImages[gameObject.getId()];
+			case BUSH:
+				return bushImages[gameObject.getId()];
+			case ROCK:
+				return rockImages[gameObject.getId()];
+			case STRUCTURE:
+				return structureImages[gameObject.getId()];
+			case BUILDING:
+				return buildingImages[gameObject.getId()];
+			case MISC:
+				return miscImages[gameObject.getId()];
+			default:
+				return null;
+		}
+	}
+	
 	/**
 	 * Method that draws the ObjectMap
 	 * @param g (Graphics2D) The Graphics2D object to be drawn on
@@ -129,58 +200,7 @@ public class ObjectMap implements Serializable
 			//Only draw the GameObject if it is within the camera's viewpoint
 			if(Collision.aabbCollision(temp, camera))
 			{
-				//Obtain the type of GameObject that the object is and draw that object
-				switch(temp.getGameObjectType())
-				{
-					case TREE:
-						g.drawImage(
-								treeImages[temp.getId()],
-								temp.getScreenX(),
-								temp.getScreenY(),
-								null
-						);
-						break;
-					case BUSH:
-						g.drawImage(
-								bushImages[temp.getId()],
-								temp.getScreenX(),
-								temp.getScreenY(),
-								null
-						);
-						break;
-					case ROCK:
-						g.drawImage(
-								rockImages[temp.getId()],
-								temp.getScreenX(),
-								temp.getScreenY(),
-								null
-						);
-						break;
-					case STRUCTURE:
-						g.drawImage(
-								structureImages[temp.getId()],
-								temp.getScreenX(),
-								temp.getScreenY(),
-								null
-						);
-						break;
-					case BUILDING:
-						g.drawImage(
-								buildingImages[temp.getId()],
-								temp.getScreenX(), 
-								temp.getScreenY(),
-								null
-						);
-						break;
-					case MISC:
-						g.drawImage(
-								miscImages[temp.getId()], 
-								temp.getScreenX(),
-								temp.getScreenY(),
-								null);
-					default:
-						break;
-				}
+				g.drawImage(getImage(temp), temp.getScreenX(), temp.getScreenY(), null);
 			}
 		}
 	}
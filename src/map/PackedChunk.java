@@ -0,0 +1,221 @@
+package map;
+
+import java.io.Serializable;
+
+/**
+ * PackedChunk class represents one chunk of a PackedLayer
+ * The chunk keeps a palette of the distinct values written to it and stores,
+ * for every column and row, the index of its value within the palette using
+ * as few bits as the palette needs (0, 1, 2, 4, 7, 8 or 16 bits)
+ * @author Vachia Thoj
+ *
+ */
+public class PackedChunk implements Serializable
+{
+	//For serialization
+	private static final long serialVersionUID = 1L;
+	
+	//Distinct values of the chunk; palette[0] is the value the chunk was created with
+	private short[] palette;
+	private int paletteSize;
+	
+	//Number of bits used per value and how many values fit in one long
+	private int bits;
+	private int valuesPerWord;
+	
+	//Palette indices of the values, packed; null while bits is 0
+	private long[] words;
+	
+	//Possible number of bits per value, smallest to largest
+	private static final int[] WIDTHS = {0, 1, 2, 4, 7, 8, 16};
+	
+	//Number of values in a chunk
+	private static final int SIZE = Layer.CHUNK_SIZE * Layer.CHUNK_SIZE;
+	
+	/**
+	 * Constructor
+	 * Creates a chunk where every value is the same
+	 * @param value (int) The value of every column and row of the chunk
+	 */
+	public PackedChunk(int value)
+	{
+		this.palette = new short[1];
+		this.palette[0] = (short) value;
+		this.paletteSize = 1;
+		
+		this.bits = 0;
+		this.valuesPerWord = 0;
+		this.words = null;
+	}
+	
+	/**
+	 * Constructor
+	 * Creates a copy of a chunk
+	 * @param chunk (PackedChunk) The chunk to copy
+	 */
+	public PackedChunk(PackedChunk chunk)
+	{
+		this.palette = chunk.palette.clone();
+		this.paletteSize = chunk.paletteSize;
+		
+		this.bits = chunk.bits;
+		this.valuesPerWord = chunk.valuesPerWord;
+		this.words = chunk.words == null ? null : chunk.words.clone();
+	}
+	
+	//Getter methods
+	public int getBits() {return bits;}
+	public int getPaletteSize() {return paletteSize;}
+	
+	/**
+	 * Method that obtains a value of the chunk
+	 * @param index (int) Index of the value within the chunk (row * CHUNK_SIZE + col)
+	 * @return the value
+	 */
+	public int getValue(int index)
+	{
+		if(bits == 0)
+		{
+			return palette[0];
+		}
+		
+		long word = words[index / valuesPerWord];
+		int shift = (index % valuesPerWord) * bits;
+		
+		return palette[(int) ((word >>> shift) & ((1L << bits) - 1))];
+	}
+	
+	/**
+	 * Method that changes a value of the chunk
+	 * Widens the chunk if the value is not yet in its palette and the
+	 * palette no longer fits in the current number of bits
+	 * @param index (int) Index of the value within the chunk (row * CHUNK_SIZE + col)
+	 * @param value (int) The value
+	 */
+	public void setValue(int index, int value)
+	{
+		int paletteIndex = findPaletteIndex(value);
+		
+		if(paletteIndex == -1)
+		{
+			paletteIndex = addToPalette(value);
+		}
+		
+		if(bits == 0)
+		{
+			//Every value is already palette[0]
+			return;
+		}
+		
+		int wordIndex = index / valuesPerWord;
+		int shift = (index % valuesPerWord) * bits;
+		long mask = ((1L << bits) - 1) << shift;
+		
+		words[wordIndex] = (words[wordIndex] & ~mask) | (((long) paletteIndex << shift) & mask);
+	}
+	
+	/**
+	 * Method that finds the index of a value within the palette
+	 * @param value (int) The value
+	 * @return the index, or -1 if value is not in the palette
+	 */
+	private int findPaletteIndex(int value)
+	{
+		for(int i = 0; i < paletteSize; i++)
+		{
+			if(palette[i] == value)
+			{
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Method that adds a value to the palette, widening the chunk if needed
+	 * @param value (int) The value
+	 * @return the index of the value within the palette
+	 */
+	private int addToPalette(int value)
+	{
+		if(paletteSize == palette.length)
+		{
+			short[] newPalette = new short[palette.length * 2];
+			System.arraycopy(palette, 0, newPalette, 0, paletteSize);
+			palette = newPalette;
+		}
+		
+		palette[paletteSize] = (short) value;
+		++paletteSize;
+		
+		if(paletteSize > (1 << bits))
+		{
+			//Find the smallest width that fits the palette
+			int newBits = bits;
+			for(int i = 0; i < WIDTHS.length; i++)
+			{
+				if((1 << WIDTHS[i]) >= paletteSize)
+				{
+					newBits = WIDTHS[i];
+					break;
+				}
+			}
+			
+			widen(newBits);
+		}
+		
+		return paletteSize - 1;
+	}
+	
+	/**
+	 * Method that repacks every value of the chunk using more bits
+	 * @param newBits (int) The new number of bits per value
+	 */
+	private void widen(int newBits)
+	{
+		int newValuesPerWord = 64 / newBits;
+		long[] newWords = new long[(SIZE + newValuesPerWord - 1) / newValuesPerWord];
+		
+		if(bits != 0)
+		{
+			long mask = (1L << bits) - 1;
+			
+			for(int i = 0; i < SIZE; i++)
+			{
+				long paletteIndex = (words[i / valuesPerWord] >>> ((i % valuesPerWord) * bits)) & mask;
+				newWords[i / newValuesPerWord] |= paletteIndex << ((i % newValuesPerWord) * newBits);
+			}
+		}
+		
+		bits = newBits;
+		valuesPerWord = newValuesPerWord;
+		words = newWords;
+	}
+	
+	/**
+	 * Method that creates a copy of the chunk holding only the values
+	 * still in use, using as few bits as they need
+	 * @return a new PackedChunk with the same values
+	 */
+	public PackedChunk compact()
+	{
+		PackedChunk chunk = new PackedChunk(getValue(0));
+		
+		for(int i = 1; i < SIZE; i++)
+		{
+			chunk.setValue(i, getValue(i));
+		}
+		
+		return chunk;
+	}
+	
+	/**
+	 * Method that checks if every value of the chunk is 0
+	 * @return true if every value is 0, otherwise false
+	 */
+	public boolean isEmpty()
+	{
+		return bits == 0 && palette[0] == 0;
+	}
+}
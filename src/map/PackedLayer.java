@@ -0,0 +1,261 @@
+package map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+/**
+ * PackedLayer class stores a Layer as chunks (CHUNK_SIZE x CHUNK_SIZE) of
+ * bit-packed palette indices, so each chunk only uses as many bits per value
+ * as its number of distinct values needs
+ * A chunk that only contains 0 is not created
+ * 
+ * Snapshots share chunks with the Layer they were taken from; a shared chunk
+ * is copied the first time either Layer writes to it (copy-on-write)
+ * @author Vachia Thoj
+ *
+ */
+public class PackedLayer extends Layer
+{
+	//For serialization
+	private static final long serialVersionUID = 1L;
+	
+	//Chunks of the Layer, row by row (index = chunkRow * numChunkCols + chunkCol)
+	//A null chunk only contains 0
+	private PackedChunk[] chunks;
+	
+	//Number of chunk columns
+	private int numChunkCols;
+	
+	//A chunk may only be written to without copying it if its
+	//ownedGeneration equals generation; taking a snapshot increases generation
+	private transient int generation;
+	private transient int[] ownedGeneration;
+	
+	/**
+	 * Constructor
+	 * Creates a Layer where every value is 0
+	 * @param numCols (int) number of columns in Layer
+	 * @param numRows (int) number of rows in Layer
+	 */
+	public PackedLayer(int numCols, int numRows)
+	{
+		super(numCols, numRows);
+		
+		this.numChunkCols = getNumChunkCols();
+		this.chunks = new PackedChunk[numChunkCols * getNumChunkRows()];
+		
+		this.generation = 0;
+		this.ownedGeneration = new int[chunks.length];
+	}
+	
+	/**
+	 * Method that reads the Layer from a save file
+	 * @param in (ObjectInputStream) The stream to read from
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		
+		generation = 0;
+		ownedGeneration = new int[chunks.length];
+	}
+	
+	//Getter methods
+	public LayerType getLayerType() {return LayerType.PACKED;}
+	
+	/**
+	 * Method that obtains the number of bits per value a chunk uses
+	 * @param chunkCol (int) column of the chunk
+	 * @param chunkRow (int) row of the chunk
+	 * @return the number of bits per value
+	 */
+	public int getBits(int chunkCol, int chunkRow)
+	{
+		PackedChunk chunk = chunks[chunkRow * numChunkCols + chunkCol];
+		
+		return chunk == null ? 0 : chunk.getBits();
+	}
+	
+	/**
+	 * Method that obtains the chunks that have been created
+	 * (the other chunks only contain 0)
+	 * @return the keys of the chunks (see DirtyTracker.chunkKey)
+	 */
+	public long[] getStoredChunks()
+	{
+		int count = 0;
+		for(int i = 0; i < chunks.length; i++)
+		{
+			if(chunks[i] != null)
+			{
+				++count;
+			}
+		}
+		
+		long[] keys = new long[count];
+		
+		int n = 0;
+		for(int i = 0; i < chunks.length; i++)
+		{
+			if(chunks[i] != null)
+			{
+				keys[n] = DirtyTracker.chunkKey(i % numChunkCols, i / numChunkCols);
+				++n;
+			}
+		}
+		
+		return keys;
+	}
+	
+	/**
+	 * Method that creates a snapshot of the Layer
+	 * The snapshot shares every chunk with this Layer; only the list of
+	 * chunks is copied. Later changes to either Layer do not affect the other
+	 * @return a new PackedLayer with the same values
+	 */
+	public Layer snapshot()
+	{
+		PackedLayer copy = new PackedLayer(numCols, numRows);
+		System.arraycopy(chunks, 0, copy.chunks, 0, chunks.length);
+		
+		//Neither Layer owns the shared chunks any more
+		++generation;
+		copy.generation = 1;
+		
+		return copy;
+	}
+	
+	/**
+	 * Method that obtains a chunk that can be written to
+	 * Creates the chunk if it is "empty" and copies it if it is shared
+	 * @param chunkIndex (int) index of the chunk
+	 * @return the chunk
+	 */
+	private PackedChunk writableChunk(int chunkIndex)
+	{
+		PackedChunk chunk = chunks[chunkIndex];
+		
+		if(chunk == null)
+		{
+			chunk = new PackedChunk(0);
+		}
+		else if(ownedGeneration[chunkIndex] != generation)
+		{
+			chunk = new PackedChunk(chunk);
+		}
+		else
+		{
+			return chunk;
+		}
+		
+		chunks[chunkIndex] = chunk;
+		ownedGeneration[chunkIndex] = generation;
+		
+		return chunk;
+	}
+	
+	public int getValue(int col, int row)
+	{
+		PackedChunk chunk = chunks[(row >> CHUNK_SHIFT) * numChunkCols + (col >> CHUNK_SHIFT)];
+		
+		if(chunk == null)
+		{
+			return 0;
+		}
+		
+		return chunk.getValue(((row & CHUNK_MASK) << CHUNK_SHIFT) + (col & CHUNK_MASK));
+	}
+	
+	public void setValue(int col, int row, int value)
+	{
+		int chunkIndex = (row >> CHUNK_SHIFT) * numChunkCols + (col >> CHUNK_SHIFT);
+		
+		//Writing 0 to an "empty" chunk changes nothing
+		if(chunks[chunkIndex] == null && value == 0)
+		{
+			return;
+		}
+		
+		writableChunk(chunkIndex).setValue(((row & CHUNK_MASK) << CHUNK_SHIFT) + (col & CHUNK_MASK), value);
+	}
+	
+	public void fillRow(int row, int startCol, int endCol, int value)
+	{
+		int chunkRowStart = (row >> CHUNK_SHIFT) * numChunkCols;
+		
+		int j = startCol;
+		while(j <= endCol)
+		{
+			int chunkEnd = Math.min(endCol, j | CHUNK_MASK);
+			
+			//Skip writing 0 to an "empty" chunk
+			if(value != 0 || chunks[chunkRowStart + (j >> CHUNK_SHIFT)] != null)
+			{
+				for(int k = j; k <= chunkEnd; k++)
+				{
+					setValue(k, row, value);
+				}
+			}
+			
+			j = chunkEnd + 1;
+		}
+	}
+	
+	/**
+	 * Method that sets every value within a rectangle
+	 * Chunks that are completely covered are replaced by a single-value chunk
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 * @param value (int) The value
+	 */
+	public void fill(int startCol, int startRow, int endCol, int endRow, int value)
+	{
+		for(int chunkRow = startRow >> CHUNK_SHIFT; chunkRow <= endRow >> CHUNK_SHIFT; chunkRow++)
+		{
+			for(int chunkCol = startCol >> CHUNK_SHIFT; chunkCol <= endCol >> CHUNK_SHIFT; chunkCol++)
+			{
+				//Part of the rectangle within this chunk
+				int left = Math.max(startCol, chunkCol << CHUNK_SHIFT);
+				int right = Math.min(endCol, (chunkCol << CHUNK_SHIFT) | CHUNK_MASK);
+				int top = Math.max(startRow, chunkRow << CHUNK_SHIFT);
+				int bottom = Math.min(endRow, (chunkRow << CHUNK_SHIFT) | CHUNK_MASK);
+				
+				if(right - left == CHUNK_MASK && bottom - top == CHUNK_MASK)
+				{
+					//Whole chunk covered
+					chunks[chunkRow * numChunkCols + chunkCol] = value == 0 ? null : new PackedChunk(value);
+					ownedGeneration[chunkRow * numChunkCols + chunkCol] = generation;
+					continue;
+				}
+				
+				for(int i = top; i <= bottom; i++)
+				{
+					fillRow(i, left, right, value);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Method that repacks every chunk using only the values still in use
+	 * Chunks that no longer contain anything but 0 are removed
+	 */
+	public void compact()
+	{
+		for(int i = 0; i < chunks.length; i++)
+		{
+			if(chunks[i] != null)
+			{
+				chunks[i] = chunks[i].compact();
+				ownedGeneration[i] = generation;
+				
+				if(chunks[i].isEmpty())
+				{
+					chunks[i] = null;
+				}
+			}
+		}
+	}
+}
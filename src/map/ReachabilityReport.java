@@ -0,0 +1,74 @@
+package map;
+
+import java.util.ArrayList;
+
+import entity.GameObject;
+import entity.Point;
+
+/**
+ * ReachabilityReport class holds the outcome of checking which items and
+ * GameObjects can be reached from the spawn points (ReachabilityValidator)
+ * @author Vachia Thoj
+ *
+ */
+public class ReachabilityReport
+{
+	//Whether there were any spawn points to start from
+	private boolean hasSpawns;
+	
+	//Number of Tiles of the hitboxMap that can be reached
+	private int numReached;
+	
+	//Tiles of the itemMap holding an item that cannot be reached (x is the column and y the row)
+	private ArrayList<Point> unreachableItems;
+	
+	//GameObjects that cannot be reached
+	private ArrayList<GameObject> unreachableObjects;
+	
+	//How many times each map (and the spawn points) had changed when it was checked
+	private long hitboxModCount;
+	private long itemModCount;
+	private int objectModCount;
+	private int spawnModCount;
+	
+	//Time taken to check (milliseconds)
+	private double time;
+	
+	/**
+	 * Constructor
+	 * @param hasSpawns (boolean) true if there were spawn points, otherwise false
+	 * @param numReached (int) Number of Tiles that can be reached
+	 * @param unreachableItems (ArrayList<Point>) Tiles holding an item that cannot be reached
+	 * @param unreachableObjects (ArrayList<GameObject>) GameObjects that cannot be reached
+	 * @param hitboxModCount (long) mod count of the hitboxMap that was checked
+	 * @param itemModCount (long) mod count of the itemMap that was checked
+	 * @param objectModCount (int) mod count of the ObjectMap that was checked
+	 * @param spawnModCount (int) mod count of the spawn points that were checked
+	 * @param time (double) Time taken to check (milliseconds)
+	 */
+	public ReachabilityReport(boolean hasSpawns, int numReached, ArrayList<Point> unreachableItems, ArrayList<GameObject> unreachableObjects,
+			long hitboxModCount, long itemModCount, int objectModCount, int spawnModCount, double time)
+	{
+		this.hasSpawns = hasSpawns;
+		this.numReached = numReached;
+		this.unreachableItems = unreachableItems;
+		this.unreachableObjects = unreachableObjects;
+		this.hitboxModCount = hitboxModCount;
+		this.itemModCount = itemModCount;
+		this.objectModCount = objectModCount;
+		this.spawnModCount = spawnModCount;
+		this.time = time;
+	}
+	
+	//Getter methods
+	public boolean hasSpawns() {return hasSpawns;}
+	public int getNumReached() {return numReached;}
+	public ArrayList<Point> getUnreachableItems() {return unreachableItems;}
+	public ArrayList<GameObject> getUnreachableObjects() {return unreachableObjects;}
+	public int getNumUnreachable() {return unreachableItems.size() + unreachableObjects.size();}
+	public long getHitboxModCount() {return hitboxModCount;}
+	public long getItemModCount() {return itemModCount;}
+	public int getObjectModCount() {return objectModCount;}
+	public int getSpawnModCount() {return spawnModCount;}
+	public double getTime() {return time;}
+}
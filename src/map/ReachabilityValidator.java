@@ -0,0 +1,319 @@
+package map;
+
+import java.util.ArrayList;
+
+import entity.GameObject;
+import entity.Point;
+import graph.Reachability;
+
+/**
+ * ReachabilityValidator class checks, on a background thread, whether every
+ * item (a Tile of the itemMap with a value other than 0) and every GameObject
+ * can be walked to from a spawn point of the hitboxMap
+ *
+ * update() is called every frame; after the maps change it checks snapshots
+ * of them, so the latest report is ready (or nearly) by the time the maps are
+ * saved and saving never waits for it. The Tiles that can be reached are only
+ * found again when the hitboxMap or the spawn points change, and the itemMap
+ * is only copied and checked again when it or the reached Tiles change
+ * @author Vachia Thoj
+ *
+ */
+public class ReachabilityValidator
+{
+	//Maps being checked
+	private TileMap hitboxMap;
+	private TileMap itemMap;
+	private ObjectMap objectMap;
+	
+	//Finds the Tiles that can be reached (only used by validateThread)
+	private Reachability reachability;
+	
+	//Mod counts of the hitboxMap and spawn points reachability was found for
+	//(only used by validateThread)
+	private long reachedHitboxModCount;
+	private int reachedSpawnModCount;
+	
+	//Mod count of the hitboxMap last handed to validateThread
+	private long checkedHitboxModCount;
+	
+	//Mod count of the itemMap, and the snapshot of it, last handed to validateThread
+	//(the snapshot is null if the itemMap is too large to check)
+	private long checkedItemModCount;
+	private TileMap itemSnapshot;
+	
+	//The items found to be unreachable (only used by validateThread)
+	private ArrayList<Point> unreachableItems;
+	
+	//Thread checking the maps in the background
+	private Thread validateThread;
+	
+	//The latest report (written by validateThread)
+	private volatile ReachabilityReport report;
+	
+	//Reusable array for the values of part of a row while looking for items
+	private int[] rowValues;
+	
+	/**
+	 * Constructor
+	 * @param hitboxMap (TileMap) The hitboxMap (0 can be walked on) holding the spawn points
+	 * @param itemMap (TileMap) The itemMap
+	 * @param objectMap (ObjectMap) The objectMap
+	 */
+	public ReachabilityValidator(TileMap hitboxMap, TileMap itemMap, ObjectMap objectMap)
+	{
+		this.hitboxMap = hitboxMap;
+		this.itemMap = itemMap;
+		this.objectMap = objectMap;
+		
+		this.reachability = new Reachability();
+		this.reachedHitboxModCount = -1;
+		this.reachedSpawnModCount = -1;
+		this.checkedHitboxModCount = -1;
+		this.checkedItemModCount = -1;
+		this.itemSnapshot = null;
+		this.unreachableItems = new ArrayList<Point>();
+		this.validateThread = null;
+		this.report = null;
+		this.rowValues = new int[Layer.CHUNK_SIZE];
+	}
+	
+	//Getter methods
+	public ReachabilityReport getReport() {return report;}
+	public boolean isValidating() {return validateThread != null && validateThread.isAlive();}
+	
+	/**
+	 * Method that checks if the latest report is for the maps as they are now
+	 * @return true if the report is up to date, otherwise false
+	 */
+	public boolean isCurrent()
+	{
+		ReachabilityReport latest = report;
+		
+		return latest != null &&
+				latest.getHitboxModCount() == hitboxMap.getModCount() &&
+				latest.getItemModCount() == itemMap.getModCount() &&
+				latest.getObjectModCount() == objectMap.getModCount() &&
+				latest.getSpawnModCount() == hitboxMap.getSpawnModCount();
+	}
+	
+	/**
+	 * Method that starts checking the maps if they have changed since they
+	 * were last checked and no check is running
+	 * (called every frame on the thread that changes the maps)
+	 */
+	public void update()
+	{
+		//Layers streamed from disk (and other very large Layers) are too large to check
+		if(isValidating() || isCurrent() || !Reachability.canSearch(hitboxMap.getLayer()))
+		{
+			return;
+		}
+		
+		//Snapshots are taken here, as the maps may only be read on this thread;
+		//the hitboxMap and itemMap are only copied if they changed
+		final long hitboxModCount = hitboxMap.getModCount();
+		final TileMap hitboxSnapshot = hitboxModCount != checkedHitboxModCount ? hitboxMap.snapshot() : null;
+		final ArrayList<Point> spawnPoints = TileMap.copySpawnPoints(hitboxMap.getSpawnPoints());
+		final int spawnModCount = hitboxMap.getSpawnModCount();
+		final long itemModCount = itemMap.getModCount();
+		final boolean itemsChanged = itemModCount != checkedItemModCount;
+		
+		if(itemsChanged)
+		{
+			//The last check has finished with the old snapshot
+			if(itemSnapshot != null)
+			{
+				itemSnapshot.release();
+			}
+			
+			//Items of a Layer too large to search are not checked
+			itemSnapshot = Reachability.canSearch(itemMap.getLayer()) ? itemMap.snapshot() : null;
+		}
+		
+		final TileMap items = itemSnapshot;
+		final int objectModCount = objectMap.getModCount();
+		final ObjectMap objectSnapshot = objectMap.snapshot();
+		final int tileSize = hitboxMap.getTileSize();
+		final int startX = hitboxMap.getStartX();
+		final int startY = hitboxMap.getStartY();
+		
+		checkedHitboxModCount = hitboxModCount;
+		checkedItemModCount = itemModCount;
+		
+		validateThread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				long startTime = System.nanoTime();
+				
+				boolean reachedChanged = hitboxSnapshot != null || spawnModCount != reachedSpawnModCount;
+				
+				if(reachedChanged)
+				{
+					findReached(hitboxSnapshot, spawnPoints);
+					reachedHitboxModCount = hitboxModCount;
+					reachedSpawnModCount = spawnModCount;
+				}
+				
+				//Items are only checked again when they or the reached Tiles changed
+				if(reachedChanged || itemsChanged)
+				{
+					unreachableItems = (items != null) ? findUnreachableItems(items.getLayer()) : new ArrayList<Point>();
+				}
+				
+				ArrayList<GameObject> unreachableObjects = findUnreachableObjects(objectSnapshot, tileSize, startX, startY);
+				
+				report = new ReachabilityReport(!spawnPoints.isEmpty(), reachability.getNumReached(), unreachableItems, unreachableObjects,
+						reachedHitboxModCount, itemModCount, objectModCount, spawnModCount, (System.nanoTime() - startTime) / 1e6);
+				
+				//Reachability keeps its own copy of the hitboxMap
+				if(hitboxSnapshot != null)
+				{
+					hitboxSnapshot.release();
+				}
+			}
+		});
+		
+		validateThread.setDaemon(true);
+		validateThread.start();
+	}
+	
+	/**
+	 * Method that waits until a check running in the background has finished
+	 */
+	public void waitForValidation()
+	{
+		if(validateThread == null)
+		{
+			return;
+		}
+		
+		try {
+			validateThread.join();
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Method that finds every Tile that can be reached from the spawn points
+	 * @param hitboxSnapshot (TileMap) A snapshot of the hitboxMap, or null if it has not changed
+	 * @param spawnPoints (ArrayList<Point>) The spawn points
+	 */
+	private void findReached(TileMap hitboxSnapshot, ArrayList<Point> spawnPoints)
+	{
+		if(hitboxSnapshot != null)
+		{
+			reachability.setLayer(hitboxSnapshot.getLayer());
+		}
+		else
+		{
+			reachability.clearReached();
+		}
+		
+		for(int i = 0; i < spawnPoints.size(); i++)
+		{
+			reachability.reachFrom(spawnPoints.get(i).getX(), spawnPoints.get(i).getY());
+		}
+	}
+	
+	/**
+	 * Method that finds the items that cannot be reached
+	 * An item on a blocked Tile (i.e. a chest against a wall) counts as
+	 * reached if a Tile next to it is reached. Only the chunks of the
+	 * itemMap that are stored are looked at
+	 * @param items (Layer) The values of the itemMap
+	 * @return the Tiles holding an item that cannot be reached
+	 */
+	private ArrayList<Point> findUnreachableItems(Layer items)
+	{
+		ArrayList<Point> unreachable = new ArrayList<Point>();
+		long[] chunks = items.getStoredChunks();
+		
+		for(int n = 0; n < chunks.length; n++)
+		{
+			int chunkStartCol = DirtyTracker.keyCol(chunks[n]) << Layer.CHUNK_SHIFT;
+			int chunkStartRow = DirtyTracker.keyRow(chunks[n]) << Layer.CHUNK_SHIFT;
+			int chunkEndCol = Math.min(chunkStartCol + Layer.CHUNK_SIZE, items.getNumCols()) - 1;
+			int chunkEndRow = Math.min(chunkStartRow + Layer.CHUNK_SIZE, items.getNumRows()) - 1;
+			
+			for(int i = chunkStartRow; i <= chunkEndRow; i++)
+			{
+				items.readRow(i, chunkStartCol, chunkEndCol, rowValues);
+				
+				for(int j = chunkStartCol; j <= chunkEndCol; j++)
+				{
+					if(rowValues[j - chunkStartCol] != 0 && !reachability.isNextToReached(j, i))
+					{
+						unreachable.add(new Point(j, i));
+					}
+				}
+			}
+		}
+		
+		return unreachable;
+	}
+	
+	/**
+	 * Method that finds the GameObjects that cannot be reached
+	 * A GameObject counts as reached if a Tile it covers, or a Tile next to
+	 * one it covers, is reached
+	 * @param objects (ObjectMap) The objectMap
+	 * @param tileSize (int) size of a Tile of the hitboxMap (pixels)
+	 * @param startX (int) x-coordinate where the hitboxMap starts
+	 * @param startY (int) y-coordinate where the hitboxMap starts
+	 * @return the GameObjects that cannot be reached
+	 */
+	private ArrayList<GameObject> findUnreachableObjects(ObjectMap objects, int tileSize, int startX, int startY)
+	{
+		ArrayList<GameObject> unreachable = new ArrayList<GameObject>();
+		ArrayList<GameObject> gameObjects = objects.getGameObjects();
+		
+		for(int n = 0; n < gameObjects.size(); n++)
+		{
+			GameObject gameObject = gameObjects.get(n);
+			int firstCol = Math.floorDiv(gameObject.getX() - startX, tileSize);
+			int firstRow = Math.floorDiv(gameObject.getY() - startY, tileSize);
+			int lastCol = Math.floorDiv(gameObject.getX() + Math.max(gameObject.getWidth(), 1) - 1 - startX, tileSize);
+			int lastRow = Math.floorDiv(gameObject.getY() + Math.max(gameObject.getHeight(), 1) - 1 - startY, tileSize);
+			
+			if(!isAreaReached(firstCol, firstRow, lastCol, lastRow))
+			{
+				unreachable.add(gameObject);
+			}
+		}
+		
+		return unreachable;
+	}
+	
+	/**
+	 * Method that checks if any Tile of an area, or next to it, is reached
+	 * @param firstCol (int) The first column
+	 * @param firstRow (int) The first row
+	 * @param lastCol (int) The last column (inclusive)
+	 * @param lastRow (int) The last row (inclusive)
+	 * @return true if a Tile is reached, otherwise false
+	 */
+	private boolean isAreaReached(int firstCol, int firstRow, int lastCol, int lastRow)
+	{
+		//Only the part of the area on the map (and the Tiles around it) can be reached
+		firstCol = Math.max(firstCol, -1);
+		firstRow = Math.max(firstRow, -1);
+		lastCol = Math.min(lastCol, reachability.getNumCols());
+		lastRow = Math.min(lastRow, reachability.getNumRows());
+		
+		for(int i = firstRow; i <= lastRow; i++)
+		{
+			for(int j = firstCol; j <= lastCol; j++)
+			{
+				if(reachability.isNextToReached(j, i))
+				{
+					return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+}
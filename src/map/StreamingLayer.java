@@ -0,0 +1,697 @@
+package map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * StreamingLayer class stores a very large ("infinite") Layer as chunk files
+ * within a directory, keeping only a limited number of chunks in memory
+ * 
+ * Chunks are read from disk when first used (TileMap.update asks for the chunks
+ * around the Camera ahead of time). When more than maxResidentChunks chunks are
+ * in memory, the chunk used least recently is removed, and written back to
+ * disk first if it has changed. A chunk that only contains 0 has no file
+ * 
+ * A snapshot reads the same directory; before this Layer first writes a chunk
+ * file after the snapshot was taken, the old file is copied to a directory of
+ * the snapshot, so the snapshot keeps the values it was taken with. Chunk
+ * files are written to a temporary file first and then moved over the old one
+ * @author Vachia Thoj
+ *
+ */
+public class StreamingLayer extends Layer
+{
+	//For serialization
+	private static final long serialVersionUID = 1L;
+	
+	//Path of the directory holding the chunk files
+	private String directoryPath;
+	
+	//Maximum number of chunks kept in memory
+	private int maxResidentChunks;
+	
+	//Chunks in memory, least recently used first
+	private transient LinkedHashMap<Long, short[]> residentChunks;
+	
+	//Chunks in memory that have changed since they were read from disk
+	private transient HashSet<Long> changedChunks;
+	
+	//Flag to see if the directory is a temporary directory (deleted when the program exits)
+	private transient boolean temporary;
+	
+	//Flag to see if the chunks are written into the save file instead of only the directory path
+	private boolean valuesSaved;
+	
+	//Snapshots of this Layer that are still in use
+	private transient CopyOnWriteArrayList<StreamingLayer> snapshots;
+	
+	//The Layer this Layer is a snapshot of (null if it is not a snapshot, or has been released)
+	private transient StreamingLayer source;
+	
+	//Directory holding the old files of the chunks the source has written since this
+	//snapshot was taken (created when first needed), and the keys of those chunks
+	private transient File preservedDirectory;
+	private transient HashSet<Long> preservedChunks;
+	
+	//Temporary directories to delete when the program exits
+	private static final HashSet<File> temporaryDirectories = new HashSet<File>();
+	private static boolean deleteHookAdded = false;
+	
+	//The shared chunk for chunks that only contain 0; never written to
+	private static final short[] EMPTY_CHUNK = new short[CHUNK_SIZE * CHUNK_SIZE];
+	
+	//Number of columns and rows of a StreamingLayer
+	//(16,777,216 x 16,777,216; the pixel size of the map still fits in an int)
+	public static final int WORLD_SIZE = 1 << 24;
+	
+	//Default maximum number of chunks kept in memory (about 512 KB)
+	public static final int DEFAULT_MAX_RESIDENT_CHUNKS = 256;
+	
+	/**
+	 * Constructor
+	 * Opens (or creates) the directory holding the chunk files
+	 * @param directoryPath (String) path of the directory holding the chunk files
+	 * @param maxResidentChunks (int) maximum number of chunks kept in memory
+	 */
+	public StreamingLayer(String directoryPath, int maxResidentChunks)
+	{
+		super(WORLD_SIZE, WORLD_SIZE);
+		
+		this.directoryPath = directoryPath;
+		this.maxResidentChunks = maxResidentChunks;
+		this.temporary = false;
+		this.snapshots = new CopyOnWriteArrayList<StreamingLayer>();
+		
+		new File(directoryPath).mkdirs();
+		
+		createResidentChunks();
+	}
+	
+	/**
+	 * Constructor
+	 * Creates a snapshot of a StreamingLayer that reads the same directory
+	 * @param source (StreamingLayer) The Layer to take a snapshot of
+	 */
+	private StreamingLayer(StreamingLayer source)
+	{
+		super(WORLD_SIZE, WORLD_SIZE);
+		
+		this.directoryPath = source.directoryPath;
+		this.maxResidentChunks = source.maxResidentChunks;
+		this.temporary = source.temporary;
+		this.snapshots = new CopyOnWriteArrayList<StreamingLayer>();
+		this.source = source;
+		this.preservedDirectory = null;
+		this.preservedChunks = new HashSet<Long>();
+		
+		createResidentChunks();
+	}
+	
+	/**
+	 * Method that creates a StreamingLayer within a new temporary directory
+	 * The directory and its chunk files are deleted when the program exits
+	 * @return a new StreamingLayer where every value is 0
+	 */
+	public static StreamingLayer createTemporary() throws IOException
+	{
+		StreamingLayer layer = new StreamingLayer(createTemporaryDirectory().getPath(), DEFAULT_MAX_RESIDENT_CHUNKS);
+		layer.temporary = true;
+		
+		return layer;
+	}
+	
+	/**
+	 * Method that creates a new temporary directory that is deleted, with
+	 * every file in it, when the program exits
+	 * @return the directory
+	 */
+	private static File createTemporaryDirectory() throws IOException
+	{
+		File directory = Files.createTempDirectory("TileMap").toFile();
+		
+		synchronized(temporaryDirectories)
+		{
+			//Delete the directories when the program exits
+			//(File.deleteOnExit does not delete a directory that still has files)
+			if(!deleteHookAdded)
+			{
+				Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+				{
+					public void run()
+					{
+						synchronized(temporaryDirectories)
+						{
+							for(File directory : temporaryDirectories)
+							{
+								deleteDirectory(directory);
+							}
+						}
+					}
+				}));
+				
+				deleteHookAdded = true;
+			}
+			
+			temporaryDirectories.add(directory);
+		}
+		
+		return directory;
+	}
+	
+	/**
+	 * Method that deletes a directory and every file in it
+	 * @param directory (File) The directory
+	 */
+	private static void deleteDirectory(File directory)
+	{
+		File[] files = directory.listFiles();
+		
+		for(int i = 0; files != null && i < files.length; i++)
+		{
+			files[i].delete();
+		}
+		
+		directory.delete();
+	}
+	
+	/**
+	 * Method that creates the (empty) list of chunks in memory
+	 */
+	private void createResidentChunks()
+	{
+		changedChunks = new HashSet<Long>();
+		
+		residentChunks = new LinkedHashMap<Long, short[]>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+			
+			protected boolean removeEldestEntry(Map.Entry<Long, short[]> eldest)
+			{
+				if(size() <= maxResidentChunks)
+				{
+					return false;
+				}
+				
+				//Write the chunk back before forgetting it
+				if(changedChunks.remove(eldest.getKey()))
+				{
+					writeChunk(eldest.getKey(), eldest.getValue());
+				}
+				
+				return true;
+			}
+		};
+	}
+	
+	//Getter methods
+	public LayerType getLayerType() {return LayerType.STREAMING;}
+	public String getDirectoryPath() {return directoryPath;}
+	public int getMaxResidentChunks() {return maxResidentChunks;}
+	public int getNumResidentChunks() {return residentChunks.size();}
+	public int getNumChangedChunks() {return changedChunks.size();}
+	public boolean isTemporary() {return temporary;}
+	public boolean isSnapshot() {return preservedChunks != null;}
+	
+	/**
+	 * Method that obtains the file of a chunk
+	 * @param key (long) key of the chunk (see DirtyTracker.chunkKey)
+	 * @return the file
+	 */
+	private File chunkFile(long key)
+	{
+		return new File(directoryPath, DirtyTracker.keyCol(key) + "_" + DirtyTracker.keyRow(key) + ".chunk");
+	}
+	
+	/**
+	 * Method that reads a chunk from disk
+	 * A snapshot reads the old file of a chunk the source has written since
+	 * @param key (long) key of the chunk
+	 * @return the chunk, or the shared "empty" chunk if it has no file
+	 */
+	private short[] readChunk(long key)
+	{
+		if(preservedChunks == null)
+		{
+			return readChunkFile(chunkFile(key));
+		}
+		
+		//Keep the source from replacing the file while it is read
+		synchronized(this)
+		{
+			if(preservedChunks.contains(key))
+			{
+				return readChunkFile(new File(preservedDirectory, chunkFile(key).getName()));
+			}
+			
+			return readChunkFile(chunkFile(key));
+		}
+	}
+	
+	/**
+	 * Method that reads a chunk from a file
+	 * @param file (File) The file of the chunk
+	 * @return the chunk, or the shared "empty" chunk if there is no file
+	 */
+	private short[] readChunkFile(File file)
+	{
+		if(!file.exists())
+		{
+			return EMPTY_CHUNK;
+		}
+		
+		short[] chunk = new short[CHUNK_SIZE * CHUNK_SIZE];
+		
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			for(int i = 0; i < chunk.length; i++)
+			{
+				chunk[i] = in.readShort();
+			}
+		}catch(IOException e) {
+			e.printStackTrace();
+			System.out.println("FAILED to READ CHUNK " + file.getName());
+		}
+		
+		return chunk;
+	}
+	
+	/**
+	 * Method that writes a chunk to disk
+	 * A chunk that only contains 0 has its file deleted instead. The chunk is
+	 * written to a temporary file that then replaces the old file, so the file
+	 * is never left half written
+	 * @param key (long) key of the chunk
+	 * @param chunk (short[]) the chunk
+	 */
+	private void writeChunk(long key, short[] chunk)
+	{
+		File file = chunkFile(key);
+		
+		//Snapshots keep the old file
+		for(StreamingLayer snapshot : snapshots)
+		{
+			snapshot.preserveChunk(key, file);
+		}
+		
+		boolean empty = true;
+		for(int i = 0; i < chunk.length && empty; i++)
+		{
+			empty = (chunk[i] == 0);
+		}
+		
+		if(empty)
+		{
+			file.delete();
+			return;
+		}
+		
+		File tempFile = new File(directoryPath, file.getName() + ".tmp");
+		
+		try {
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+				for(int i = 0; i < chunk.length; i++)
+				{
+					out.writeShort(chunk[i]);
+				}
+			}
+			
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}catch(IOException e) {
+			e.printStackTrace();
+			System.out.println("FAILED to WRITE CHUNK " + file.getName());
+		}
+	}
+	
+	/**
+	 * Method that keeps the file a chunk has on disk, as the source is about to replace it
+	 * @param key (long) key of the chunk
+	 * @param file (File) The file of the chunk
+	 */
+	private synchronized void preserveChunk(long key, File file)
+	{
+		if(source == null || preservedChunks.contains(key))
+		{
+			return;
+		}
+		
+		try {
+			if(preservedDirectory == null)
+			{
+				preservedDirectory = createTemporaryDirectory();
+			}
+			
+			if(file.exists())
+			{
+				Files.copy(file.toPath(), new File(preservedDirectory, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			
+			preservedChunks.add(key);
+		}catch(IOException e) {
+			e.printStackTrace();
+			System.out.println("FAILED to KEEP CHUNK " + file.getName());
+		}
+	}
+	
+	/**
+	 * Method that obtains a chunk, reading it from disk if it is not in memory
+	 * @param chunkCol (int) column of the chunk
+	 * @param chunkRow (int) row of the chunk
+	 * @return the chunk
+	 */
+	private short[] chunk(int chunkCol, int chunkRow)
+	{
+		long key = DirtyTracker.chunkKey(chunkCol, chunkRow);
+		short[] chunk = residentChunks.get(key);
+		
+		if(chunk == null)
+		{
+			chunk = readChunk(key);
+			residentChunks.put(key, chunk);
+		}
+		
+		return chunk;
+	}
+	
+	/**
+	 * Method that obtains a chunk that can be written to and marks it as changed
+	 * @param chunkCol (int) column of the chunk
+	 * @param chunkRow (int) row of the chunk
+	 * @return the chunk
+	 */
+	private short[] writableChunk(int chunkCol, int chunkRow)
+	{
+		if(preservedChunks != null)
+		{
+			throw new UnsupportedOperationException("A snapshot of a StreamingLayer can not be changed");
+		}
+		
+		short[] chunk = chunk(chunkCol, chunkRow);
+		long key = DirtyTracker.chunkKey(chunkCol, chunkRow);
+		
+		if(chunk == EMPTY_CHUNK)
+		{
+			chunk = new short[CHUNK_SIZE * CHUNK_SIZE];
+			residentChunks.put(key, chunk);
+		}
+		
+		changedChunks.add(key);
+		
+		return chunk;
+	}
+	
+	public int getValue(int col, int row)
+	{
+		return chunk(col >> CHUNK_SHIFT, row >> CHUNK_SHIFT)[((row & CHUNK_MASK) << CHUNK_SHIFT) + (col & CHUNK_MASK)];
+	}
+	
+	public void setValue(int col, int row, int value)
+	{
+		//Writing 0 to an "empty" chunk changes nothing
+		if(value == 0 && chunk(col >> CHUNK_SHIFT, row >> CHUNK_SHIFT) == EMPTY_CHUNK)
+		{
+			return;
+		}
+		
+		writableChunk(col >> CHUNK_SHIFT, row >> CHUNK_SHIFT)[((row & CHUNK_MASK) << CHUNK_SHIFT) + (col & CHUNK_MASK)] = (short) value;
+	}
+	
+	public void readRow(int row, int startCol, int endCol, int[] out)
+	{
+		int rowInChunk = (row & CHUNK_MASK) << CHUNK_SHIFT;
+		
+		int j = startCol;
+		while(j <= endCol)
+		{
+			//Read up to the end of the chunk
+			short[] chunk = chunk(j >> CHUNK_SHIFT, row >> CHUNK_SHIFT);
+			int chunkEnd = Math.min(endCol, j | CHUNK_MASK);
+			
+			for(; j <= chunkEnd; j++)
+			{
+				out[j - startCol] = chunk[rowInChunk + (j & CHUNK_MASK)];
+			}
+		}
+	}
+	
+	public void fillRow(int row, int startCol, int endCol, int value)
+	{
+		int rowInChunk = (row & CHUNK_MASK) << CHUNK_SHIFT;
+		
+		int j = startCol;
+		while(j <= endCol)
+		{
+			int chunkEnd = Math.min(endCol, j | CHUNK_MASK);
+			
+			//Writing 0 to an "empty" chunk changes nothing
+			if(value != 0 || chunk(j >> CHUNK_SHIFT, row >> CHUNK_SHIFT) != EMPTY_CHUNK)
+			{
+				short[] chunk = writableChunk(j >> CHUNK_SHIFT, row >> CHUNK_SHIFT);
+				
+				for(int k = j; k <= chunkEnd; k++)
+				{
+					chunk[rowInChunk + (k & CHUNK_MASK)] = (short) value;
+				}
+			}
+			
+			j = chunkEnd + 1;
+		}
+	}
+	
+	/**
+	 * Method that reads the chunks within a rectangle from disk ahead of
+	 * drawing them (i.e. the part of the Layer around the Camera)
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 */
+	public void prepareRegion(int startCol, int startRow, int endCol, int endRow)
+	{
+		for(int i = startRow >> CHUNK_SHIFT; i <= endRow >> CHUNK_SHIFT; i++)
+		{
+			for(int j = startCol >> CHUNK_SHIFT; j <= endCol >> CHUNK_SHIFT; j++)
+			{
+				chunk(j, i);
+			}
+		}
+	}
+	
+	/**
+	 * Method that writes every changed chunk in memory back to disk
+	 */
+	public void flush()
+	{
+		for(Long key : changedChunks)
+		{
+			writeChunk(key, residentChunks.get(key));
+		}
+		
+		changedChunks.clear();
+	}
+	
+	/**
+	 * Method that obtains the chunks that have a file
+	 * (the other chunks only contain 0)
+	 * Changed chunks are written back first
+	 * @return the keys of the chunks (see DirtyTracker.chunkKey)
+	 */
+	public long[] getStoredChunks()
+	{
+		flush();
+		
+		if(preservedChunks == null)
+		{
+			return listChunks(new File(directoryPath), null);
+		}
+		
+		synchronized(this)
+		{
+			//Chunks the source has not written since, and the old files of those it has
+			long[] current = listChunks(new File(directoryPath), preservedChunks);
+			long[] preserved = preservedDirectory != null ? listChunks(preservedDirectory, null) : new long[0];
+			
+			long[] keys = Arrays.copyOf(current, current.length + preserved.length);
+			System.arraycopy(preserved, 0, keys, current.length, preserved.length);
+			
+			return keys;
+		}
+	}
+	
+	/**
+	 * Method that obtains the chunks that have a file within a directory
+	 * @param directory (File) The directory
+	 * @param skippedChunks (HashSet<Long>) Keys of chunks to leave out, or null
+	 * @return the keys of the chunks (see DirtyTracker.chunkKey)
+	 */
+	private static long[] listChunks(File directory, HashSet<Long> skippedChunks)
+	{
+		String[] names = directory.list();
+		if(names == null)
+		{
+			return new long[0];
+		}
+		
+		long[] keys = new long[names.length];
+		
+		int n = 0;
+		for(int i = 0; i < names.length; i++)
+		{
+			//File names are <chunkCol>_<chunkRow>.chunk
+			int separator = names[i].indexOf('_');
+			if(separator < 0 || !names[i].endsWith(".chunk"))
+			{
+				continue;
+			}
+			
+			try {
+				int chunkCol = Integer.parseInt(names[i].substring(0, separator));
+				int chunkRow = Integer.parseInt(names[i].substring(separator + 1, names[i].length() - 6));
+				keys[n] = DirtyTracker.chunkKey(chunkCol, chunkRow);
+				
+				if(skippedChunks == null || !skippedChunks.contains(keys[n]))
+				{
+					++n;
+				}
+			}catch(NumberFormatException e) {
+				System.out.println("SKIPPED FILE " + names[i]);
+			}
+		}
+		
+		return Arrays.copyOf(keys, n);
+	}
+	
+	/**
+	 * Method that creates a snapshot of the Layer
+	 * The changed chunks are written back and the snapshot reads the same
+	 * directory; this Layer copies a chunk file to the snapshot before it
+	 * first replaces it afterwards. The snapshot should be released once it
+	 * is no longer needed
+	 * @return a new StreamingLayer that keeps the values this Layer has now
+	 */
+	public Layer snapshot()
+	{
+		if(preservedChunks != null)
+		{
+			throw new UnsupportedOperationException("Can not take a snapshot of a snapshot of a StreamingLayer");
+		}
+		
+		flush();
+		
+		StreamingLayer snapshot = new StreamingLayer(this);
+		snapshots.add(snapshot);
+		
+		return snapshot;
+	}
+	
+	/**
+	 * Method that stops the snapshot from keeping the values of its source
+	 * and deletes the chunk files it kept; the snapshot can not be used afterwards
+	 */
+	public synchronized void release()
+	{
+		if(source == null)
+		{
+			return;
+		}
+		
+		source.snapshots.remove(this);
+		source = null;
+		preservedChunks.clear();
+		residentChunks.clear();
+		
+		if(preservedDirectory != null)
+		{
+			deleteDirectory(preservedDirectory);
+			
+			synchronized(temporaryDirectories)
+			{
+				temporaryDirectories.remove(preservedDirectory);
+			}
+			
+			preservedDirectory = null;
+		}
+	}
+	
+	/**
+	 * Method that writes the Layer to a save file
+	 * The chunk files of a temporary directory are deleted when the program
+	 * exits, so they are written into the save file; otherwise changed chunks
+	 * are written back and only the directory path is saved
+	 * @param out (ObjectOutputStream) The stream to write to
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		valuesSaved = temporary;
+		
+		flush();
+		out.defaultWriteObject();
+		
+		if(!valuesSaved)
+		{
+			return;
+		}
+		
+		long[] keys = getStoredChunks();
+		out.writeInt(keys.length);
+		
+		for(int n = 0; n < keys.length; n++)
+		{
+			short[] chunk = readChunk(keys[n]);
+			
+			out.writeLong(keys[n]);
+			for(int i = 0; i < chunk.length; i++)
+			{
+				out.writeShort(chunk[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Method that reads the Layer from a save file
+	 * Chunks written into the save file are written to a new temporary directory
+	 * @param in (ObjectInputStream) The stream to read from
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		
+		createResidentChunks();
+		snapshots = new CopyOnWriteArrayList<StreamingLayer>();
+		temporary = valuesSaved;
+		
+		if(!valuesSaved)
+		{
+			return;
+		}
+		
+		directoryPath = createTemporaryDirectory().getPath();
+		
+		int numChunks = in.readInt();
+		short[] chunk = new short[CHUNK_SIZE * CHUNK_SIZE];
+		
+		for(int n = 0; n < numChunks; n++)
+		{
+			long key = in.readLong();
+			for(int i = 0; i < chunk.length; i++)
+			{
+				chunk[i] = in.readShort();
+			}
+			
+			writeChunk(key, chunk);
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package map;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * TileIndex class keeps count of the values of a TileMap's Tiles
+ * 
+ * For every value it keeps the number of Tiles with that value and the chunks
+ * (Layer.CHUNK_SIZE x Layer.CHUNK_SIZE) containing at least one of them, so
+ * "how many" and "where" do not need to look at every Tile of the TileMap.
+ * Each change to a Tile updates the TileIndex in constant time
+ * 
+ * Only values other than 0 ("blank") are indexed by chunk; the number of
+ * blank Tiles is the number of Tiles that are not blank subtracted from the
+ * number of Tiles in the TileMap
+ * @author Vachia Thoj
+ *
+ */
+public class TileIndex
+{
+	//Number of Tiles in the TileMap
+	private long numTiles;
+	
+	//Number of Tiles with each value (index = value; index 0 is not used)
+	private long[] counts;
+	
+	//Number of Tiles that are not blank
+	private long numNonBlankTiles;
+	
+	//Number of Tiles with each value in each chunk that is not blank
+	//(index = value; index 0 holds the number of Tiles that are not blank)
+	private HashMap<Long, int[]> chunkCounts;
+	
+	//Chunks containing each value (index = value)
+	private ArrayList<HashSet<Long>> valueChunks;
+	
+	//Last chunk looked up; most changes are made within one chunk
+	private long lastKey;
+	private int[] lastChunkCounts;
+	
+	/**
+	 * Constructor
+	 * Creates a TileIndex for a Layer where every value is 0
+	 * (use scan to add the values of a Layer that is not blank)
+	 * @param layer (Layer) The Layer of the TileMap
+	 */
+	public TileIndex(Layer layer)
+	{
+		this.numTiles = (long) layer.getNumCols() * layer.getNumRows();
+		this.counts = new long[16];
+		this.numNonBlankTiles = 0;
+		this.chunkCounts = new HashMap<Long, int[]>();
+		this.valueChunks = new ArrayList<HashSet<Long>>();
+		this.lastChunkCounts = null;
+	}
+	
+	/**
+	 * Method that adds every value of a Layer to the TileIndex
+	 * Only the chunks the Layer has stored are looked at
+	 * @param layer (Layer) The Layer to add
+	 */
+	public void scan(Layer layer)
+	{
+		long[] keys = layer.getStoredChunks();
+		int[] values = new int[Layer.CHUNK_SIZE];
+		
+		for(int n = 0; n < keys.length; n++)
+		{
+			int startCol = DirtyTracker.keyCol(keys[n]) << Layer.CHUNK_SHIFT;
+			int startRow = DirtyTracker.keyRow(keys[n]) << Layer.CHUNK_SHIFT;
+			int endCol = Math.min(startCol + Layer.CHUNK_SIZE, layer.getNumCols()) - 1;
+			int endRow = Math.min(startRow + Layer.CHUNK_SIZE, layer.getNumRows()) - 1;
+			
+			for(int i = startRow; i <= endRow; i++)
+			{
+				layer.readRow(i, startCol, endCol, values);
+				
+				for(int j = startCol; j <= endCol; j++)
+				{
+					if(values[j - startCol] != 0)
+					{
+						change(j, i, 0, values[j - startCol]);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Method to be called for every Tile of the TileMap that changes
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @param oldValue (int) The value the Tile had
+	 * @param newValue (int) The value the Tile has now
+	 */
+	public void change(int col, int row, int oldValue, int newValue)
+	{
+		if(oldValue == newValue)
+		{
+			return;
+		}
+		
+		long key = DirtyTracker.chunkKey(col >> Layer.CHUNK_SHIFT, row >> Layer.CHUNK_SHIFT);
+		int[] chunk = chunkCounts(key, newValue);
+		
+		if(oldValue != 0)
+		{
+			--counts[oldValue];
+			--numNonBlankTiles;
+			--chunk[0];
+			
+			//Last Tile with the old value in this chunk
+			if(--chunk[oldValue] == 0)
+			{
+				valueChunks.get(oldValue).remove(key);
+			}
+		}
+		
+		if(newValue != 0)
+		{
+			++counts[newValue];
+			++numNonBlankTiles;
+			++chunk[0];
+			
+			//First Tile with the new value in this chunk
+			if(chunk[newValue]++ == 0)
+			{
+				valueChunks.get(newValue).add(key);
+			}
+		}
+		
+		//Forget chunks that are blank again
+		if(chunk[0] == 0)
+		{
+			chunkCounts.remove(key);
+			lastChunkCounts = null;
+		}
+	}
+	
+	/**
+	 * Method that obtains the counts of a chunk, creating them if needed
+	 * The counts (and the count of every value) have room for value
+	 * @param key (long) key of the chunk
+	 * @param value (int) The value that is about to be counted
+	 * @return the counts of the chunk
+	 */
+	private int[] chunkCounts(long key, int value)
+	{
+		if(value >= counts.length)
+		{
+			long[] newCounts = new long[Math.max(value + 1, counts.length * 2)];
+			System.arraycopy(counts, 0, newCounts, 0, counts.length);
+			counts = newCounts;
+		}
+		
+		while(valueChunks.size() <= value)
+		{
+			valueChunks.add(new HashSet<Long>());
+		}
+		
+		int[] chunk = (lastChunkCounts != null && lastKey == key) ? lastChunkCounts : chunkCounts.get(key);
+		
+		if(chunk == null)
+		{
+			chunk = new int[Math.max(value + 1, 4)];
+			chunkCounts.put(key, chunk);
+		}
+		else if(value >= chunk.length)
+		{
+			int[] newChunk = new int[Math.max(value + 1, chunk.length * 2)];
+			System.arraycopy(chunk, 0, newChunk, 0, chunk.length);
+			chunk = newChunk;
+			chunkCounts.put(key, chunk);
+		}
+		
+		lastKey = key;
+		lastChunkCounts = chunk;
+		
+		return chunk;
+	}
+	
+	/**
+	 * Method that obtains the number of Tiles with a value
+	 * @param value (int) The value
+	 * @return the number of Tiles with the value
+	 */
+	public long getCount(int value)
+	{
+		if(value == 0)
+		{
+			return numTiles - numNonBlankTiles;
+		}
+		
+		return (value > 0 && value < counts.length) ? counts[value] : 0;
+	}
+	
+	/**
+	 * Method that obtains the number of Tiles with a value within a chunk
+	 * @param value (int) The value (other than 0)
+	 * @param chunkCol (int) column of the chunk
+	 * @param chunkRow (int) row of the chunk
+	 * @return the number of Tiles with the value within the chunk
+	 */
+	public int getChunkCount(int value, int chunkCol, int chunkRow)
+	{
+		int[] chunk = chunkCounts.get(DirtyTracker.chunkKey(chunkCol, chunkRow));
+		
+		return (chunk != null && value > 0 && value < chunk.length) ? chunk[value] : 0;
+	}
+	
+	/**
+	 * Method that obtains the values (other than 0) that at least one Tile has
+	 * @return the values, smallest first
+	 */
+	public int[] getValues()
+	{
+		int numValues = 0;
+		for(int i = 1; i < counts.length; i++)
+		{
+			if(counts[i] > 0)
+			{
+				++numValues;
+			}
+		}
+		
+		int[] values = new int[numValues];
+		
+		int n = 0;
+		for(int i = 1; i < counts.length; i++)
+		{
+			if(counts[i] > 0)
+			{
+				values[n] = i;
+				++n;
+			}
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Method that obtains the chunks containing at least one Tile with a value
+	 * @param value (int) The value (other than 0)
+	 * @return the keys of the chunks (see DirtyTracker.chunkKey)
+	 */
+	public long[] getChunks(int value)
+	{
+		if(value <= 0 || value >= valueChunks.size())
+		{
+			return new long[0];
+		}
+		
+		HashSet<Long> chunks = valueChunks.get(value);
+		long[] keys = new long[chunks.size()];
+		
+		int i = 0;
+		for(Long key : chunks)
+		{
+			keys[i] = key;
+			++i;
+		}
+		
+		return keys;
+	}
+}
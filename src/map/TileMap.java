@@ -2,12 +2,18 @@ package map;
 
 import java.awt.image.BufferedImage;
 import java.awt.Graphics2D;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 
 import entity.Camera;
+import entity.Point;
 import entity.Tile;
-import graph.*;
+import graph.ComponentAnalysis;
+import graph.ComponentLabels;
+import graph.PathFinder;
+import graph.ScanlineFill;
 
 /**
  * TileMap class represents a map (Tile Map)
@@ -38,8 +44,8 @@ public class TileMap implements Serializable
 	private int numCols;
 	private int numRows;
 	
-	//The TileMap as a 2D array
-	private Tile[][] map;
+	//The value of every Tile in the TileMap
+	private Layer layer;
 	
 	//Column and row of map to start and end render/draw map
 	private transient int startCol;
@@ -56,6 +62,54 @@ public class TileMap implements Serializable
 	
 	private transient BufferedImage[] images;
 	
+	//Reusable array for the values of one row while drawing
+	private transient int[] rowValues;
+	
+	//Keeps track of the chunks that have changed
+	private transient DirtyTracker dirtyTracker;
+	
+	//Counts the Tiles of each value; created when first needed
+	private transient TileIndex tileIndex;
+	
+	//Reusable array for the old values of one row while changing it
+	private transient int[] oldValues;
+	
+	//Finds the Tiles to change when filling; created when first needed
+	private transient ScanlineFill scanlineFill;
+	
+	//Components (regions of connected Tiles with the same value); created when first needed
+	private transient ComponentLabels componentLabels;
+	
+	//Finds every component at once for analyzeComponents; created when first needed
+	//(keeps its arrays and pool between analyses)
+	private transient ComponentAnalysis componentAnalysis;
+	
+	//Limits of a fill; the maximum number of Tiles and the time (milliseconds)
+	private transient int maxFillTiles;
+	private transient long fillTimeBudget;
+	
+	//Default limits of a fill
+	public static final int DEFAULT_MAX_FILL_TILES = 1 << 20;
+	public static final long DEFAULT_FILL_TIME_BUDGET = 50;
+	
+	//Number of columns (and rows) around the starting Tile a fill of the
+	//whole TileMap may look at; keeps the fill's visited bitmap small (2 MB)
+	//on very large TileMaps, and a row of it within the chunks a
+	//StreamingLayer keeps in memory
+	private static final int FILL_RANGE = 2048;
+	
+	//Keeps the Tiles drawn onto images of chunks; created when first needed
+	private transient ChunkImageCache chunkImageCache;
+	
+	//Whether to draw the TileMap from the images of its chunks (or Tile by Tile)
+	private transient boolean cacheImages;
+	
+	//Tiles the player can start on (i.e. on the hitboxMap); x is the column and y the row
+	private ArrayList<Point> spawnPoints;
+	
+	//Number of times the spawn points have changed
+	private transient int spawnModCount;
+	
 	/**
 	 * Constructor 
 	 * Creates a default "blank" TileMap
@@ -67,6 +121,22 @@ public class TileMap implements Serializable
 	 * @param tileSize (int) size of a Tile (pixels)
 	 */
 	public TileMap(int startX, int startY, int numCols, int numRows, int tileSize)
+	{
+		this(startX, startY, numCols, numRows, tileSize, LayerType.ARRAY);
+	}
+	
+	/**
+	 * Constructor 
+	 * Creates a default "blank" TileMap that stores its values as layerType
+	 * 
+	 * @param startX (int) x-coordinate where the TileMap should start
+	 * @param startY (int) y-coordinate where the TileMap should start
+	 * @param numCols (int) number of columns in TileMap
+	 * @param numRows (int) number of rows in TileMap
+	 * @param tileSize (int) size of a Tile (pixels)
+	 * @param layerType (LayerType) how the TileMap stores its values
+	 */
+	public TileMap(int startX, int startY, int numCols, int numRows, int tileSize, LayerType layerType)
 	{
 		this.startX = startX;
 		this.startY = startY;
@@ -74,34 +144,237 @@ public class TileMap implements Serializable
 		this.numRows = numRows;
 		this.tileSize = tileSize;
 		
+		//Create a "blank" map
+		createMap(layerType);
+		
+		//A StreamingLayer has its own (very large) size
+		this.numCols = layer.getNumCols();
+		this.numRows = layer.getNumRows();
+		
+		this.width = this.numCols * tileSize;
+		this.height = this.numRows * tileSize;
+		
+		this.endX = startX + width;
+		this.endY = startY + height;
+		
+		this.dirtyTracker = new DirtyTracker();
+		
+		//Every value of a "blank" map is 0
+		this.tileIndex = new TileIndex(layer);
+		this.spawnPoints = new ArrayList<Point>();
+		
+		init();
+	}
+	
+	/**
+	 * Constructor 
+	 * Creates a TileMap that stores its values in an existing Layer
+	 * (i.e. a MappedLayer opened from a file or a StreamingLayer)
+	 * 
+	 * @param startX (int) x-coordinate where the TileMap should start
+	 * @param startY (int) y-coordinate where the TileMap should start
+	 * @param tileSize (int) size of a Tile (pixels)
+	 * @param layer (Layer) The values of the TileMap
+	 */
+	public TileMap(int startX, int startY, int tileSize, Layer layer)
+	{
+		this.startX = startX;
+		this.startY = startY;
+		this.numCols = layer.getNumCols();
+		this.numRows = layer.getNumRows();
+		this.tileSize = tileSize;
+		
 		this.width = numCols * tileSize;
 		this.height = numRows * tileSize;
 		
 		this.endX = startX + width;
 		this.endY = startY + height;
 		
-		//Create a "blank" map
-		createMap();
+		this.layer = layer;
+		this.dirtyTracker = new DirtyTracker();
+		this.spawnPoints = new ArrayList<Point>();
+		
+		init();
+	}
+	
+	/**
+	 * Constructor
+	 * Creates a TileMap with the same size and position as another TileMap
+	 * that stores its values in layer
+	 * @param source (TileMap) The TileMap to copy the size and position of
+	 * @param layer (Layer) The values of the new TileMap
+	 */
+	private TileMap(TileMap source, Layer layer)
+	{
+		this.startX = source.startX;
+		this.startY = source.startY;
+		this.endX = source.endX;
+		this.endY = source.endY;
+		this.width = source.width;
+		this.height = source.height;
+		this.tileSize = source.tileSize;
+		this.numCols = source.numCols;
+		this.numRows = source.numRows;
+		
+		this.layer = layer;
+		this.dirtyTracker = new DirtyTracker();
+		this.spawnPoints = copySpawnPoints(source.spawnPoints);
 		
 		init();
 	}
 	
+	/**
+	 * Method that creates a snapshot of the TileMap
+	 * For chunked Layers the snapshot shares its chunks with this TileMap until
+	 * either one changes them, so taking it is cheap. The snapshot can be read
+	 * (i.e. saved or drawn) on another thread while this TileMap keeps changing
+	 * The snapshot has no Camera or images
+	 * @return a new TileMap with the same values
+	 */
+	public TileMap snapshot()
+	{
+		return new TileMap(this, layer.snapshot());
+	}
+	
+	/**
+	 * Method that frees what a snapshot of a TileMap holds once it is no
+	 * longer needed (i.e. once it has been saved); the snapshot can not be used afterwards
+	 */
+	public void release()
+	{
+		layer.release();
+	}
+	
 	/**
 	 * Method that creates tile map "blank"
+	 * @param layerType (LayerType) how the TileMap stores its values
+	 */
+	private void createMap(LayerType layerType)
+	{
+		switch(layerType)
+		{
+			case CHUNKED:
+				layer = new ChunkedLayer(numCols, numRows);
+				break;
+			case BIT:
+				layer = new BitLayer(numCols, numRows);
+				break;
+			case PACKED:
+				layer = new PackedLayer(numCols, numRows);
+				break;
+			case MAPPED:
+				try {
+					layer = MappedLayer.createTemporary(numCols, numRows);
+				}catch(IOException e) {
+					//Keep the values on the heap instead
+					e.printStackTrace();
+					layer = new ChunkedLayer(numCols, numRows);
+				}
+				break;
+			case STREAMING:
+				try {
+					layer = StreamingLayer.createTemporary();
+				}catch(IOException e) {
+					//Keep the values on the heap instead
+					e.printStackTrace();
+					layer = new ChunkedLayer(numCols, numRows);
+				}
+				break;
+			case ARRAY:
+			default:
+				layer = new ArrayLayer(numCols, numRows);
+				break;
+		}
+	}
+	
+	/**
+	 * Method that changes how the TileMap stores its values
+	 * The values of the TileMap stay the same
+	 * @param layerType (LayerType) how the TileMap should store its values
 	 */
-	private void createMap()
+	public void changeLayerType(LayerType layerType)
 	{
-		map = new Tile[numRows][numCols];
+		//Layers stored on disk are kept as they are
+		if(layer.getLayerType() == layerType || layer.getLayerType() == LayerType.MAPPED || layer.getLayerType() == LayerType.STREAMING)
+		{
+			return;
+		}
+		
+		Layer oldLayer = layer;
+		createMap(layerType);
+		
+		//A BitLayer may not keep every value; count them again when needed
+		tileIndex = null;
+		componentLabels = null;
 		
 		for(int i = 0; i < numRows; i++)
 		{
 			for(int j = 0; j < numCols; j++)
 			{
-				int x = startX + (j * tileSize);
-				int y = startY + (i * tileSize);
-				int value = 0;
+				int value = oldLayer.getValue(j, i);
 				
-				map[i][j] = new Tile(x, y, tileSize, tileSize, value);
+				if(value != 0)
+				{
+					layer.setValue(j, i, value);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Method that reads a TileMap from a save file
+	 * Save files written before the TileMap stored its values in a Layer
+	 * contain a short[] or a Tile[][] instead; those are converted when read
+	 * @param in (ObjectInputStream) The stream to read from
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream.GetField fields = in.readFields();
+		
+		startX = fields.get("startX", 0);
+		startY = fields.get("startY", 0);
+		endX = fields.get("endX", 0);
+		endY = fields.get("endY", 0);
+		width = fields.get("width", 0);
+		height = fields.get("height", 0);
+		tileSize = fields.get("tileSize", 0);
+		numCols = fields.get("numCols", 0);
+		numRows = fields.get("numRows", 0);
+		layer = (Layer) fields.get("layer", null);
+		dirtyTracker = new DirtyTracker();
+		
+		//Save files written before spawn points were added have none
+		spawnPoints = (ArrayList<Point>) fields.get("spawnPoints", null);
+		if(spawnPoints == null)
+		{
+			spawnPoints = new ArrayList<Point>();
+		}
+		
+		init();
+		
+		if(layer != null)
+		{
+			return;
+		}
+		
+		if(fields.getObjectStreamClass().getField("values") != null)
+		{
+			//Old save file; values stored row by row
+			layer = new ArrayLayer(numCols, numRows, (short[]) fields.get("values", null));
+		}
+		else
+		{
+			//Old save file; copy the value of each Tile
+			Tile[][] map = (Tile[][]) fields.get("map", null);
+			createMap(LayerType.ARRAY);
+			
+			for(int i = 0; map != null && i < numRows; i++)
+			{
+				for(int j = 0; j < numCols; j++)
+				{
+					layer.setValue(j, i, map[i][j].getValue());
+				}
 			}
 		}
 	}
@@ -113,6 +386,11 @@ public class TileMap implements Serializable
 	{		
 		this.images = null;
 		this.camera = null;
+		this.chunkImageCache = null;
+		this.cacheImages = true;
+		
+		this.maxFillTiles = DEFAULT_MAX_FILL_TILES;
+		this.fillTimeBudget = DEFAULT_FILL_TIME_BUDGET;
 	}
 	
 	//Getter Methods
@@ -129,12 +407,326 @@ public class TileMap implements Serializable
 	public int getEndCol() {return endCol;}
 	public int getStartRow() {return startRow;}
 	public int getEndRow() {return endRow;}
-	public Tile[][] getTileMap() {return map;}
-	public Tile getTile(int col, int row) {return map[row][col];}
+	public int getMaxFillTiles() {return maxFillTiles;}
+	public long getFillTimeBudget() {return fillTimeBudget;}
+	public Layer getLayer() {return layer;}
+	public boolean isCacheImages() {return cacheImages;}
+	public DirtyTracker getDirtyTracker() {return dirtyTracker;}
+	public long getModCount() {return dirtyTracker.getModCount();}
+	public int getValue(int col, int row) {return layer.getValue(col, row);}
+	public ArrayList<Point> getSpawnPoints() {return spawnPoints;}
+	public int getSpawnModCount() {return spawnModCount;}
+	public BufferedImage[] getImages() {return images;}
+	
+	/**
+	 * Method that obtains the ChunkImageCache of the TileMap, creating it the first time
+	 * @return the ChunkImageCache
+	 */
+	public ChunkImageCache getChunkImageCache()
+	{
+		if(chunkImageCache == null)
+		{
+			chunkImageCache = new ChunkImageCache(tileSize);
+		}
+		
+		return chunkImageCache;
+	}
+	
+	/**
+	 * Method that obtains the image of a chunk of ChunkImageCache.IMAGE_TILES x
+	 * ChunkImageCache.IMAGE_TILES Tiles, drawing it first if it is missing or out of date
+	 * @param imageCol (int) column of the chunk (in images)
+	 * @param imageRow (int) row of the chunk (in images)
+	 * @return the image, or null if every Tile of the chunk is 0
+	 */
+	public BufferedImage getChunkImage(int imageCol, int imageRow)
+	{
+		return getChunkImageCache().getImage(layer, dirtyTracker, images, imageCol, imageRow);
+	}
+	
+	/**
+	 * Method that obtains the TileIndex of the TileMap
+	 * The first call after the TileMap is loaded (or wraps an existing Layer)
+	 * counts the values of every chunk the Layer has stored; after that the
+	 * TileIndex is kept up to date by every change to the TileMap
+	 * @return the TileIndex
+	 */
+	public TileIndex getTileIndex()
+	{
+		if(tileIndex == null)
+		{
+			tileIndex = new TileIndex(layer);
+			tileIndex.scan(layer);
+		}
+		
+		return tileIndex;
+	}
+	
+	/**
+	 * Method that obtains the components of the TileMap (regions of connected
+	 * Tiles with the same value)
+	 * The components are found the first time they are needed, and again after
+	 * any change to the TileMap other than changeTile; changeTile keeps them up to date
+	 * @return the ComponentLabels, or null if the TileMap is too large to label
+	 */
+	public ComponentLabels getComponentLabels()
+	{
+		if(componentLabels == null && ComponentLabels.canLabel(layer))
+		{
+			componentLabels = new ComponentLabels(layer);
+		}
+		
+		if(componentLabels != null)
+		{
+			componentLabels.update();
+		}
+		
+		return componentLabels;
+	}
+	
+	/**
+	 * Method that finds every component of the TileMap at once, along with
+	 * the size and bounding box of each (using every processor)
+	 * This also works for TileMaps too large for getComponentLabels, but
+	 * the result is not kept up to date
+	 * The same ComponentAnalysis is returned every time, so the result of an
+	 * analysis is replaced by the next one
+	 * @return the ComponentAnalysis
+	 */
+	public ComponentAnalysis analyzeComponents()
+	{
+		if(componentAnalysis == null)
+		{
+			componentAnalysis = new ComponentAnalysis();
+		}
+		
+		componentAnalysis.analyze(layer);
+		
+		return componentAnalysis;
+	}
+	
+	/**
+	 * Method that finds the shortest path between two Tiles, where Tiles
+	 * with the value 0 can be walked on (i.e. on the hitboxMap)
+	 * A path can only exist if both Tiles are in the same component (moves
+	 * may not cut corners, so a diagonal move can always be made as two
+	 * straight moves), so Tiles that are not connected are found without searching
+	 * @param pathFinder (PathFinder) The PathFinder to search with (it holds the path found)
+	 * @param startCol (int) column of the starting Tile
+	 * @param startRow (int) row of the starting Tile
+	 * @param goalCol (int) column of the goal Tile
+	 * @param goalRow (int) row of the goal Tile
+	 * @return true if a path was found, otherwise false
+	 */
+	public boolean findPath(PathFinder pathFinder, int startCol, int startRow, int goalCol, int goalRow)
+	{
+		pathFinder.setLayer(layer, getModCount());
+		
+		if(startCol < 0 || startRow < 0 || startCol >= numCols || startRow >= numRows ||
+				goalCol < 0 || goalRow < 0 || goalCol >= numCols || goalRow >= numRows)
+		{
+			pathFinder.clearPath();
+			return false;
+		}
+		
+		ComponentLabels labels = getComponentLabels();
+		if(labels != null && !labels.isConnected(startCol, startRow, goalCol, goalRow))
+		{
+			pathFinder.clearPath();
+			return false;
+		}
+		
+		return pathFinder.findPath(startCol, startRow, goalCol, goalRow);
+	}
+	
+	/**
+	 * Method to be called after a change to many Tiles at once
+	 * The components are found again the next time they are needed
+	 */
+	private void markComponentsStale()
+	{
+		if(componentLabels != null)
+		{
+			componentLabels.setStale();
+		}
+	}
+	
+	/**
+	 * Method that counts the Tiles with a value
+	 * @param value (int) The value
+	 * @return the number of Tiles with the value
+	 */
+	public long countTiles(int value)
+	{
+		return getTileIndex().getCount(value);
+	}
+	
+	/**
+	 * Method that finds every Tile with a value
+	 * Only the chunks containing the value are looked at
+	 * @param value (int) The value (other than 0)
+	 * @return the columns (x) and rows (y) of the Tiles
+	 */
+	public ArrayList<Point> findTiles(int value)
+	{
+		ArrayList<Point> tiles = new ArrayList<Point>();
+		long[] keys = getTileIndex().getChunks(value);
+		int[] values = new int[Layer.CHUNK_SIZE];
+		
+		for(int n = 0; n < keys.length; n++)
+		{
+			int startCol = DirtyTracker.keyCol(keys[n]) << Layer.CHUNK_SHIFT;
+			int startRow = DirtyTracker.keyRow(keys[n]) << Layer.CHUNK_SHIFT;
+			int endCol = Math.min(startCol + Layer.CHUNK_SIZE, numCols) - 1;
+			int endRow = Math.min(startRow + Layer.CHUNK_SIZE, numRows) - 1;
+			
+			for(int i = startRow; i <= endRow; i++)
+			{
+				layer.readRow(i, startCol, endCol, values);
+				
+				for(int j = startCol; j <= endCol; j++)
+				{
+					if(values[j - startCol] == value)
+					{
+						tiles.add(new Point(j, i));
+					}
+				}
+			}
+		}
+		
+		return tiles;
+	}
+	
+	/**
+	 * Method that changes every Tile with one value to another value
+	 * Only the chunks containing the value are looked at
+	 * @param oldValue (int) The value to replace (other than 0)
+	 * @param newValue (int) The value to replace it with
+	 * @return the number of Tiles changed
+	 */
+	public int replaceTiles(int oldValue, int newValue)
+	{
+		if(!isValidValue(newValue) || oldValue == newValue || countTiles(oldValue) == 0)
+		{
+			return 0;
+		}
+		
+		ArrayList<Point> tiles = findTiles(oldValue);
+		
+		dirtyTracker.beginChange();
+		
+		for(int i = 0; i < tiles.size(); i++)
+		{
+			int col = tiles.get(i).getX();
+			int row = tiles.get(i).getY();
+			
+			dirtyTracker.markTile(col, row);
+			tileIndex.change(col, row, oldValue, newValue);
+			layer.setValue(col, row, newValue);
+		}
+		
+		markComponentsStale();
+		
+		return tiles.size();
+	}
+	
+	/**
+	 * Method that creates a Tile for a column and row of the TileMap
+	 * The TileMap no longer stores Tile objects; changing the returned
+	 * Tile does not change the TileMap (use changeTile instead)
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @return a Tile object holding the Tile's position and value
+	 */
+	public Tile getTile(int col, int row)
+	{
+		return new Tile(startX + (col * tileSize), startY + (row * tileSize), tileSize, tileSize, getValue(col, row));
+	}
+	
+	/**
+	 * Method that creates a 2D array of Tiles for the whole TileMap
+	 * Like getTile, the Tiles are copies of the TileMap's values
+	 * @return a 2D array of Tiles (indexed [row][col])
+	 */
+	public Tile[][] getTileMap()
+	{
+		Tile[][] map = new Tile[numRows][numCols];
+		
+		for(int i = 0; i < numRows; i++)
+		{
+			for(int j = 0; j < numCols; j++)
+			{
+				map[i][j] = getTile(j, i);
+			}
+		}
+		
+		return map;
+	}
+	
+	/**
+	 * Method that copies a list of spawn points
+	 * @param points (ArrayList<Point>) The spawn points
+	 * @return a new list of new Points
+	 */
+	public static ArrayList<Point> copySpawnPoints(ArrayList<Point> points)
+	{
+		ArrayList<Point> copy = new ArrayList<Point>(points.size());
+		
+		for(int i = 0; i < points.size(); i++)
+		{
+			copy.add(new Point(points.get(i).getX(), points.get(i).getY()));
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Method that adds a spawn point to a Tile, or removes it if the Tile
+	 * already has one
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 */
+	public void toggleSpawnPoint(int col, int row)
+	{
+		if(col < 0 || row < 0 || col >= numCols || row >= numRows)
+		{
+			return;
+		}
+		
+		++spawnModCount;
+		
+		for(int i = 0; i < spawnPoints.size(); i++)
+		{
+			if(spawnPoints.get(i).getX() == col && spawnPoints.get(i).getY() == row)
+			{
+				spawnPoints.remove(i);
+				return;
+			}
+		}
+		
+		spawnPoints.add(new Point(col, row));
+	}
 	
 	//Setter methods
 	public void setCamera(Camera camera) {this.camera = camera;}
-	public void setImages(BufferedImage[] images) {this.images = images;}
+	public void setCacheImages(boolean cacheImages) {this.cacheImages = cacheImages;}
+	
+	/**
+	 * Method that sets the image of each Tile value
+	 * @param images (BufferedImage[]) The images
+	 */
+	public void setImages(BufferedImage[] images)
+	{
+		this.images = images;
+		
+		//The images of the chunks were drawn with the old images
+		if(chunkImageCache != null)
+		{
+			chunkImageCache.clear();
+		}
+	}
+	public void setMaxFillTiles(int maxFillTiles) {this.maxFillTiles = maxFillTiles;}
+	public void setFillTimeBudget(long fillTimeBudget) {this.fillTimeBudget = fillTimeBudget;}
 	
 	/**
 	 * Method to change a Tile's value 
@@ -145,36 +737,365 @@ public class TileMap implements Serializable
 	 */
 	public void changeTile(int changeCol, int changeRow, int value)
 	{
-		if(value >= 0 && value < images.length)
+		if(isValidValue(value))
 		{
-			if(changeCol > -1 && changeRow > -1)
+			if(changeCol > -1 && changeRow > -1 && layer.getValue(changeCol, changeRow) != value)
 			{
-				map[changeRow][changeCol].setValue(value);
+				int oldValue = layer.getValue(changeCol, changeRow);
+				
+				dirtyTracker.beginChange();
+				dirtyTracker.markTile(changeCol, changeRow);
+				indexTile(changeCol, changeRow, value);
+				layer.setValue(changeCol, changeRow, value);
+				
+				if(componentLabels != null)
+				{
+					componentLabels.changeTile(changeCol, changeRow, oldValue, value);
+				}
 			}
 		}
 	}
 	
-	public void fillTiles(int changeCol, int changeRow, int value)
+	/**
+	 * Method that checks if a value can be given to a Tile
+	 * Without images (i.e. a TileMap used without drawing it) any value
+	 * from 0 to Short.MAX_VALUE is allowed
+	 * @param value (int) The value
+	 * @return true if the value can be given to a Tile, otherwise false
+	 */
+	private boolean isValidValue(int value)
 	{
-		if(value >= 0 && value < images.length)
+		if(images == null)
 		{
-			if(changeCol > -1 && changeRow > -1)
+			//A BitLayer only stores 0 and 1
+			if(layer.getLayerType() == LayerType.BIT)
 			{
-				Graph graph = new Graph(this);
-				FillPath fillPath = new FillPath(graph, changeCol, changeRow);
-				fillPath.bfs();
-				ArrayList<Node> nodesToFill = fillPath.getNodesToFill();
-				
-				for(int i = 0; i < nodesToFill.size(); i++)
+				return value == 0 || value == 1;
+			}
+			
+			return value >= 0 && value <= Short.MAX_VALUE;
+		}
+		
+		return value >= 0 && value < images.length;
+	}
+	
+	/**
+	 * Method that changes the value of every Tile within a rectangle
+	 * The rectangle is clipped to the TileMap
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param endCol (int) The last column (inclusive)
+	 * @param endRow (int) The last row (inclusive)
+	 * @param value (int) value to change the Tiles to
+	 */
+	public void fillRegion(int startCol, int startRow, int endCol, int endRow, int value)
+	{
+		startCol = Math.max(startCol, 0);
+		startRow = Math.max(startRow, 0);
+		endCol = Math.min(endCol, numCols - 1);
+		endRow = Math.min(endRow, numRows - 1);
+		
+		if(!isValidValue(value) || startCol > endCol || startRow > endRow)
+		{
+			return;
+		}
+		
+		dirtyTracker.beginChange();
+		dirtyTracker.markRegion(startCol, startRow, endCol, endRow);
+		
+		for(int i = startRow; tileIndex != null && i <= endRow; i++)
+		{
+			indexRow(i, startCol, endCol, null, 0, value);
+		}
+		
+		layer.fill(startCol, startRow, endCol, endRow, value);
+		markComponentsStale();
+	}
+	
+	/**
+	 * Method that changes the values of a rectangle of Tiles to
+	 * the values in an array
+	 * The rectangle is clipped to the TileMap
+	 * @param startCol (int) The first column
+	 * @param startRow (int) The first row
+	 * @param regionCols (int) Number of columns in the rectangle
+	 * @param regionRows (int) Number of rows in the rectangle
+	 * @param regionValues (int[]) The values, row by row (index = row * regionCols + col)
+	 */
+	public void setRegion(int startCol, int startRow, int regionCols, int regionRows, int[] regionValues)
+	{
+		//Clip to the TileMap
+		int left = Math.max(startCol, 0);
+		int top = Math.max(startRow, 0);
+		int right = Math.min(startCol + regionCols, numCols) - 1;
+		int bottom = Math.min(startRow + regionRows, numRows) - 1;
+		
+		if(left > right || top > bottom)
+		{
+			return;
+		}
+		
+		for(int i = 0; i < regionValues.length; i++)
+		{
+			if(!isValidValue(regionValues[i]))
+			{
+				return;
+			}
+		}
+		
+		dirtyTracker.beginChange();
+		dirtyTracker.markRegion(left, top, right, bottom);
+		
+		for(int i = top; i <= bottom; i++)
+		{
+			int offset = (i - startRow) * regionCols + (left - startCol);
+			
+			indexRow(i, left, right, regionValues, offset, 0);
+			layer.writeRow(i, left, right, regionValues, offset);
+		}
+		
+		markComponentsStale();
+	}
+	
+	/**
+	 * Method that copies a rectangle of Tiles from a TileMap into this TileMap
+	 * The source may be this TileMap; overlapping rectangles are copied correctly
+	 * The rectangle is clipped to both TileMaps
+	 * Tiles whose value cannot be given to a Tile of this TileMap (see isValidValue) are left unchanged
+	 * @param source (TileMap) The TileMap to copy from
+	 * @param sourceCol (int) The first column to copy from
+	 * @param sourceRow (int) The first row to copy from
+	 * @param destCol (int) The first column to copy to
+	 * @param destRow (int) The first row to copy to
+	 * @param regionCols (int) Number of columns to copy
+	 * @param regionRows (int) Number of rows to copy
+	 */
+	public void copyRegion(TileMap source, int sourceCol, int sourceRow, int destCol, int destRow, int regionCols, int regionRows)
+	{
+		//Clip to the source TileMap
+		if(sourceCol < 0) {destCol -= sourceCol; regionCols += sourceCol; sourceCol = 0;}
+		if(sourceRow < 0) {destRow -= sourceRow; regionRows += sourceRow; sourceRow = 0;}
+		regionCols = Math.min(regionCols, source.numCols - sourceCol);
+		regionRows = Math.min(regionRows, source.numRows - sourceRow);
+		
+		//Clip to this TileMap
+		if(destCol < 0) {sourceCol -= destCol; regionCols += destCol; destCol = 0;}
+		if(destRow < 0) {sourceRow -= destRow; regionRows += destRow; destRow = 0;}
+		regionCols = Math.min(regionCols, numCols - destCol);
+		regionRows = Math.min(regionRows, numRows - destRow);
+		
+		if(regionCols <= 0 || regionRows <= 0)
+		{
+			return;
+		}
+		
+		dirtyTracker.beginChange();
+		dirtyTracker.markRegion(destCol, destRow, destCol + regionCols - 1, destRow + regionRows - 1);
+		
+		int[] buffer = new int[regionCols];
+		int[] destValues = null;
+		
+		//Copy bottom to top when copying downwards within the same TileMap
+		boolean reverse = (source == this && destRow > sourceRow);
+		
+		for(int n = 0; n < regionRows; n++)
+		{
+			int i = reverse ? regionRows - 1 - n : n;
+			
+			source.layer.readRow(sourceRow + i, sourceCol, sourceCol + regionCols - 1, buffer);
+			
+			//Keep the value already there for Tiles that cannot be given the copied value
+			boolean destRead = false;
+			for(int j = 0; j < regionCols; j++)
+			{
+				if(!isValidValue(buffer[j]))
 				{
-					Node tempNode = nodesToFill.get(i);
+					if(!destRead)
+					{
+						if(destValues == null)
+						{
+							destValues = new int[regionCols];
+						}
+						
+						layer.readRow(destRow + i, destCol, destCol + regionCols - 1, destValues);
+						destRead = true;
+					}
 					
-					map[tempNode.getRow()][tempNode.getCol()].setValue(value);
+					buffer[j] = destValues[j];
 				}
 			}
+			
+			indexRow(destRow + i, destCol, destCol + regionCols - 1, buffer, 0, 0);
+			layer.writeRow(destRow + i, destCol, destCol + regionCols - 1, buffer, 0);
+		}
+		
+		markComponentsStale();
+	}
+	
+	/**
+	 * Method that updates the TileIndex (if it has been created) for
+	 * a Tile that is about to change
+	 * @param col (int) column of the Tile
+	 * @param row (int) row of the Tile
+	 * @param value (int) The value the Tile is about to be given
+	 */
+	private void indexTile(int col, int row, int value)
+	{
+		if(tileIndex != null)
+		{
+			tileIndex.change(col, row, layer.getValue(col, row), value);
+		}
+	}
+	
+	/**
+	 * Method that updates the TileIndex (if it has been created) for
+	 * part of a row that is about to change
+	 * @param row (int) The row
+	 * @param startCol (int) The first column
+	 * @param endCol (int) The last column (inclusive)
+	 * @param newValues (int[]) The values about to be written, or null if every Tile is given value
+	 * @param offset (int) Index within newValues of the value for startCol
+	 * @param value (int) The value every Tile is about to be given (if newValues is null)
+	 */
+	private void indexRow(int row, int startCol, int endCol, int[] newValues, int offset, int value)
+	{
+		if(tileIndex == null)
+		{
+			return;
+		}
+		
+		if(oldValues == null || oldValues.length < endCol - startCol + 1)
+		{
+			oldValues = new int[endCol - startCol + 1];
+		}
+		
+		layer.readRow(row, startCol, endCol, oldValues);
+		
+		for(int j = startCol; j <= endCol; j++)
+		{
+			int newValue = (newValues == null) ? value : newValues[offset + j - startCol];
+			tileIndex.change(j, row, oldValues[j - startCol], newValue);
 		}
 	}
 	
+	/**
+	 * Method that changes the value of a Tile and of every Tile connected to it
+	 * (left, right, up or down) that has the same value
+	 * The fill does not go beyond the part of the TileMap being drawn
+	 * @param changeCol (int) column of the Tile to start from
+	 * @param changeRow (int) row of the Tile to start from
+	 * @param value (int) value to change the Tiles to
+	 * @return a FillResult with the number of Tiles changed
+	 */
+	public FillResult fillTiles(int changeCol, int changeRow, int value)
+	{
+		return fillTiles(changeCol, changeRow, value, false);
+	}
+	
+	/**
+	 * Method that changes the value of a Tile and of every Tile connected to it
+	 * (left, right, up or down) that has the same value
+	 * The fill stops early once it has changed maxFillTiles Tiles or has taken
+	 * fillTimeBudget milliseconds; the Tiles found until then are changed
+	 * @param changeCol (int) column of the Tile to start from
+	 * @param changeRow (int) row of the Tile to start from
+	 * @param value (int) value to change the Tiles to
+	 * @param wholeMap (boolean) true to fill across the whole TileMap,
+	 * false to stay within the part of the TileMap being drawn
+	 * @return a FillResult with the number of Tiles changed and whether the fill stopped early
+	 */
+	public FillResult fillTiles(int changeCol, int changeRow, int value, boolean wholeMap)
+	{
+		if(!isValidValue(value) || changeCol < 0 || changeRow < 0 || changeCol >= numCols || changeRow >= numRows)
+		{
+			return new FillResult(0, false);
+		}
+		
+		int oldValue = layer.getValue(changeCol, changeRow);
+		
+		if(oldValue == value)
+		{
+			return new FillResult(0, false);
+		}
+		
+		if(scanlineFill == null)
+		{
+			scanlineFill = new ScanlineFill();
+		}
+		
+		if(!beginFill(scanlineFill, changeCol, changeRow, wholeMap))
+		{
+			return new FillResult(0, false);
+		}
+		
+		boolean truncated = !scanlineFill.resume(fillTimeBudget * 1000000L) || scanlineFill.isTruncated() || (wholeMap && scanlineFill.isClipped());
+		int numSpans = scanlineFill.getNumSpans();
+		
+		if(numSpans == 0)
+		{
+			return new FillResult(0, truncated);
+		}
+		
+		dirtyTracker.beginChange();
+		
+		for(int i = 0; i < numSpans; i++)
+		{
+			int row = scanlineFill.getSpanRow(i);
+			int spanStart = scanlineFill.getSpanStartCol(i);
+			int spanEnd = scanlineFill.getSpanEndCol(i);
+			
+			dirtyTracker.markRegion(spanStart, row, spanEnd, row);
+			
+			for(int j = spanStart; tileIndex != null && j <= spanEnd; j++)
+			{
+				tileIndex.change(j, row, oldValue, value);
+			}
+			
+			layer.fillRow(row, spanStart, spanEnd, value);
+		}
+		
+		markComponentsStale();
+		
+		return new FillResult(scanlineFill.getNumTiles(), truncated);
+	}
+	
+	/**
+	 * Method that starts finding the Tiles fillTiles would change, within the
+	 * same bounds and limit of Tiles, without changing them
+	 * The Tiles are found by calling resume on the ScanlineFill (i.e. a little
+	 * each frame, to preview the fill); start again if the TileMap changes
+	 * @param fill (ScanlineFill) The ScanlineFill to find the Tiles with
+	 * @param col (int) column of the Tile to start from
+	 * @param row (int) row of the Tile to start from
+	 * @param wholeMap (boolean) true to fill across the whole TileMap,
+	 * false to stay within the part of the TileMap being drawn
+	 * @return true if the fill was started, false if the Tile is not on the TileMap
+	 */
+	public boolean beginFill(ScanlineFill fill, int col, int row, boolean wholeMap)
+	{
+		if(col < 0 || row < 0 || col >= numCols || row >= numRows)
+		{
+			return false;
+		}
+		
+		fill.setMaxTiles(maxFillTiles);
+		
+		if(wholeMap)
+		{
+			return fill.begin(
+					layer,
+					col,
+					row,
+					Math.max(col - FILL_RANGE, 0),
+					Math.max(row - FILL_RANGE, 0),
+					Math.min(col + FILL_RANGE, numCols - 1),
+					Math.min(row + FILL_RANGE, numRows - 1)
+			);
+		}
+		
+		return fill.begin(layer, col, row, startCol, startRow, endCol, endRow);
+	}
+	
 	/**
 	 * Method that updates the TileMap
 	 */
@@ -201,6 +1122,14 @@ public class TileMap implements Serializable
 		{
 			endRow = numRows - 1;
 		}
+		
+		//Let the Layer get the part of the map around the Camera ready
+		layer.prepareRegion(
+				Math.max(startCol - Layer.CHUNK_SIZE, 0),
+				Math.max(startRow - Layer.CHUNK_SIZE, 0),
+				Math.min(endCol + Layer.CHUNK_SIZE, numCols - 1),
+				Math.min(endRow + Layer.CHUNK_SIZE, numRows - 1)
+		);
 	}
 	
 	/**
@@ -209,14 +1138,28 @@ public class TileMap implements Serializable
 	 */
 	private void drawMap(Graphics2D g)
 	{
+		if(cacheImages)
+		{
+			getChunkImageCache().draw(g, layer, dirtyTracker, images, startCol, startRow, endCol, endRow, offSetX, offSetY);
+			return;
+		}
+		
+		if(rowValues == null || rowValues.length < endCol - startCol + 1)
+		{
+			rowValues = new int[endCol - startCol + 1];
+		}
+		
 		//Draw tileMap
 		for(int i = startRow; i <= endRow ; i++)
 		{
+			//Obtain the values of the Tiles to draw in this row
+			layer.readRow(i, startCol, endCol, rowValues);
+			
 			for(int j = startCol; j <= endCol; j++)
 			{
 				int x = (j - startCol) * tileSize + offSetX;
 				int y = (i - startRow) * tileSize + offSetY;
-				int index = map[i][j].getValue();		
+				int index = rowValues[j - startCol];
 				
 				if(index == 0)
 				{
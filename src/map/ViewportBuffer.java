@@ -0,0 +1,191 @@
+package map;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import entity.Camera;
+
+/**
+ * ViewportBuffer class keeps the maps as last drawn where the Camera looks
+ * (from a CompositeCache, over a background color) in an image of the
+ * Camera's size
+ *
+ * While the maps do not change, moving the Camera shifts the image by how far
+ * it moved (copyArea) and only the strips it uncovers are drawn; a Camera that
+ * did not move draws nothing new. Any change to the maps, or to which maps are
+ * shown, draws the whole image again (only the chunks that changed are remade
+ * by the CompositeCache)
+ * @author Vachia Thoj
+ *
+ */
+public class ViewportBuffer
+{
+	//Maps
+	private TileMap backgroundMap;
+	private TileMap tileMap;
+	private ObjectMap objectMap;
+	private TileMap itemMap;
+	private TileMap hitboxMap;
+	
+	//The maps being shown, flattened into one image per chunk
+	private CompositeCache compositeCache;
+	
+	//Color under the maps
+	private Color backgroundColor;
+	
+	//The maps as last drawn, and its Graphics2D object
+	private BufferedImage image;
+	private Graphics2D imageGraphics;
+	
+	//What the image was drawn for; where the Camera was, the maps shown and the mod count of each map
+	private boolean drawn;
+	private int cameraX;
+	private int cameraY;
+	private int shownMaps;
+	private long backgroundModCount;
+	private long tileModCount;
+	private int objectModCount;
+	private long itemModCount;
+	private long hitboxModCount;
+	
+	//Number of times the whole image was drawn and the image was shifted (to measure the buffer)
+	private long numFullDraws;
+	private long numScrolls;
+	
+	/**
+	 * Constructor
+	 * @param backgroundMap (TileMap) The backgroundMap (always shown)
+	 * @param tileMap (TileMap) The tileMap
+	 * @param objectMap (ObjectMap) The objectMap
+	 * @param itemMap (TileMap) The itemMap
+	 * @param hitboxMap (TileMap) The hitboxMap
+	 * @param compositeCache (CompositeCache) The CompositeCache of the maps
+	 * @param backgroundColor (Color) The color under the maps
+	 */
+	public ViewportBuffer(TileMap backgroundMap, TileMap tileMap, ObjectMap objectMap, TileMap itemMap, TileMap hitboxMap,
+			CompositeCache compositeCache, Color backgroundColor)
+	{
+		this.backgroundMap = backgroundMap;
+		this.tileMap = tileMap;
+		this.objectMap = objectMap;
+		this.itemMap = itemMap;
+		this.hitboxMap = hitboxMap;
+		this.compositeCache = compositeCache;
+		this.backgroundColor = backgroundColor;
+		
+		this.image = null;
+		this.imageGraphics = null;
+		this.drawn = false;
+		this.numFullDraws = 0;
+		this.numScrolls = 0;
+	}
+	
+	//Getter methods
+	public long getNumFullDraws() {return numFullDraws;}
+	public long getNumScrolls() {return numScrolls;}
+	
+	/**
+	 * Method that makes the next draw draw the whole image again
+	 * (i.e. when the images of the maps change)
+	 */
+	public void invalidate()
+	{
+		drawn = false;
+	}
+	
+	/**
+	 * Method that brings the image up to date and draws it at the top left of the screen
+	 * @param g (Graphics2D) The Graphics2D object to be drawn on
+	 * @param camera (Camera) The Camera the maps are updated to
+	 * @param shownMaps (int) The maps to show (see CompositeCache)
+	 */
+	public void draw(Graphics2D g, Camera camera, int shownMaps)
+	{
+		int width = camera.getWidth();
+		int height = camera.getHeight();
+		
+		if(image == null || image.getWidth() != width || image.getHeight() != height)
+		{
+			if(imageGraphics != null)
+			{
+				imageGraphics.dispose();
+			}
+			
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			imageGraphics = image.createGraphics();
+			drawn = false;
+		}
+		
+		int dx = camera.getX() - cameraX;
+		int dy = camera.getY() - cameraY;
+		
+		if(!drawn || !isUnchanged(shownMaps) || Math.abs(dx) >= width || Math.abs(dy) >= height)
+		{
+			drawArea(camera, shownMaps, 0, 0, width, height);
+			++numFullDraws;
+		}
+		else if(dx != 0 || dy != 0)
+		{
+			//Shift what is still on screen, then draw the strips uncovered
+			//on the side the Camera moved towards
+			imageGraphics.copyArea(Math.max(dx, 0), Math.max(dy, 0), width - Math.abs(dx), height - Math.abs(dy), -dx, -dy);
+			
+			if(dx != 0)
+			{
+				drawArea(camera, shownMaps, dx > 0 ? width - dx : 0, 0, Math.abs(dx), height);
+			}
+			
+			if(dy != 0)
+			{
+				drawArea(camera, shownMaps, 0, dy > 0 ? height - dy : 0, width, Math.abs(dy));
+			}
+			
+			++numScrolls;
+		}
+		
+		drawn = true;
+		cameraX = camera.getX();
+		cameraY = camera.getY();
+		this.shownMaps = shownMaps;
+		backgroundModCount = backgroundMap.getModCount();
+		tileModCount = tileMap.getModCount();
+		objectModCount = objectMap.getModCount();
+		itemModCount = itemMap.getModCount();
+		hitboxModCount = hitboxMap.getModCount();
+		
+		g.drawImage(image, 0, 0, null);
+	}
+	
+	/**
+	 * Method that checks if the image was drawn for the same maps as are shown now
+	 * @param shownMaps (int) The maps to show
+	 * @return true if no map has changed and the same maps are shown, otherwise false
+	 */
+	private boolean isUnchanged(int shownMaps)
+	{
+		return this.shownMaps == shownMaps &&
+				backgroundModCount == backgroundMap.getModCount() &&
+				tileModCount == tileMap.getModCount() &&
+				objectModCount == objectMap.getModCount() &&
+				itemModCount == itemMap.getModCount() &&
+				hitboxModCount == hitboxMap.getModCount();
+	}
+	
+	/**
+	 * Method that draws part of the image
+	 * @param camera (Camera) The Camera the maps are drawn for
+	 * @param shownMaps (int) The maps to show
+	 * @param x (int) x-coordinate of the area
+	 * @param y (int) y-coordinate of the area
+	 * @param width (int) width of the area
+	 * @param height (int) height of the area
+	 */
+	private void drawArea(Camera camera, int shownMaps, int x, int y, int width, int height)
+	{
+		imageGraphics.setColor(backgroundColor);
+		imageGraphics.fillRect(x, y, width, height);
+		
+		compositeCache.draw(imageGraphics, camera, shownMaps, x, y, width, height);
+	}
+}
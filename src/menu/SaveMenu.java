@@ -29,6 +29,9 @@ public class SaveMenu extends Menu
 	private transient TileMap itemMap;
 	private transient TileMap hitboxMap;
 	
+	//Checks that every item and GameObject can be reached (may be null)
+	private transient ReachabilityValidator reachabilityValidator;
+	
 	//Colors for the SaveMenu
 	private transient Color menuColor;
 	private transient Color borderColor;
@@ -210,11 +213,13 @@ public class SaveMenu extends Menu
 	public Color getMenuColor() {return menuColor;}
 	public Color getBorderColor() {return borderColor;}
 	public boolean isBordered() {return bordered;}
+	public boolean isSaved() {return saved;}
 	
 	//Setter methods
 	public void setMenuColor(Color menuColor) {this.menuColor = menuColor;}
 	public void setBorderColor(Color borderColor) {this.borderColor = borderColor;}
 	public void setBordered(boolean b) {this.bordered = b;}
+	public void setReachabilityValidator(ReachabilityValidator reachabilityValidator) {this.reachabilityValidator = reachabilityValidator;}
 	
 ////////////////////////////////////////////// UPDATE METHODS //////////////////////////////////////////////
 	
@@ -259,6 +264,9 @@ public class SaveMenu extends Menu
 				//Set currentSaveFile to the one we just saved to
 				SaveManager.instance().setCurrentSaveFile(SaveManager.instance().getSaveFile(i));
 				
+				//Report anything that cannot be reached from the spawn points
+				reportReachability();
+				
 				//Flag saved to true
 				saved = true;
 				
@@ -288,6 +296,36 @@ public class SaveMenu extends Menu
 		}
 	}
 	
+	/**
+	 * Method that shows in savedMessage how many items and GameObjects cannot be
+	 * reached from the spawn points, using the latest check of the maps
+	 * Saving does not wait for a check that is still running; the report
+	 * may then be from before the latest changes, which is shown as [OLD]
+	 */
+	private void reportReachability()
+	{
+		ReachabilityReport report = reachabilityValidator != null ? reachabilityValidator.getReport() : null;
+		
+		if(report == null || !report.hasSpawns())
+		{
+			savedMessage.setText("SAVED");
+		}
+		else if(!reachabilityValidator.isCurrent())
+		{
+			savedMessage.setText("SAVED [OLD] " + report.getNumUnreachable() + " UNREACHABLE");
+		}
+		else if(report.getNumUnreachable() > 0)
+		{
+			savedMessage.setText("SAVED " + report.getNumUnreachable() + " UNREACHABLE");
+		}
+		else
+		{
+			savedMessage.setText("SAVED");
+		}
+		
+		savedMessage.setX(((x + x + width) / 2) - (savedMessage.getWidth() / 2));
+	}
+	
 	/**
 	 * Method that updates Texts
 	 */
@@ -0,0 +1,139 @@
+package save;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import graph.DistanceField;
+import graph.FlowField;
+import map.TileMap;
+
+/**
+ * FieldFile class writes the DistanceField and FlowField of a hitboxMap to a
+ * file next to the maps, so a game does not have to find them when it loads
+ * the map
+ *
+ * The file is written with a DataOutputStream (big-endian) and holds, in order:
+ * int MAGIC, int VERSION, int numCols, int numRows,
+ * numCols * numRows shorts; the distance of each Tile to the nearest blocked
+ * Tile (see DistanceField), row by row,
+ * int numGoals, then the column and row (ints) of each goal (the spawn points),
+ * numCols * numRows ints; the steps of each Tile to the nearest goal
+ * (FlowField.UNREACHED or FlowField.BLOCKED if none),
+ * numCols * numRows bytes; the direction of each Tile towards the nearest goal
+ * (0 to 7: left, right, up, down, up-left, up-right, down-left, down-right;
+ * or FlowField.NO_DIRECTION)
+ * @author Vachia Thoj
+ *
+ */
+public class FieldFile
+{
+	//Start of every field file ("TMFF")
+	public static final int MAGIC = 0x544D4646;
+	
+	//Version of the file's layout
+	public static final int VERSION = 1;
+	
+	//Size of the buffer used while writing (bytes)
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Method that finds the fields of a hitboxMap and writes them to a file
+	 * Nothing is written for hitboxMaps too large to find the fields of; the
+	 * file is deleted instead, so an older file does not stay next to the maps
+	 * A file that could not be written completely is also deleted
+	 * @param filePath (String) The file to write
+	 * @param hitboxMap (TileMap) The hitboxMap (not changed while writing; i.e. a snapshot)
+	 * @return true if the file was written, otherwise false
+	 * @throws IOException if the file could not be written
+	 */
+	public static boolean write(String filePath, TileMap hitboxMap) throws IOException
+	{
+		if(!DistanceField.canCompute(hitboxMap.getLayer()))
+		{
+			new File(filePath).delete();
+			return false;
+		}
+		
+		DistanceField distanceField = new DistanceField();
+		distanceField.compute(hitboxMap.getLayer());
+		
+		FlowField flowField = new FlowField();
+		flowField.compute(hitboxMap.getLayer(), hitboxMap.getSpawnPoints());
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE));
+		
+		try {
+			write(out, hitboxMap, distanceField, flowField);
+			out.close();
+		}catch(IOException e) {
+			out.close();
+			new File(filePath).delete();
+			throw e;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method that writes the fields of a hitboxMap to a stream
+	 * @param out (DataOutputStream) The stream to write to
+	 * @param hitboxMap (TileMap) The hitboxMap the fields were found for
+	 * @param distanceField (DistanceField) The DistanceField of the hitboxMap
+	 * @param flowField (FlowField) The FlowField of the hitboxMap
+	 * @throws IOException if the stream could not be written
+	 */
+	public static void write(DataOutputStream out, TileMap hitboxMap, DistanceField distanceField, FlowField flowField) throws IOException
+	{
+		int numCols = distanceField.getNumCols();
+		int numRows = distanceField.getNumRows();
+		int numTiles = numCols * numRows;
+		
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(numCols);
+		out.writeInt(numRows);
+		
+		//Each row is packed into buffer and written at once
+		byte[] buffer = new byte[numCols * 4];
+		
+		short[] distances = distanceField.getDistances();
+		for(int i = 0; i < numRows; i++)
+		{
+			for(int j = 0; j < numCols; j++)
+			{
+				short distance = distances[i * numCols + j];
+				buffer[j * 2] = (byte) (distance >> 8);
+				buffer[j * 2 + 1] = (byte) distance;
+			}
+			
+			out.write(buffer, 0, numCols * 2);
+		}
+		
+		out.writeInt(hitboxMap.getSpawnPoints().size());
+		for(int i = 0; i < hitboxMap.getSpawnPoints().size(); i++)
+		{
+			out.writeInt(hitboxMap.getSpawnPoints().get(i).getX());
+			out.writeInt(hitboxMap.getSpawnPoints().get(i).getY());
+		}
+		
+		int[] steps = flowField.getSteps();
+		for(int i = 0; i < numRows; i++)
+		{
+			for(int j = 0; j < numCols; j++)
+			{
+				int step = steps[i * numCols + j];
+				buffer[j * 4] = (byte) (step >> 24);
+				buffer[j * 4 + 1] = (byte) (step >> 16);
+				buffer[j * 4 + 2] = (byte) (step >> 8);
+				buffer[j * 4 + 3] = (byte) step;
+			}
+			
+			out.write(buffer, 0, numCols * 4);
+		}
+		
+		out.write(flowField.getDirections(), 0, numTiles);
+	}
+}
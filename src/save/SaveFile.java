@@ -25,6 +25,7 @@ public class SaveFile
 	private String itemMapFilePath;
 	private String hitboxMapFilePath;
 	private String saveDateFilePath;
+	private String fieldsFilePath;
 	
 	//Maps to be saved
 	private TileMap tileMap;
@@ -38,6 +39,9 @@ public class SaveFile
 	//Flag to see if SaveFile is empty
 	private boolean empty;
 	
+	//Thread writing the SaveFile's files in the background
+	private Thread saveThread;
+	
 	/**
 	 * 
 	 * @param id (int) The id of SaveFile
@@ -46,8 +50,9 @@ public class SaveFile
 	 * @param itemMapFilePath (String) The file path of the item map file
 	 * @param hitboxMapFilePath (String) The file path of the hitbox map file
 	 * @param saveDateFilePath (String) The file path of the save date file
+	 * @param fieldsFilePath (String) The file path of the hitbox map's distance and flow fields
 	 */
-	public SaveFile(int id, String tileMapFilePath, String objectMapFilePath, String itemMapFilePath, String hitboxMapFilePath, String saveDateFilePath)
+	public SaveFile(int id, String tileMapFilePath, String objectMapFilePath, String itemMapFilePath, String hitboxMapFilePath, String saveDateFilePath, String fieldsFilePath)
 	{
 		this.id = id;
 		this.tileMapFilePath = tileMapFilePath;
@@ -55,6 +60,7 @@ public class SaveFile
 		this.itemMapFilePath = itemMapFilePath;
 		this.hitboxMapFilePath = hitboxMapFilePath;
 		this.saveDateFilePath = saveDateFilePath;
+		this.fieldsFilePath = fieldsFilePath;
 		
 		this.tileMap = null;
 		this.objectMap = null;
@@ -63,11 +69,13 @@ public class SaveFile
 		this.saveDate = null;
 		
 		this.empty = true;
+		this.saveThread = null;
 	}
 	
 	//Getter methods
 	public int getId() {return id;}
 	public boolean isEmpty() {return empty;}
+	public boolean isSaving() {return saveThread != null && saveThread.isAlive();}
 	public TileMap getTileMap() {return tileMap;}
 	public ObjectMap getObjectMap() {return objectMap;}
 	public TileMap getItemMap() {return itemMap;}
@@ -87,6 +95,84 @@ public class SaveFile
 	 * @param saveDate (Date) The date of when the saved occurred
 	 */
 	public void save(TileMap tileMap, ObjectMap objectMap, TileMap itemMap, TileMap hitboxMap, Date saveDate)
+	{
+		waitForSave();
+		
+		this.tileMap = tileMap;
+		this.objectMap = objectMap;
+		this.itemMap = itemMap;
+		this.hitboxMap = hitboxMap;
+		this.saveDate = saveDate;
+		this.empty = false;
+		
+		writeFiles(tileMap, objectMap, itemMap, hitboxMap, saveDate);
+	}
+	
+	/**
+	 * Method that attempts to save data to save files on a background thread
+	 * The SaveFile holds the new data as soon as this method returns; the
+	 * maps must not be changed afterwards (pass snapshots of maps still being edited)
+	 * The TileMaps are released once they have been written
+	 * @param tileMap (TileMap) The tileMap to be saved
+	 * @param objectMap (ObjectMap) The objectMap to be saved
+	 * @param itemMap (TileMap) The itemMap to be saved
+	 * @param hitboxMap (TileMap) The hitbox to be saved
+	 * @param saveDate (Date) The date of when the saved occurred
+	 */
+	public void saveInBackground(final TileMap tileMap, final ObjectMap objectMap, final TileMap itemMap, final TileMap hitboxMap, final Date saveDate)
+	{
+		waitForSave();
+		
+		this.tileMap = tileMap;
+		this.objectMap = objectMap;
+		this.itemMap = itemMap;
+		this.hitboxMap = hitboxMap;
+		this.saveDate = saveDate;
+		this.empty = false;
+		
+		saveThread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				writeFiles(tileMap, objectMap, itemMap, hitboxMap, saveDate);
+				
+				tileMap.release();
+				itemMap.release();
+				hitboxMap.release();
+			}
+		});
+		
+		saveThread.start();
+	}
+	
+	/**
+	 * Method that waits until a background save of the SaveFile has finished
+	 */
+	public void waitForSave()
+	{
+		if(saveThread == null)
+		{
+			return;
+		}
+		
+		try {
+			saveThread.join();
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		saveThread = null;
+	}
+	
+	/**
+	 * Method that writes data to save files
+	 * @param tileMap (TileMap) The tileMap to be saved
+	 * @param objectMap (ObjectMap) The objectMap to be saved
+	 * @param itemMap (TileMap) The itemMap to be saved
+	 * @param hitboxMap (TileMap) The hitbox to be saved
+	 * @param saveDate (Date) The date of when the saved occurred
+	 */
+	private void writeFiles(TileMap tileMap, ObjectMap objectMap, TileMap itemMap, TileMap hitboxMap, Date saveDate)
 	{
 		try {
 			
@@ -94,40 +180,46 @@ public class SaveFile
 			FileOutputStream file = new FileOutputStream("./resources" + tileMapFilePath);
 			ObjectOutputStream out = new ObjectOutputStream(file);
 			out.writeObject(tileMap);
-			this.tileMap = tileMap;
+			out.close();
 			
 			//Save itemMap to a file
 			file = new FileOutputStream("./resources" + itemMapFilePath);
 			out = new ObjectOutputStream(file);
 			out.writeObject(itemMap);
-			this.itemMap = itemMap;
+			out.close();
 			
 			//Save objectMap to a file
 			file = new FileOutputStream("./resources" + objectMapFilePath);
 			out = new ObjectOutputStream(file);
 			out.writeObject(objectMap);
-			this.objectMap = objectMap;
+			out.close();
 			
 			//Save hitboxMap to a file
 			file = new FileOutputStream("./resources" + hitboxMapFilePath);
 			out = new ObjectOutputStream(file);
 			out.writeObject(hitboxMap);
-			this.hitboxMap = hitboxMap;
+			out.close();
 			
 			//Save saveDate to a file
 			file = new FileOutputStream("./resources" + saveDateFilePath);
 			out = new ObjectOutputStream(file);
 			out.writeObject(saveDate);
-			this.saveDate = saveDate;
-			
-			file.close();
 			out.close();
 			
-			this.empty = false;
-			
 		}catch(IOException e) {
 			e.printStackTrace();
 			System.out.println("FAILED to SAVE");
+			return;
+		}
+		
+		//Save hitboxMap's distance and flow fields to a file last
+		//(for a game to load instead of finding them itself; the maps are
+		//still saved if this fails)
+		try {
+			FieldFile.write("./resources" + fieldsFilePath, hitboxMap);
+		}catch(IOException e) {
+			e.printStackTrace();
+			System.out.println("FAILED to SAVE FIELDS");
 		}
 	}
 	
@@ -136,6 +228,9 @@ public class SaveFile
 	 */
 	public void load()
 	{
+		//Do not read files that are still being written
+		waitForSave();
+		
 		try {
 			
 			//Load files
@@ -167,6 +167,15 @@ public class ControlsState extends State
 		changeState();
 		updateButtons();
 	}
+	/**
+	 * Method that checks if the ControlsState changes without input
+	 * @return true if the fadeToBlack transition is running, otherwise false
+	 */
+	public boolean isAnimating()
+	{
+		return fadeToBlack.isRunning();
+	}
+	
 ////////////////////////////////////////////// DRAW METHODS //////////////////////////////////////////////
 	
 	/**
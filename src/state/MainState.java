@@ -224,6 +224,15 @@ public class MainState extends State
 		updateButtons();
 	}
 	
+	/**
+	 * Method that checks if the MainState changes without input
+	 * @return true if the fadeToBlack transition is running, otherwise false
+	 */
+	public boolean isAnimating()
+	{
+		return fadeToBlack.isRunning();
+	}
+	
 ////////////////////////////////////////////// DRAW METHODS //////////////////////////////////////////////
 	
 	/**
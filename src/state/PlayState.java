@@ -6,6 +6,8 @@ import java.awt.image.BufferedImage;
 
 import button.*;
 import entity.*;
+import graph.DistanceField;
+import graph.PathFinder;
 import main.GamePanel;
 import manager.ImageManager;
 import manager.MouseManager;
@@ -46,6 +48,22 @@ public class PlayState extends State
 	//MapHelper
 	private MapHelper mapHelper;
 	
+	//To test walkability between two Tiles of the hitboxMap
+	private PathFinder pathFinder;
+	
+	//Checks in the background that every item and GameObject can be reached
+	//from the spawn points of the hitboxMap
+	private ReachabilityValidator reachabilityValidator;
+	
+	//Distance of each Tile of the hitboxMap to the nearest wall (for the heatmap)
+	private DistanceField distanceField;
+	
+	//The maps being shown, flattened into one image per chunk
+	private CompositeCache compositeCache;
+	
+	//The maps as last drawn where the camera looks; shifted as the camera moves
+	private ViewportBuffer viewportBuffer;
+	
 	//Palettes
 	private TilePalette tilePalette;
 	private ObjectPalette objectPalette;
@@ -84,6 +102,7 @@ public class PlayState extends State
 	//Texts
 	private Text currentLocationText;
 	private Text currentLayerText;
+	private Text statusText;
 	
 	//Save Menu
 	private SaveMenu saveMenu;
@@ -136,17 +155,27 @@ public class PlayState extends State
 			this.objectMap = saveManager.getCurrentSaveFile().getObjectMap();
 			this.itemMap = saveManager.getCurrentSaveFile().getItemMap();
 			this.hitboxMap = saveManager.getCurrentSaveFile().getHitboxMap();
+			
+			//Older save files store every Tile of the maps in one array
+			this.tileMap.changeLayerType(LayerType.CHUNKED);
+			this.itemMap.changeLayerType(LayerType.CHUNKED);
+			this.hitboxMap.changeLayerType(LayerType.BIT);
 		}
 		else
 		{
 			//Create default, "empty" maps
-			this.tileMap = new TileMap(0, 0, DEFAULT_NUM_COLS, DEFAULT_NUM_ROWS, DEFAULT_TILE_SIZE);
+			//tileMap is chunked so that snapshots of it (i.e. for saving) can share its chunks
+			this.tileMap = new TileMap(0, 0, DEFAULT_NUM_COLS, DEFAULT_NUM_ROWS, DEFAULT_TILE_SIZE, LayerType.CHUNKED);
 			this.objectMap = new ObjectMap();
-			this.itemMap = new TileMap(0, 0, DEFAULT_NUM_COLS, DEFAULT_NUM_ROWS, DEFAULT_TILE_SIZE);
-			this.hitboxMap = new TileMap(0, 0, DEFAULT_NUM_COLS, DEFAULT_NUM_ROWS, DEFAULT_TILE_SIZE);
+			
+			//itemMap is mostly empty; only store the chunks in use
+			//hitboxMap only holds 0 or 1; store one bit per Tile
+			this.itemMap = new TileMap(0, 0, DEFAULT_NUM_COLS, DEFAULT_NUM_ROWS, DEFAULT_TILE_SIZE, LayerType.CHUNKED);
+			this.hitboxMap = new TileMap(0, 0, DEFAULT_NUM_COLS, DEFAULT_NUM_ROWS, DEFAULT_TILE_SIZE, LayerType.BIT);
 		}
 		
-		this.backgroundMap = new TileMap(0, 0, tileMap.getNumCols(), tileMap.getNumRows(), tileMap.getTileSize());
+		//backgroundMap is never drawn on; every chunk stays "empty"
+		this.backgroundMap = new TileMap(0, 0, tileMap.getNumCols(), tileMap.getNumRows(), tileMap.getTileSize(), LayerType.CHUNKED);
 		
 		//Set images to maps
 		this.tileMap.setImages(imageManager.getTileImages());
@@ -188,6 +217,15 @@ public class PlayState extends State
 	private void createMapHelper()
 	{
 		this.mapHelper = new MapHelper(backgroundMap, camera);
+		this.pathFinder = new PathFinder();
+		
+		this.reachabilityValidator = new ReachabilityValidator(hitboxMap, itemMap, objectMap);
+		this.mapHelper.setSpawnPoints(hitboxMap.getSpawnPoints());
+		
+		this.distanceField = new DistanceField();
+		
+		this.compositeCache = new CompositeCache(backgroundMap, tileMap, objectMap, itemMap, hitboxMap);
+		this.viewportBuffer = new ViewportBuffer(backgroundMap, tileMap, objectMap, itemMap, hitboxMap, compositeCache, Color.WHITE);
 	}
 	
 	private void createPalettes()
@@ -488,6 +526,11 @@ public class PlayState extends State
 		this.currentLocationText = new Text("[" + mapHelper.getCurrentRow() + " " + mapHelper.getCurrentCol() + "]");
 		this.currentLocationText.setX(camera.getWidth() + 4);
 		this.currentLocationText.setY(currentLayerText.getY() + currentLayerText.getHeight() + 8);
+		
+		//Result of the last fill or path
+		this.statusText = new Text("");
+		this.statusText.setX(camera.getWidth() + 4);
+		this.statusText.setY(currentLocationText.getY() + currentLocationText.getHeight() + 8);
 	}
 	
 	private void createMenus()
@@ -502,6 +545,7 @@ public class PlayState extends State
 				itemMap,
 				hitboxMap
 			);
+		this.saveMenu.setReachabilityValidator(reachabilityValidator);
 	}
 	
 	private void createTransitions()
@@ -521,6 +565,9 @@ public class PlayState extends State
 		objectMap.update();
 		itemMap.update();
 		hitboxMap.update();
+		
+		//Check the maps again (in the background) if they have changed
+		reachabilityValidator.update();
 	}
 	
 	/**
@@ -528,6 +575,20 @@ public class PlayState extends State
 	 */
 	private void updateMapHelper()
 	{
+		//Fills are previewed on the map being changed
+		if(currentPalette == tilePalette)
+		{
+			mapHelper.setFillMap(tileMap);
+		}
+		else if(currentPalette == hitboxPalette)
+		{
+			mapHelper.setFillMap(hitboxMap);
+		}
+		else
+		{
+			mapHelper.setFillMap(null);
+		}
+		
 		mapHelper.update();
 		
 		//If mapHelper has been clicked on;
@@ -549,11 +610,19 @@ public class PlayState extends State
 						);
 						break;
 					case FILL:
-						tileMap.fillTiles(
+						reportFill(tileMap.fillTiles(
 								mapHelper.getChangeCol(),
 								mapHelper.getChangeRow(),
 								tilePalette.getCurrentImage()
-						);
+						));
+						break;
+					case FILL_MAP:
+						reportFill(tileMap.fillTiles(
+								mapHelper.getChangeCol(),
+								mapHelper.getChangeRow(),
+								tilePalette.getCurrentImage(),
+								true
+						));
 						break;
 					default:
 						break;
@@ -605,11 +674,25 @@ public class PlayState extends State
 						);
 						break;
 					case FILL:
-						hitboxMap.fillTiles(
+						reportFill(hitboxMap.fillTiles(
 								mapHelper.getChangeCol(),
 								mapHelper.getChangeRow(),
 								hitboxPalette.getCurrentImage()
-						);
+						));
+						break;
+					case FILL_MAP:
+						reportFill(hitboxMap.fillTiles(
+								mapHelper.getChangeCol(),
+								mapHelper.getChangeRow(),
+								hitboxPalette.getCurrentImage(),
+								true
+						));
+						break;
+					case PATH:
+						updatePath(mapHelper.getChangeCol(), mapHelper.getChangeRow());
+						break;
+					case SPAWN:
+						hitboxMap.toggleSpawnPoint(mapHelper.getChangeCol(), mapHelper.getChangeRow());
 						break;
 					default:
 						break;
@@ -623,6 +706,57 @@ public class PlayState extends State
 		//Obtain the row and column on the map that the mouse is currently at
 		//Store it as a Text object, so that it can be displayed on screen
 		currentLocationText.setText("[" + mapHelper.getCurrentRow() + " " + mapHelper.getCurrentCol() + "]");
+		
+		mapHelper.setReachabilityReport(reachabilityValidator.getReport());
+	}
+	
+	/**
+	 * Method that shows how many Tiles a fill changed, and whether it stopped early
+	 * @param fillResult (FillResult) The result of the fill
+	 */
+	private void reportFill(FillResult fillResult)
+	{
+		if(fillResult.isTruncated())
+		{
+			statusText.setText("FILL STOPPED AT " + fillResult.getNumTiles());
+		}
+		else
+		{
+			statusText.setText("FILLED " + fillResult.getNumTiles() + " TILES");
+		}
+	}
+	
+	/**
+	 * Method that chooses the start of a path on the hitboxMap, or
+	 * the goal and then finds the path between them
+	 * The length and cost of the path are shown next to the current location
+	 * @param col (int) column of the Tile clicked on
+	 * @param row (int) row of the Tile clicked on
+	 */
+	private void updatePath(int col, int row)
+	{
+		if(mapHelper.getPathStartCol() == -1)
+		{
+			//Choose the start
+			mapHelper.clearPath();
+			mapHelper.setPathStart(col, row);
+			return;
+		}
+		
+		boolean found = hitboxMap.findPath(pathFinder, mapHelper.getPathStartCol(), mapHelper.getPathStartRow(), col, row);
+		
+		mapHelper.setPathStart(-1, -1);
+		
+		if(found)
+		{
+			mapHelper.setPath(pathFinder);
+			statusText.setText("PATH " + pathFinder.getPathLength() + " COST " + pathFinder.getPathCost());
+		}
+		else
+		{
+			mapHelper.clearPath();
+			statusText.setText("NO PATH");
+		}
 	}
 	
 	/**
@@ -724,6 +858,13 @@ public class PlayState extends State
 			{
 				currentPalette = tilePalette;
 				currentLayerText.setText("CURRENT LAYER: TILE LAYER");
+				
+				//Paths, spawn points and the heatmap are only on the hitboxMap
+				if(currentDrawMode == DrawMode.PATH || currentDrawMode == DrawMode.SPAWN || currentDrawMode == DrawMode.HEATMAP)
+				{
+					currentDrawMode = DrawMode.ARROW;
+					mapHelper.setCurrentDrawMode(currentDrawMode);
+				}
 			}
 			
 		}
@@ -793,13 +934,48 @@ public class PlayState extends State
 		else if(arrowIcon.isMouseClickingButton())
 		{
 			arrowIcon.setMouseClickingButton(false);
-			currentDrawMode = DrawMode.ARROW;
+			
+			//Clicking the arrowIcon again on the hitbox layer switches
+			//between changing Tiles, finding paths, placing spawn points
+			//and showing the distance to the nearest wall
+			if(currentPalette == hitboxPalette && currentDrawMode == DrawMode.ARROW)
+			{
+				currentDrawMode = DrawMode.PATH;
+			}
+			else if(currentPalette == hitboxPalette && currentDrawMode == DrawMode.PATH)
+			{
+				currentDrawMode = DrawMode.SPAWN;
+			}
+			else if(currentPalette == hitboxPalette && currentDrawMode == DrawMode.SPAWN && DistanceField.canCompute(hitboxMap.getLayer()))
+			{
+				currentDrawMode = DrawMode.HEATMAP;
+				
+				//The hitboxMap cannot change while the heatmap is shown
+				distanceField.compute(hitboxMap.getLayer());
+				mapHelper.setDistanceField(distanceField);
+			}
+			else
+			{
+				currentDrawMode = DrawMode.ARROW;
+			}
+			
 			mapHelper.setCurrentDrawMode(currentDrawMode);
 		}
 		else if(fillIcon.isMouseClickingButton())
 		{
 			fillIcon.setMouseClickingButton(false);
-			currentDrawMode = DrawMode.FILL;
+			
+			//Clicking the fillIcon again switches between filling the
+			//part of the map on screen and filling the whole map
+			if(currentDrawMode == DrawMode.FILL)
+			{
+				currentDrawMode = DrawMode.FILL_MAP;
+			}
+			else
+			{
+				currentDrawMode = DrawMode.FILL;
+			}
+			
 			mapHelper.setCurrentDrawMode(currentDrawMode);
 			
 		}
@@ -968,6 +1144,29 @@ public class PlayState extends State
 		updateButtons();
 	}
 	
+	/**
+	 * Method that checks if the PlayState changes without input
+	 * @return true if a Transition is running, the saved message is shown,
+	 * a fill is still being previewed or a reachability check has not been
+	 * drawn yet, otherwise false
+	 */
+	public boolean isAnimating()
+	{
+		if(fadeToBlack.isRunning())
+		{
+			return true;
+		}
+		
+		//The maps are not updated while the saveMenu is open
+		if(saveMenu.isVisible())
+		{
+			return saveMenu.isSaved();
+		}
+		
+		return mapHelper.isPreviewPending() || reachabilityValidator.isValidating() ||
+				reachabilityValidator.getReport() != mapHelper.getReachabilityReport();
+	}
+	
 
 ////////////////////////////////////////////// DRAW METHODS //////////////////////////////////////////////	
 	
@@ -987,29 +1186,33 @@ public class PlayState extends State
 	 */
 	private void drawMaps(Graphics2D g)
 	{
-		backgroundMap.draw(g);
+		int shownMaps = 0;
 		
 		//Draw each map depending on if the visibility
 		//of a map has been turned on or off
 		if(visionIcons[0].hasVision())
 		{
-			tileMap.draw(g);
+			shownMaps |= CompositeCache.SHOW_TILES;
 		}
 		
 		if(visionIcons[1].hasVision())
 		{
-			objectMap.draw(g);
+			shownMaps |= CompositeCache.SHOW_OBJECTS;
 		}
 		
 		if(visionIcons[2].hasVision())
 		{
-			itemMap.draw(g);
+			shownMaps |= CompositeCache.SHOW_ITEMS;
 		}
 		
 		if(visionIcons[3].hasVision())
 		{
-			hitboxMap.draw(g);
+			shownMaps |= CompositeCache.SHOW_HITBOXES;
 		}
+		
+		//The backgroundMap and the maps shown are drawn as one image per chunk;
+		//when only the camera moved, only the part it uncovered is drawn
+		viewportBuffer.draw(g, camera, shownMaps);
 	}
 	
 	/**
@@ -1141,6 +1344,46 @@ public class PlayState extends State
 						fillIcon.getHeight() - 1
 				);
 				break;
+			case FILL_MAP:
+				//Whole map fill
+				g.setColor(Color.ORANGE);
+				g.drawRect(
+						fillIcon.getX(),
+						fillIcon.getY(),
+						fillIcon.getWidth() - 1,
+						fillIcon.getHeight() - 1
+				);
+				break;
+			case PATH:
+				//Finding paths
+				g.setColor(Color.BLUE);
+				g.drawRect(
+						arrowIcon.getX(),
+						arrowIcon.getY(),
+						arrowIcon.getWidth() - 1,
+						arrowIcon.getHeight() - 1
+				);
+				break;
+			case SPAWN:
+				//Placing spawn points
+				g.setColor(Color.GREEN);
+				g.drawRect(
+						arrowIcon.getX(),
+						arrowIcon.getY(),
+						arrowIcon.getWidth() - 1,
+						arrowIcon.getHeight() - 1
+				);
+				break;
+			case HEATMAP:
+				//Showing the distance to the nearest wall
+				g.setColor(Color.MAGENTA);
+				g.drawRect(
+						arrowIcon.getX(),
+						arrowIcon.getY(),
+						arrowIcon.getWidth() - 1,
+						arrowIcon.getHeight() - 1
+				);
+				break;
 			default:
 				break;
 		}
@@ -1154,6 +1397,7 @@ public class PlayState extends State
 	{
 		currentLocationText.draw(g);
 		currentLayerText.draw(g);
+		statusText.draw(g);
 	}
 	
 	/**
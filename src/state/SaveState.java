@@ -239,6 +239,15 @@ public class SaveState extends State
 		updateButtons();
 	}
 
+	/**
+	 * Method that checks if the SaveState changes without input
+	 * @return true if the fadeToBlack transition is running, otherwise false
+	 */
+	public boolean isAnimating()
+	{
+		return fadeToBlack.isRunning();
+	}
+	
 ////////////////////////////////////////////// DRAW METHODS //////////////////////////////////////////////
 	
 	/**
@@ -17,4 +17,15 @@ public abstract class State
 	//Abstract methods
 	public abstract void update();
 	public abstract void draw(Graphics2D g);
+	
+	/**
+	 * Method that checks if the State changes without input (i.e. a
+	 * Transition is running), so it has to be updated and drawn every frame
+	 * States that do not say otherwise are always animating
+	 * @return true if the State is animating, otherwise false
+	 */
+	public boolean isAnimating()
+	{
+		return true;
+	}
 }
\ No newline at end of file